@@ -0,0 +1,129 @@
+package com.fuchen.travel.background.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/24
+ * 运行全部基准测试，结果以JSON格式写入文件；指定基线文件时与基线比较，
+ * 变慢超过阈值并且两次结果的置信区间（score ± scoreError）不重叠时才算变慢，以状态码1退出
+ * 置信区间需要多次fork的结果，各基准测试至少fork两次
+ *
+ * 用法：java [-Dresult=jmh-result.json] [-Dbaseline=baseline.json] [-Dthreshold=0.1] -jar benchmarks.jar [正则]
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        Path result = Paths.get(System.getProperty("result", "jmh-result.json"));
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString());
+        if (args.length == 0) {
+            builder.include(BenchmarkRunner.class.getPackage().getName() + ".*");
+        }
+        for (String include : args) {
+            builder.include(include);
+        }
+        new Runner(builder.build()).run();
+
+        String baseline = System.getProperty("baseline");
+        if (baseline != null) {
+            double threshold = Double.parseDouble(System.getProperty("threshold", "0.1"));
+            int regressions = compare(read(Paths.get(baseline)), read(result), threshold);
+            if (regressions > 0) {
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * 与基线比较，全部基准测试都是平均耗时，分数越大越慢
+     * 当前结果置信区间的下限高于基线置信区间的上限，并且变化超过阈值时才算变慢，噪声造成的波动不算
+     * @return 变慢的数量
+     */
+    private static int compare(Map<String, Score> baseline, Map<String, Score> current, double threshold) {
+        int regressions = 0;
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score old = baseline.get(entry.getKey());
+            if (old == null || old.score <= 0) {
+                continue;
+            }
+            Score now = entry.getValue();
+            double change = (now.score - old.score) / old.score;
+            String line = String.format("%-80s %12.2f ± %-10.2f -> %12.2f ± %-10.2f  %+.1f%%",
+                    entry.getKey(), old.score, old.error, now.score, now.error, change * 100);
+            if (change > threshold && now.low() > old.high()) {
+                regressions++;
+                System.out.println("变慢：" + line);
+            } else if (change > threshold) {
+                System.out.println("波动：" + line);
+            } else {
+                System.out.println("正常：" + line);
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * 读取JMH的JSON结果
+     * @return 基准测试名称（包括参数）到分数和误差的映射
+     */
+    private static Map<String, Score> read(Path path) throws IOException {
+        String text = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        JSONArray array = JSON.parseArray(text);
+        Map<String, Score> scores = new HashMap<>();
+        for (int i = 0; i < array.size(); i++) {
+            JSONObject item = array.getJSONObject(i);
+            StringBuilder name = new StringBuilder(item.getString("benchmark"));
+            JSONObject params = item.getJSONObject("params");
+            if (params != null) {
+                //参数排序，保证同一组参数的名称一致
+                new TreeMap<>(params).forEach((key, value) -> name.append(':').append(key).append('=').append(value));
+            }
+            JSONObject metric = item.getJSONObject("primaryMetric");
+            scores.put(name.toString(), new Score(metric.getDoubleValue("score"), metric.get("scoreError")));
+        }
+        return scores;
+    }
+
+    /**
+     * 分数和99.9%置信区间的半宽
+     */
+    private static class Score {
+
+        private final double score;
+
+        private final double error;
+
+        private Score(double score, Object error) {
+            this.score = score;
+            //只有一次测量时JMH输出"NaN"，没有置信区间，只按阈值判断
+            double value = error instanceof Number ? ((Number) error).doubleValue() : Double.NaN;
+            this.error = Double.isNaN(value) ? 0 : value;
+        }
+
+        private double low() {
+            return score - error;
+        }
+
+        private double high() {
+            return score + error;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.fuchen.travel.background.benchmark;
+
+import com.fuchen.travel.background.entity.DiscussPost;
+import com.fuchen.travel.background.entity.User;
+import com.fuchen.travel.background.util.IntLongMap;
+import com.fuchen.travel.background.util.PostListUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/24
+ * 帖子列表封装为List<Map>的循环，DiscussPostController.getPostList调用的同一个PostListUtil.wrap，
+ * 用户和点赞数已批量查出，只测内存中的封装
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ListWrapBenchmark {
+
+    /**
+     * 每页数量
+     */
+    @Param({"10", "100"})
+    private int size;
+
+    private List<DiscussPost> discussPosts;
+
+    private Map<Integer, User> users;
+
+    private IntLongMap likeCounts;
+
+    @Setup
+    public void setup() {
+        discussPosts = new ArrayList<>(size);
+        users = new HashMap<>();
+        likeCounts = new IntLongMap(size);
+        for (int i = 1; i <= size; i++) {
+            DiscussPost post = new DiscussPost();
+            post.setId(i);
+            //每个用户发了两篇帖子
+            post.setUserId(String.valueOf((i + 1) / 2));
+            post.setTitle("帖子" + i);
+            discussPosts.add(post);
+            User user = new User();
+            user.setId((i + 1) / 2);
+            user.setUsername("user" + user.getId());
+            users.put(user.getId(), user);
+            likeCounts.put(i, i * 3L);
+        }
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> postList() {
+        return PostListUtil.wrap(discussPosts, users, likeCounts);
+    }
+}
@@ -0,0 +1,49 @@
+package com.fuchen.travel.background.benchmark;
+
+import com.fuchen.travel.background.entity.Page;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/24
+ * 分页计算基准测试：模板渲染分页栏时调用的offset、总页数、起止页码
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PageBenchmark {
+
+    @Param({"0", "95", "100000"})
+    private int rows;
+
+    @Param({"1", "7"})
+    private int current;
+
+    @Benchmark
+    public void pageBar(Blackhole blackhole) {
+        Page page = new Page();
+        page.setCurrent(current);
+        page.setLimit(10);
+        page.setRows(rows);
+        blackhole.consume(page.getOffset());
+        blackhole.consume(page.getTotal());
+        blackhole.consume(page.getFrom());
+        blackhole.consume(page.getTo());
+        blackhole.consume(page.getRowsText());
+    }
+}
@@ -0,0 +1,112 @@
+package com.fuchen.travel.background.benchmark;
+
+import com.fuchen.travel.background.entity.LoginTicket;
+import com.fuchen.travel.background.entity.Preserve;
+import com.fuchen.travel.background.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/24
+ * redis值的json序列化基准测试，序列化方式与RedisConfig一致（RedisSerializer.json()）
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RedisSerializerBenchmark {
+
+    private RedisSerializer<Object> serializer;
+
+    private User user;
+
+    private LoginTicket loginTicket;
+
+    private Preserve preserve;
+
+    private byte[] userBytes;
+
+    private byte[] loginTicketBytes;
+
+    private byte[] preserveBytes;
+
+    @Setup
+    public void setup() {
+        serializer = RedisSerializer.json();
+
+        user = new User();
+        user.setId(10086);
+        user.setUsername("fuchen");
+        user.setPassword("e10adc3949ba59abbe56e057f20f883e");
+        user.setSalt("a1b2c");
+        user.setEmail("fuchen@example.com");
+        user.setType(0);
+        user.setStatus(1);
+        user.setHeaderUrl("http://images.example.com/head/10086.png");
+        user.setCreateTime(new Date());
+
+        loginTicket = new LoginTicket();
+        loginTicket.setUserId(10086);
+        loginTicket.setTicket("MTAwODY6MTY4NzU5MDAwMDAwMDphMWIyYzNkNA.c2lnbmF0dXJl");
+        loginTicket.setStatus(0);
+        loginTicket.setExpired(new Date());
+
+        preserve = new Preserve();
+        preserve.setId(2333);
+        preserve.setNumber(2);
+        preserve.setBathroomtype("双人间");
+        preserve.setTitle("玉龙雪山");
+        preserve.setDate("2023-06-24");
+        preserve.setPhone("13800000000");
+        preserve.setContent(1);
+
+        userBytes = serializer.serialize(user);
+        loginTicketBytes = serializer.serialize(loginTicket);
+        preserveBytes = serializer.serialize(preserve);
+    }
+
+    @Benchmark
+    public byte[] serializeUser() {
+        return serializer.serialize(user);
+    }
+
+    @Benchmark
+    public Object deserializeUser() {
+        return serializer.deserialize(userBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeLoginTicket() {
+        return serializer.serialize(loginTicket);
+    }
+
+    @Benchmark
+    public Object deserializeLoginTicket() {
+        return serializer.deserialize(loginTicketBytes);
+    }
+
+    @Benchmark
+    public byte[] serializePreserve() {
+        return serializer.serialize(preserve);
+    }
+
+    @Benchmark
+    public Object deserializePreserve() {
+        return serializer.deserialize(preserveBytes);
+    }
+}
@@ -0,0 +1,95 @@
+package com.fuchen.travel.background.benchmark;
+
+import com.fuchen.travel.background.util.RedisKeyUtil;
+import com.fuchen.travel.background.util.TravelUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/24
+ * 工具类基准测试：redis键拼接、json封装、md5、随机字符串
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class UtilBenchmark {
+
+    private Integer userId;
+
+    private Integer entityId;
+
+    private String ticket;
+
+    private String password;
+
+    private Map<String, Object> map;
+
+    @Setup
+    public void setup() {
+        userId = 10086;
+        entityId = 2333;
+        ticket = TravelUtil.generateUUID();
+        password = "123456" + TravelUtil.generateUUID().substring(0, 5);
+        //与controller返回的json结构相近
+        map = new HashMap<>();
+        map.put("id", 2333);
+        map.put("likeCount", 42L);
+        map.put("likeStatus", 1);
+    }
+
+    @Benchmark
+    public String entityLikeKey() {
+        return RedisKeyUtil.getEntityLikeKey(1, entityId);
+    }
+
+    @Benchmark
+    public String userKey() {
+        return RedisKeyUtil.getUserKey(userId);
+    }
+
+    @Benchmark
+    public String ticketKey() {
+        return RedisKeyUtil.getTicketKey(ticket);
+    }
+
+    @Benchmark
+    public String searchCountKey() {
+        return RedisKeyUtil.getSearchCountKey("user", "旅游");
+    }
+
+    @Benchmark
+    public String jsonString() {
+        return TravelUtil.getJsonString(0, "OK", map);
+    }
+
+    @Benchmark
+    public String jsonStringWithoutMap() {
+        return TravelUtil.getJsonString(0, "OK");
+    }
+
+    @Benchmark
+    public String md5() {
+        return TravelUtil.md5(password);
+    }
+
+    @Benchmark
+    public String generateUUID() {
+        return TravelUtil.generateUUID();
+    }
+}
@@ -0,0 +1,98 @@
+-- 代码中用到、但travel_group_data.sql中没有的表和字段，只用于压测环境
+-- 字段根据mapper和实体类整理
+
+SET NAMES utf8mb4;
+
+-- ----------------------------
+-- 后台管理员和用户（登录、用户数量统计、帖子作者）
+-- ----------------------------
+CREATE TABLE IF NOT EXISTS `sys_user`  (
+  `id` int NOT NULL AUTO_INCREMENT,
+  `username` varchar(50) NULL DEFAULT NULL,
+  `password` varchar(50) NULL DEFAULT NULL,
+  `salt` varchar(50) NULL DEFAULT NULL,
+  `email` varchar(100) NULL DEFAULT NULL,
+  `type` int NULL DEFAULT NULL COMMENT '0-普通用户; 1-管理员; 2-版主;',
+  `status` int NULL DEFAULT NULL COMMENT '0-未激活; 1-已激活; 2-封禁;',
+  `activation_code` varchar(100) NULL DEFAULT NULL,
+  `header_url` varchar(200) NULL DEFAULT NULL,
+  `create_time` timestamp NULL DEFAULT NULL,
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `index_username`(`username`(20) ASC) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4;
+
+-- 压测登录账号 loadtest/loadtest（md5(密码 + 盐)）
+INSERT INTO `sys_user` (username, password, salt, email, type, status, header_url, create_time)
+VALUES ('loadtest', '9299666827de6fa6be25ca255286d8b2', 'lt001', 'loadtest@example.com', 1, 1, NULL, NOW());
+
+-- ----------------------------
+-- 小程序用户（用户管理页面）
+-- ----------------------------
+ALTER TABLE `user`
+  ADD COLUMN `name` varchar(50) NULL DEFAULT NULL,
+  ADD COLUMN `phone` varchar(20) NULL DEFAULT NULL,
+  ADD COLUMN `integration` int NULL DEFAULT 0,
+  ADD COLUMN `balance` int NULL DEFAULT 0;
+
+-- ----------------------------
+-- 景点预约
+-- ----------------------------
+ALTER TABLE `preserve`
+  ADD COLUMN `number` int NULL DEFAULT NULL,
+  ADD COLUMN `bathroomtype` varchar(50) NULL DEFAULT NULL,
+  ADD COLUMN `title` varchar(100) NULL DEFAULT NULL,
+  ADD COLUMN `date` varchar(20) NULL DEFAULT NULL,
+  ADD COLUMN `type` int NULL DEFAULT 0,
+  ADD COLUMN `audit` int NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS `scenic_copy2` LIKE `preserve`;
+CREATE TABLE IF NOT EXISTS `scenic_copy3` LIKE `preserve`;
+
+-- ----------------------------
+-- 浴室类型
+-- ----------------------------
+CREATE TABLE IF NOT EXISTS `BathroomType`  (
+  `id` int NOT NULL AUTO_INCREMENT,
+  `name` varchar(100) NULL DEFAULT NULL,
+  `url` varchar(200) NULL DEFAULT NULL,
+  `content` int NULL DEFAULT 0,
+  PRIMARY KEY (`id`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4;
+
+-- ----------------------------
+-- 商品和订单
+-- ----------------------------
+CREATE TABLE IF NOT EXISTS `classify`  (
+  `id` int NOT NULL AUTO_INCREMENT,
+  `name` varchar(50) NULL DEFAULT NULL,
+  PRIMARY KEY (`id`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS `goods`  (
+  `id` int NOT NULL AUTO_INCREMENT,
+  `goodsId` int NULL DEFAULT NULL COMMENT '分类id',
+  `cover` varchar(200) NULL DEFAULT NULL,
+  `name` varchar(100) NULL DEFAULT NULL,
+  `price` varchar(20) NULL DEFAULT NULL,
+  `content` varchar(500) NULL DEFAULT NULL,
+  `img1` varchar(200) NULL DEFAULT NULL,
+  `img2` varchar(200) NULL DEFAULT NULL,
+  `img3` varchar(200) NULL DEFAULT NULL,
+  PRIMARY KEY (`id`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS `CommodityOrder`  (
+  `id` int NOT NULL AUTO_INCREMENT,
+  `content` varchar(10) NULL DEFAULT NULL COMMENT '1-已付款; 2-已取消;',
+  PRIMARY KEY (`id`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS `orderdetails`  (
+  `id` int NOT NULL AUTO_INCREMENT,
+  `phone` varchar(20) NULL DEFAULT NULL,
+  `data` varchar(50) NULL DEFAULT NULL,
+  `everyone` varchar(50) NULL DEFAULT NULL,
+  `orderId` int NULL DEFAULT NULL,
+  `price` varchar(20) NULL DEFAULT NULL,
+  PRIMARY KEY (`id`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4;
@@ -0,0 +1,172 @@
+package com.fuchen.travel.background.loadtest;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Random;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/25
+ * 压测造数据：按配置的数量批量插入帖子、景点、用户、商品、浴室类型，标题由常见词随机组合，搜索能命中
+ * 固定随机种子，每次生成的数据相同，压测结果可以比较
+ *
+ * 用法：java -Dposts=2000000 -Dscenic=1000000 -cp loadtest.jar com.fuchen.travel.background.loadtest.DataSeeder
+ */
+public class DataSeeder {
+
+    private static final int BATCH_SIZE = 5000;
+
+    /**
+     * 时间字段以此为基准随机生成（2023-06-25 00:00:00 UTC），不依赖运行时的当前时间
+     */
+    private static final long BASE_TIME = 1687651200000L;
+
+    private static final String[] WORDS = {"玉龙雪山", "故宫", "长城", "泰山", "西湖", "黄山", "张家界", "九寨沟", "丽江",
+            "拼团", "自驾", "周末", "攻略", "亲子", "美食", "摄影", "露营", "徒步", "温泉", "古镇"};
+
+    private final Random random = new Random(20230625L);
+
+    private final Connection connection;
+
+    private DataSeeder(Connection connection) {
+        this.connection = connection;
+    }
+
+    public static void main(String[] args) throws SQLException {
+        String url = System.getProperty("url",
+                "jdbc:mysql://localhost:3307/weixin?serverTimezone=UTC&useSSL=false&allowPublicKeyRetrieval=true"
+                        + "&rewriteBatchedStatements=true");
+        try (Connection connection = DriverManager.getConnection(url,
+                System.getProperty("user", "root"), System.getProperty("password", "loadtest"))) {
+            connection.setAutoCommit(false);
+            DataSeeder seeder = new DataSeeder(connection);
+            int users = Integer.getInteger("users", 100000);
+            seeder.seedSysUsers(users);
+            seeder.seedAppUsers(Integer.getInteger("appUsers", 100000));
+            seeder.seedPosts(Integer.getInteger("posts", 2000000), users);
+            seeder.seedScenic(Integer.getInteger("scenic", 1000000));
+            seeder.seedGoods(Integer.getInteger("goods", 50000));
+            seeder.seedBathroomTypes(Integer.getInteger("bathroomTypes", 1000));
+            //更新统计信息，估算行数（information_schema）与实际数量一致
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ANALYZE TABLE sys_user, user, discuss_post, preserve, goods, BathroomType");
+            }
+        }
+    }
+
+    private void seedSysUsers(int count) throws SQLException {
+        seed("sys_user", count, "INSERT INTO sys_user (username, password, salt, email, type, status, create_time) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)", (statement, i) -> {
+            statement.setString(1, "seed" + i);
+            statement.setString(2, "9299666827de6fa6be25ca255286d8b2");
+            statement.setString(3, "lt001");
+            statement.setString(4, "seed" + i + "@example.com");
+            //少量管理员
+            statement.setInt(5, i % 100 == 0 ? 1 : 0);
+            //约2%封禁
+            statement.setInt(6, i % 50 == 0 ? 2 : 1);
+            statement.setTimestamp(7, randomTime());
+        });
+    }
+
+    private void seedAppUsers(int count) throws SQLException {
+        seed("user", count, "INSERT INTO user (username, name, phone, email, type, status, integration, balance, create_time) "
+                + "VALUES (?, ?, ?, ?, 0, 1, ?, ?, ?)", (statement, i) -> {
+            statement.setString(1, "app" + i);
+            statement.setString(2, "游客" + i);
+            statement.setString(3, phone(i));
+            statement.setString(4, "app" + i + "@example.com");
+            statement.setInt(5, random.nextInt(10000));
+            statement.setInt(6, random.nextInt(100000));
+            statement.setTimestamp(7, randomTime());
+        });
+    }
+
+    private void seedPosts(int count, int users) throws SQLException {
+        seed("discuss_post", count, "INSERT INTO discuss_post (user_id, title, content, type, status, create_time, "
+                + "comment_count, score) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", (statement, i) -> {
+            String title = title();
+            statement.setString(1, String.valueOf(random.nextInt(Math.max(users, 1)) + 1));
+            statement.setString(2, title);
+            statement.setString(3, title + "，一起出发吧！" + title);
+            //约1%置顶
+            statement.setInt(4, random.nextInt(100) == 0 ? 1 : 0);
+            //约5%拉黑
+            statement.setInt(5, random.nextInt(20) == 0 ? 2 : 0);
+            statement.setTimestamp(6, randomTime());
+            statement.setInt(7, random.nextInt(50));
+            statement.setDouble(8, random.nextInt(5000));
+        });
+    }
+
+    private void seedScenic(int count) throws SQLException {
+        seed("preserve", count, "INSERT INTO preserve (scenic_name, introduce, content, price, phone, address, create_time, "
+                + "status, number, title, date, type) VALUES (?, ?, ?, ?, ?, ?, ?, 0, ?, ?, ?, ?)", (statement, i) -> {
+            String name = WORDS[random.nextInt(9)] + i;
+            statement.setString(1, name);
+            statement.setString(2, name + "简介");
+            statement.setString(3, String.valueOf(random.nextInt(2)));
+            statement.setInt(4, 50 + random.nextInt(500));
+            statement.setString(5, phone(i));
+            statement.setString(6, "地址" + i);
+            statement.setTimestamp(7, randomTime());
+            statement.setInt(8, 1 + random.nextInt(6));
+            statement.setString(9, name);
+            statement.setString(10, "2023-0" + (1 + random.nextInt(9)) + "-1" + random.nextInt(10));
+            //约1%推荐
+            statement.setInt(11, random.nextInt(100) == 0 ? 1 : 0);
+        });
+    }
+
+    private void seedGoods(int count) throws SQLException {
+        seed("goods", count, "INSERT INTO goods (goodsId, name, price, content) VALUES (?, ?, ?, ?)", (statement, i) -> {
+            statement.setInt(1, 1 + random.nextInt(10));
+            statement.setString(2, WORDS[9 + random.nextInt(11)] + "套餐" + i);
+            statement.setString(3, String.valueOf(10 + random.nextInt(1000)));
+            statement.setString(4, "商品介绍" + i);
+        });
+    }
+
+    private void seedBathroomTypes(int count) throws SQLException {
+        seed("BathroomType", count, "INSERT INTO BathroomType (name, url, content) VALUES (?, ?, 0)", (statement, i) -> {
+            statement.setString(1, WORDS[random.nextInt(WORDS.length)] + "浴室" + i);
+            statement.setString(2, "bathroom" + i + ".jpg");
+        });
+    }
+
+    private void seed(String table, int count, String sql, RowWriter writer) throws SQLException {
+        long start = System.currentTimeMillis();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 1; i <= count; i++) {
+                writer.write(statement, i);
+                statement.addBatch();
+                if (i % BATCH_SIZE == 0 || i == count) {
+                    statement.executeBatch();
+                    connection.commit();
+                }
+            }
+        }
+        System.out.println(table + "：插入" + count + "条，耗时" + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    private String title() {
+        return WORDS[random.nextInt(WORDS.length)] + WORDS[random.nextInt(WORDS.length)] + random.nextInt(1000);
+    }
+
+    private Timestamp randomTime() {
+        //基准时间之前的一年内
+        return new Timestamp(BASE_TIME - (long) (random.nextDouble() * 365 * 24 * 3600 * 1000L));
+    }
+
+    private static String phone(int i) {
+        return String.format("138%08d", i);
+    }
+
+    private interface RowWriter {
+        void write(PreparedStatement statement, int i) throws SQLException;
+    }
+}
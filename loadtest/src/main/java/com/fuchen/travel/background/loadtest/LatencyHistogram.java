@@ -0,0 +1,96 @@
+package com.fuchen.travel.background.loadtest;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/25
+ * 延迟直方图（微秒）：1024微秒以内每微秒一个桶，更大的值按2的幂分段，每段512个桶，相对误差小于0.2%
+ * 内存固定，不保存每次请求的延迟；每个压测线程各用一个，结束后合并，记录时不需要同步
+ */
+class LatencyHistogram {
+
+    private static final int LINEAR = 1024;
+
+    private static final int SUB_BUCKETS = 512;
+
+    /**
+     * 最大可记录约2^40微秒（12天），足够覆盖任何超时
+     */
+    private static final int MAX_EXPONENT = 40;
+
+    private final long[] counts = new long[LINEAR + (MAX_EXPONENT - 9) * SUB_BUCKETS];
+
+    private long total;
+
+    private long max;
+
+    private long sum;
+
+    void record(long micros) {
+        long value = Math.max(micros, 0);
+        counts[indexOf(value)]++;
+        total++;
+        sum += value;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    void merge(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    long getTotal() {
+        return total;
+    }
+
+    long getMax() {
+        return max;
+    }
+
+    double getMean() {
+        return total == 0 ? 0 : (double) sum / total;
+    }
+
+    /**
+     * 分位数
+     * @param percentile 0-100
+     * @return 微秒，取所在桶的上界
+     */
+    long getPercentile(double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max((long) Math.ceil(total * percentile / 100), 1);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int indexOf(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+        int sub = (int) ((value >>> (exponent - 9)) & (SUB_BUCKETS - 1));
+        return LINEAR + (exponent - 10) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int exponent = (index - LINEAR) / SUB_BUCKETS + 10;
+        int sub = (index - LINEAR) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - 9)) - 1;
+    }
+}
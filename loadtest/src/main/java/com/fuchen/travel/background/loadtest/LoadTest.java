@@ -0,0 +1,273 @@
+package com.fuchen.travel.background.loadtest;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/25
+ * 压测：登录后由多个线程按权重随机请求各个页面，预热结束后开始统计，
+ * 最后输出每个接口的吞吐量和延迟分位数，并以JSON格式写入文件
+ *
+ * 参数（-D）：
+ * baseUrl   应用地址，默认http://localhost:8080/travel
+ * threads   并发线程数，默认32
+ * warmup    预热秒数，默认10
+ * duration  统计秒数，默认60
+ * endpoints 接口和权重，格式"路径=权重,路径=权重"，默认覆盖首页、各管理页面和搜索
+ * report    报告文件，默认loadtest-report.json
+ */
+public class LoadTest {
+
+    private static final String DEFAULT_ENDPOINTS = "/index=2,/discuss-post-control=3,/user-control=2,/scenic-controll=2,"
+            + "/discuss-post-control/search?keyword=玉龙雪山=2,/scenic/search?keyword=1380000=1,"
+            + "/user/search?keyword=1380000=1,/goods/search?keyword=拼团=1,/bathroomType/search?keyword=温泉=1";
+
+    /**
+     * 管理页面翻页的最大页码，模拟翻到后面几页的请求
+     */
+    private static final int MAX_PAGE = 50;
+
+    private final String baseUrl;
+
+    private final List<String> paths = new ArrayList<>();
+
+    private final List<Integer> weights = new ArrayList<>();
+
+    private int totalWeight;
+
+    private String cookie;
+
+    private volatile boolean recording;
+
+    private volatile boolean running = true;
+
+    private LoadTest(String baseUrl, String endpoints) {
+        this.baseUrl = baseUrl;
+        for (String item : endpoints.split(",")) {
+            int index = item.lastIndexOf('=');
+            paths.add(item.substring(0, index).trim());
+            int weight = Integer.parseInt(item.substring(index + 1).trim());
+            weights.add(weight);
+            totalWeight += weight;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTest loadTest = new LoadTest(System.getProperty("baseUrl", "http://localhost:8080/travel"),
+                System.getProperty("endpoints", DEFAULT_ENDPOINTS));
+        loadTest.login(System.getProperty("username", "loadtest"), System.getProperty("password", "loadtest"));
+        Map<String, Object> report = loadTest.run(Integer.getInteger("threads", 32),
+                Integer.getInteger("warmup", 10), Integer.getInteger("duration", 60));
+        Files.write(Paths.get(System.getProperty("report", "loadtest-report.json")),
+                JSON.toJSONString(report, true).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 登录并保存凭证cookie，之后的请求都带上
+     */
+    private void login(String username, String password) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "/login").openConnection();
+        connection.setRequestMethod("POST");
+        connection.setInstanceFollowRedirects(false);
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        String form = "username=" + URLEncoder.encode(username, "UTF-8") + "&password=" + URLEncoder.encode(password, "UTF-8");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(form.getBytes(StandardCharsets.UTF_8));
+        }
+        //响应头名称不区分大小写
+        for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+            if (!"Set-Cookie".equalsIgnoreCase(header.getKey())) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                if (value.startsWith("ticket=")) {
+                    cookie = value.substring(0, value.indexOf(';') < 0 ? value.length() : value.indexOf(';'));
+                }
+            }
+        }
+        connection.disconnect();
+        if (cookie == null) {
+            throw new IllegalStateException("登录失败，请检查账号密码和压测数据库：" + connection.getResponseCode());
+        }
+    }
+
+    private Map<String, Object> run(int threads, int warmupSeconds, int durationSeconds) throws InterruptedException {
+        List<Map<String, LatencyHistogram>> histograms = new ArrayList<>();
+        List<Map<String, Long>> errors = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            Map<String, LatencyHistogram> histogram = new LinkedHashMap<>();
+            Map<String, Long> error = new LinkedHashMap<>();
+            histograms.add(histogram);
+            errors.add(error);
+            Random random = new Random(i);
+            Thread thread = new Thread(() -> {
+                try {
+                    work(random, histogram, error);
+                } finally {
+                    done.countDown();
+                }
+            }, "loadtest-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        System.out.println("预热" + warmupSeconds + "秒，并发" + threads);
+        TimeUnit.SECONDS.sleep(warmupSeconds);
+        recording = true;
+        long start = System.nanoTime();
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        running = false;
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return report(histograms, errors, seconds, threads);
+    }
+
+    private void work(Random random, Map<String, LatencyHistogram> histogram, Map<String, Long> error) {
+        while (running) {
+            String path = pick(random);
+            String url = baseUrl + withPage(path, random);
+            long start = System.nanoTime();
+            boolean ok;
+            try {
+                ok = request(url);
+            } catch (IOException e) {
+                ok = false;
+            }
+            long micros = (System.nanoTime() - start) / 1000;
+            //预热期间和结束后完成的请求不统计
+            if (recording && running) {
+                histogram.computeIfAbsent(path, key -> new LatencyHistogram()).record(micros);
+                if (!ok) {
+                    error.merge(path, 1L, Long::sum);
+                }
+            }
+        }
+    }
+
+    /**
+     * 发送请求并读完响应，2xx以外的状态码算错误
+     */
+    private boolean request(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setInstanceFollowRedirects(false);
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(30000);
+        connection.setRequestProperty("Cookie", cookie);
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (in != null) {
+            //读完响应体，连接才能复用（keep-alive）
+            try (InputStream body = in) {
+                byte[] buffer = new byte[8192];
+                while (body.read(buffer) >= 0) {
+                    //丢弃
+                }
+            }
+        }
+        return status >= 200 && status < 300;
+    }
+
+    private String pick(Random random) {
+        int value = random.nextInt(totalWeight);
+        for (int i = 0; i < paths.size(); i++) {
+            value -= weights.get(i);
+            if (value < 0) {
+                return paths.get(i);
+            }
+        }
+        return paths.get(paths.size() - 1);
+    }
+
+    /**
+     * 随机页码，关键词编码
+     */
+    private static String withPage(String path, Random random) {
+        String result = path;
+        int index = path.indexOf("keyword=");
+        if (index >= 0) {
+            try {
+                result = path.substring(0, index + 8) + URLEncoder.encode(path.substring(index + 8), "UTF-8");
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return result + (result.contains("?") ? "&" : "?") + "current=" + (1 + random.nextInt(MAX_PAGE));
+    }
+
+    private Map<String, Object> report(List<Map<String, LatencyHistogram>> histograms, List<Map<String, Long>> errors,
+                                       double seconds, int threads) {
+        Map<String, LatencyHistogram> merged = new LinkedHashMap<>();
+        Map<String, Long> errorCounts = new LinkedHashMap<>();
+        for (String path : paths) {
+            merged.put(path, new LatencyHistogram());
+            errorCounts.put(path, 0L);
+        }
+        for (int i = 0; i < histograms.size(); i++) {
+            histograms.get(i).forEach((path, histogram) -> merged.get(path).merge(histogram));
+            errors.get(i).forEach((path, count) -> errorCounts.merge(path, count, Long::sum));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("threads", threads);
+        report.put("seconds", seconds);
+        List<Map<String, Object>> endpoints = new ArrayList<>();
+        LatencyHistogram all = new LatencyHistogram();
+        System.out.println(String.format("%-45s %8s %9s %8s %8s %8s %8s %8s %7s",
+                "接口", "请求数", "吞吐/秒", "p50ms", "p90ms", "p99ms", "p99.9ms", "maxms", "错误"));
+        for (Map.Entry<String, LatencyHistogram> entry : merged.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            all.merge(histogram);
+            Map<String, Object> item = summary(histogram, seconds);
+            item.put("endpoint", entry.getKey());
+            item.put("errors", errorCounts.get(entry.getKey()));
+            endpoints.add(item);
+            print(entry.getKey(), item);
+        }
+        Map<String, Object> total = summary(all, seconds);
+        total.put("errors", errorCounts.values().stream().mapToLong(Long::longValue).sum());
+        print("合计", total);
+        report.put("endpoints", endpoints);
+        report.put("total", total);
+        return report;
+    }
+
+    private static Map<String, Object> summary(LatencyHistogram histogram, double seconds) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("requests", histogram.getTotal());
+        item.put("throughput", histogram.getTotal() / seconds);
+        item.put("meanMillis", histogram.getMean() / 1000);
+        item.put("p50Millis", histogram.getPercentile(50) / 1000.0);
+        item.put("p90Millis", histogram.getPercentile(90) / 1000.0);
+        item.put("p99Millis", histogram.getPercentile(99) / 1000.0);
+        item.put("p999Millis", histogram.getPercentile(99.9) / 1000.0);
+        item.put("maxMillis", histogram.getMax() / 1000.0);
+        return item;
+    }
+
+    private static void print(String name, Map<String, Object> item) {
+        JSONObject json = new JSONObject(item);
+        System.out.println(String.format("%-45s %8d %9.1f %8.2f %8.2f %8.2f %8.2f %8.2f %7d", name,
+                json.getLongValue("requests"), json.getDoubleValue("throughput"), json.getDoubleValue("p50Millis"),
+                json.getDoubleValue("p90Millis"), json.getDoubleValue("p99Millis"), json.getDoubleValue("p999Millis"),
+                json.getDoubleValue("maxMillis"), json.getLongValue("errors")));
+    }
+}
@@ -1,46 +0,0 @@
-package com.fuchen.travel.background.aspect;
-
-import org.aspectj.lang.JoinPoint;
-import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
-import org.aspectj.lang.annotation.Pointcut;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.stereotype.Component;
-import org.springframework.web.context.request.RequestContextHolder;
-import org.springframework.web.context.request.ServletRequestAttributes;
-
-import javax.servlet.http.HttpServletRequest;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-
-/**
- * @author 伏辰
- * @date 2022/7/15
- */
-@Component
-@Aspect
-
-public class ServiceLogAspect {
-	private static final Logger log = LoggerFactory.getLogger(ServiceLogAspect.class);
-	
-	@Pointcut("execution(* com.fuchen.travel.background.service.*.*(..))")
-	public void pointcut(){
-	
-	}
-	
-	@Before("pointcut()")
-	public void before(JoinPoint joinPoint){
-		//用户【ip】在【时间】访问了【service中的某个方法】
-		ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
-		if (attributes == null) {
-		    return;
-		}
-		HttpServletRequest request = attributes.getRequest();
-		String ip = request.getRemoteHost();
-		String format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
-		String target = joinPoint.getSignature().getDeclaringTypeName() + "." + joinPoint.getSignature().getName();
-		
-		log.info(String.format("用户[%s],在[%s]访问了[%s].",ip,format,target));
-	}
-}
@@ -0,0 +1,77 @@
+package com.fuchen.travel.background.aspect;
+
+import com.fuchen.travel.background.metrics.MetricsRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author 伏辰
+ * @date 2022/7/15
+ * service方法的耗时统计和访问日志：每次调用都记录耗时直方图和失败次数（/metrics查看），
+ * 访问日志只按比例抽样记录，日志写入由异步appender完成，不阻塞请求
+ */
+@Component
+@Aspect
+public class ServiceMetricsAspect {
+	
+	private static final Logger log = LoggerFactory.getLogger(ServiceMetricsAspect.class);
+	
+	private final MetricsRegistry metricsRegistry;
+	
+	/**
+	 * 访问日志的抽样比例，0为不记录，1为全部记录
+	 */
+	private final double sampleRate;
+	
+	public ServiceMetricsAspect(MetricsRegistry metricsRegistry,
+	                            @Value("${travel.metrics.access-log.sample-rate:0.01}") double sampleRate) {
+		this.metricsRegistry = metricsRegistry;
+		this.sampleRate = sampleRate;
+	}
+	
+	@Pointcut("execution(* com.fuchen.travel.background.service.*.*(..))")
+	public void pointcut(){
+	
+	}
+	
+	@Around("pointcut()")
+	public Object around(ProceedingJoinPoint joinPoint) throws Throwable {
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			Object result = joinPoint.proceed();
+			failed = false;
+			return result;
+		} finally {
+			long micros = (System.nanoTime() - start) / 1000;
+			MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+			metricsRegistry.get(signature.getMethod()).record(micros, failed);
+			if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate && log.isInfoEnabled()) {
+				accessLog(signature, micros, failed);
+			}
+		}
+	}
+	
+	/**
+	 * 用户【ip】访问了【service中的某个方法】，时间由日志格式输出
+	 */
+	private void accessLog(MethodSignature signature, long micros, boolean failed) {
+		ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+		if (attributes == null) {
+			return;
+		}
+		log.info("用户[{}]访问了[{}.{}]，耗时{}ms{}", attributes.getRequest().getRemoteHost(),
+				signature.getDeclaringTypeName(), signature.getName(), micros / 1000.0, failed ? "，失败" : "");
+	}
+}
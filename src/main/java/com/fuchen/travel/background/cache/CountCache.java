@@ -0,0 +1,201 @@
+package com.fuchen.travel.background.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/05
+ * 数量缓存：先查本地一级缓存，再查redis，未命中时同一个key只允许一个线程查询数据库，其余线程等待结果
+ */
+@Component
+public class CountCache {
+
+	private static final Logger log = LoggerFactory.getLogger(CountCache.class);
+
+	/**
+	 * key存在时才累加，不存在时不创建，避免用增量覆盖真实数量
+	 */
+	private static final RedisScript<Long> INCR_IF_EXISTS = new DefaultRedisScript<>(
+			"if redis.call('EXISTS', KEYS[1]) == 1 then return redis.call('INCRBY', KEYS[1], ARGV[1]) end return nil",
+			Long.class);
+
+	private final RedisTemplate<String, Object> redisTemplate;
+
+	private final TaskExecutor refreshExecutor;
+
+	private final NearCache nearCache;
+
+	/**
+	 * 正在加载中的key
+	 */
+	private final ConcurrentHashMap<String, CompletableFuture<Integer>> loading = new ConcurrentHashMap<>();
+
+	/**
+	 * 过期时间（秒）
+	 */
+	private final long ttlSeconds;
+
+	/**
+	 * 过期时间随机增加的范围（秒），避免大量key同时过期
+	 */
+	private final long jitterSeconds;
+
+	/**
+	 * 剩余时间小于该值时仍返回旧值，同时在后台刷新，为0时不启用
+	 */
+	private final long staleSeconds;
+
+	public CountCache(RedisTemplate<String, Object> redisTemplate,
+	                  @Qualifier("cacheRefreshExecutor") TaskExecutor refreshExecutor,
+	                  NearCache nearCache,
+	                  @Value("${travel.cache.count.ttl-seconds:1800}") long ttlSeconds,
+	                  @Value("${travel.cache.count.jitter-seconds:300}") long jitterSeconds,
+	                  @Value("${travel.cache.count.stale-seconds:60}") long staleSeconds) {
+		this.redisTemplate = redisTemplate;
+		this.refreshExecutor = refreshExecutor;
+		this.nearCache = nearCache;
+		this.ttlSeconds = ttlSeconds;
+		this.jitterSeconds = jitterSeconds;
+		this.staleSeconds = staleSeconds;
+	}
+
+	/**
+	 * 获取数量
+	 * @param key redis的key
+	 * @param loader 未命中时的查询方法
+	 * @return 数量
+	 */
+	public Integer get(String key, Supplier<Integer> loader) {
+		Integer local = nearCache.get(key);
+		if (local != null) {
+			return local;
+		}
+		//一次往返同时取出值和剩余时间
+		List<Object> result = redisTemplate.executePipelined(new SessionCallback<Object>() {
+			@Override
+			@SuppressWarnings("unchecked")
+			public Object execute(RedisOperations operations) throws DataAccessException {
+				operations.opsForValue().get(key);
+				operations.getExpire(key, TimeUnit.SECONDS);
+				return null;
+			}
+		});
+		Object value = result.get(0);
+		if (value == null) {
+			Integer loaded = load(key, loader);
+			nearCache.put(key, loaded);
+			return loaded;
+		}
+		//剩余时间进入陈旧窗口，先返回旧值，后台刷新；-1表示没有过期时间
+		Long expire = (Long) result.get(1);
+		if (staleSeconds > 0 && expire != null && expire >= 0 && expire <= staleSeconds) {
+			refreshAsync(key, loader);
+		}
+		Integer count = ((Number) value).intValue();
+		nearCache.put(key, count);
+		return count;
+	}
+
+	/**
+	 * 原子地增减数量，key不存在时忽略（下次读取或对账时重新计算）
+	 * @param key redis的key
+	 * @param delta 增量，负数为减少
+	 */
+	public void incr(String key, long delta) {
+		if (delta == 0) {
+			return;
+		}
+		redisTemplate.execute(INCR_IF_EXISTS, RedisSerializer.string(), new GenericToStringSerializer<>(Long.class),
+				Collections.singletonList(key), String.valueOf(delta));
+		nearCache.invalidate(key);
+	}
+
+	/**
+	 * 直接写入数量（对账任务使用）
+	 * @param key redis的key
+	 * @param value 数量
+	 */
+	public void set(String key, Integer value) {
+		redisTemplate.opsForValue().set(key, value, nextTtl(), TimeUnit.SECONDS);
+		nearCache.invalidate(key);
+	}
+
+	/**
+	 * 清除数量
+	 * @param key redis的key
+	 */
+	public void evict(String key) {
+		redisTemplate.delete(key);
+		nearCache.invalidate(key);
+	}
+
+	/**
+	 * 同一个key只有一个线程执行查询
+	 */
+	private Integer load(String key, Supplier<Integer> loader) {
+		CompletableFuture<Integer> future = new CompletableFuture<>();
+		CompletableFuture<Integer> running = loading.putIfAbsent(key, future);
+		if (running != null) {
+			try {
+				return running.join();
+			} catch (CompletionException e) {
+				throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+			}
+		}
+		try {
+			Integer value = loader.get();
+			if (value != null) {
+				redisTemplate.opsForValue().set(key, value, nextTtl(), TimeUnit.SECONDS);
+			}
+			future.complete(value);
+			return value;
+		} catch (RuntimeException e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			loading.remove(key, future);
+		}
+	}
+
+	private void refreshAsync(String key, Supplier<Integer> loader) {
+		if (loading.containsKey(key)) {
+			return;
+		}
+		refreshExecutor.execute(() -> {
+			try {
+				load(key, loader);
+			} catch (RuntimeException e) {
+				log.warn("刷新缓存失败：" + key + "，" + e.getMessage());
+			}
+		});
+	}
+
+	private long nextTtl() {
+		if (jitterSeconds <= 0) {
+			return ttlSeconds;
+		}
+		return ttlSeconds + ThreadLocalRandom.current().nextLong(jitterSeconds + 1);
+	}
+}
@@ -0,0 +1,91 @@
+package com.fuchen.travel.background.cache;
+
+import com.fuchen.travel.background.mapper.BathroomTypeMapper;
+import com.fuchen.travel.background.mapper.DiscussPostMapper;
+import com.fuchen.travel.background.mapper.GoodsMapper;
+import com.fuchen.travel.background.mapper.ScenicMapper;
+import com.fuchen.travel.background.mapper.UserMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/06
+ * 数量对账任务：写操作只对redis中的数量做增减，定时用数据库的真实数量覆盖，修正并发或失败造成的偏差
+ */
+@Component
+public class CountReconcileTask {
+
+	private static final Logger log = LoggerFactory.getLogger(CountReconcileTask.class);
+
+	/**
+	 * 多个节点同时部署时只允许一个节点对账
+	 */
+	private static final String LOCK_KEY = "countReconcileLock";
+
+	private final RedisTemplate<String, Object> redisTemplate;
+
+	private final CountCache countCache;
+
+	private final RowCounter rowCounter;
+
+	/**
+	 * 对账锁的持有时间（毫秒），与对账间隔一致
+	 */
+	private final long lockMillis;
+
+	/**
+	 * redis的key与对应的数据库查询
+	 */
+	private final Map<String, Supplier<Integer>> loaders = new LinkedHashMap<>();
+
+	public CountReconcileTask(RedisTemplate<String, Object> redisTemplate, CountCache countCache, RowCounter rowCounter,
+	                          ScenicMapper scenicMapper, UserMapper userMapper, DiscussPostMapper discussPostMapper,
+	                          BathroomTypeMapper bathroomTypeMapper, GoodsMapper goodsMapper,
+	                          @Value("${travel.cache.count.reconcile-millis:600000}") long lockMillis) {
+		this.redisTemplate = redisTemplate;
+		this.countCache = countCache;
+		this.rowCounter = rowCounter;
+		this.lockMillis = lockMillis;
+		loaders.put("scenicCount", scenicMapper::selectScenicCount);
+		loaders.put("scenicRecommendCount", scenicMapper::selectScenicRecommendCount);
+		loaders.put("userCount", userMapper::selectUserCount);
+		loaders.put("userCountAll", userMapper::selectUserCountAll);
+		loaders.put("userBanCount", userMapper::selectBanUserCount);
+		loaders.put("postCount", discussPostMapper::selectPostCount);
+		loaders.put("bathroomTypeCount", bathroomTypeMapper::selectScenicCount);
+		//订单由其他应用写入，没有增量更新，只能靠对账修正
+		loaders.put("orderCount", goodsMapper::getOrderCount);
+	}
+
+	@Scheduled(fixedDelayString = "${travel.cache.count.reconcile-millis:600000}")
+	public void reconcile() {
+		Boolean locked = redisTemplate.opsForValue().setIfAbsent(LOCK_KEY, 1, lockMillis, TimeUnit.MILLISECONDS);
+		if (!Boolean.TRUE.equals(locked)) {
+			return;
+		}
+		for (Map.Entry<String, Supplier<Integer>> entry : loaders.entrySet()) {
+			//只有缓存的精确数量需要对账，估算的数量不扫描表
+			if (rowCounter.getStrategy(entry.getKey()) != CountStrategy.CACHED) {
+				continue;
+			}
+			try {
+				Integer value = entry.getValue().get();
+				if (value != null) {
+					countCache.set(entry.getKey(), value);
+				}
+			} catch (RuntimeException e) {
+				log.warn("数量对账失败：" + entry.getKey() + "，" + e.getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package com.fuchen.travel.background.cache;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/17
+ * 数量的统计方式
+ */
+public enum CountStrategy {
+
+	/**
+	 * 每次都执行COUNT(*)
+	 */
+	EXACT("exact"),
+
+	/**
+	 * COUNT(*)的结果放入缓存，写操作时增量更新
+	 */
+	CACHED("cached"),
+
+	/**
+	 * 读取information_schema中的估算行数，不扫描表，页面显示为"~N"
+	 */
+	ESTIMATED("estimated");
+
+	private final String value;
+
+	CountStrategy(String value) {
+		this.value = value;
+	}
+
+	public String getValue() {
+		return value;
+	}
+
+	/**
+	 * 根据配置值获取统计方式
+	 * @param value 配置值
+	 * @return 未知的配置值返回null
+	 */
+	public static CountStrategy of(String value) {
+		for (CountStrategy strategy : values()) {
+			if (strategy.value.equalsIgnoreCase(value)) {
+				return strategy;
+			}
+		}
+		return null;
+	}
+}
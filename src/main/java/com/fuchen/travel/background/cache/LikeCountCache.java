@@ -0,0 +1,20 @@
+package com.fuchen.travel.background.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/12
+ * 赞数量的本地缓存，列表翻页时不必每次访问redis
+ * 与NearCache分开，数量很多的帖子赞数量不会把登录用户等热点数据挤出本地缓存
+ * 赞由其他应用写入，没有失效通知，只靠有效时间更新
+ */
+@Component
+public class LikeCountCache extends LocalCache {
+
+	public LikeCountCache(@Value("${travel.cache.like.max-size:4096}") int maxSize,
+	                      @Value("${travel.cache.like.ttl-seconds:10}") long ttlSeconds) {
+		super(maxSize, ttlSeconds * 1000);
+	}
+}
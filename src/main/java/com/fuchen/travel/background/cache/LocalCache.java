@@ -0,0 +1,114 @@
+package com.fuchen.travel.background.cache;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/08
+ * 进程内的有界缓存：超过最大数量时淘汰最久未使用的数据，每条数据在有效时间后过期
+ * 不同用途的数据各用一个实例，互相不会挤占
+ */
+public class LocalCache {
+
+	/**
+	 * 有效时间（毫秒）
+	 */
+	private final long ttlMillis;
+
+	private final Map<String, Entry> cache;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	public LocalCache(int maxSize, long ttlMillis) {
+		this.ttlMillis = ttlMillis;
+		//按访问顺序淘汰最久未使用的数据
+		this.cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * 获取缓存
+	 * @param key 缓存的key
+	 * @return 未命中或已过期返回null
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(String key) {
+		Object value = null;
+		synchronized (cache) {
+			Entry entry = cache.get(key);
+			if (entry != null) {
+				if (entry.expireAt < System.currentTimeMillis()) {
+					cache.remove(key);
+				} else {
+					value = entry.value;
+				}
+			}
+		}
+		if (value == null) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return (T) value;
+	}
+
+	/**
+	 * 放入缓存，null不缓存
+	 * @param key 缓存的key
+	 * @param value 数据
+	 */
+	public void put(String key, Object value) {
+		if (value == null) {
+			return;
+		}
+		synchronized (cache) {
+			cache.put(key, new Entry(value, System.currentTimeMillis() + ttlMillis));
+		}
+	}
+
+	/**
+	 * 删除缓存
+	 * @param key 缓存的key
+	 */
+	public void remove(String key) {
+		synchronized (cache) {
+			cache.remove(key);
+		}
+	}
+
+	/**
+	 * 命中统计
+	 * @return 命中次数、未命中次数、命中率、当前数量
+	 */
+	public Map<String, Object> getStats() {
+		long hit = hits.sum();
+		long miss = misses.sum();
+		Map<String, Object> map = new HashMap<>();
+		map.put("hits", hit);
+		map.put("misses", miss);
+		map.put("hitRate", hit + miss == 0 ? 0 : (double) hit / (hit + miss));
+		synchronized (cache) {
+			map.put("size", cache.size());
+		}
+		return map;
+	}
+
+	private static class Entry {
+		private final Object value;
+		private final long expireAt;
+
+		private Entry(Object value, long expireAt) {
+			this.value = value;
+			this.expireAt = expireAt;
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.fuchen.travel.background.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/08
+ * 进程内一级缓存，放在redis前面，热点数据直接从堆内存读取
+ * 数据变更时通过redis发布订阅通知其他节点删除本地副本
+ */
+@Component
+public class NearCache implements MessageListener {
+
+	/**
+	 * 失效通知的频道
+	 */
+	public static final String CHANNEL = "nearCache:invalidate";
+
+	private final RedisTemplate<String, Object> redisTemplate;
+
+	/**
+	 * 本地副本，有效时间内收不到失效通知时最多陈旧这么久
+	 */
+	private final LocalCache cache;
+
+	public NearCache(RedisTemplate<String, Object> redisTemplate,
+	                 @Value("${travel.cache.near.max-size:512}") int maxSize,
+	                 @Value("${travel.cache.near.ttl-seconds:10}") long ttlSeconds) {
+		this.redisTemplate = redisTemplate;
+		this.cache = new LocalCache(maxSize, ttlSeconds * 1000);
+	}
+
+	/**
+	 * 获取本地缓存
+	 * @param key 缓存的key
+	 * @return 未命中或已过期返回null
+	 */
+	public <T> T get(String key) {
+		return cache.get(key);
+	}
+
+	/**
+	 * 获取本地缓存，未命中时调用loader并放入本地缓存
+	 * @param key 缓存的key
+	 * @param loader 未命中时的查询方法（通常是查询redis或数据库）
+	 * @return 数据
+	 */
+	public <T> T get(String key, Supplier<T> loader) {
+		T value = get(key);
+		if (value == null) {
+			value = loader.get();
+			put(key, value);
+		}
+		return value;
+	}
+
+	/**
+	 * 放入本地缓存，null不缓存
+	 * @param key 缓存的key
+	 * @param value 数据
+	 */
+	public void put(String key, Object value) {
+		cache.put(key, value);
+	}
+
+	/**
+	 * 删除本节点的副本并通知其他节点删除
+	 * @param key 缓存的key
+	 */
+	public void invalidate(String key) {
+		invalidateLocal(key);
+		redisTemplate.convertAndSend(CHANNEL, key);
+	}
+
+	/**
+	 * 只删除本节点的副本
+	 * @param key 缓存的key
+	 */
+	public void invalidateLocal(String key) {
+		cache.remove(key);
+	}
+
+	/**
+	 * 收到其他节点（也包括自己）发出的失效通知
+	 */
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		Object key = redisTemplate.getValueSerializer().deserialize(message.getBody());
+		if (key != null) {
+			invalidateLocal(key.toString());
+		}
+	}
+
+	/**
+	 * 命中统计
+	 * @return 命中次数、未命中次数、命中率、当前数量
+	 */
+	public Map<String, Object> getStats() {
+		return cache.getStats();
+	}
+}
@@ -0,0 +1,92 @@
+package com.fuchen.travel.background.cache;
+
+import com.fuchen.travel.background.mapper.TableStatMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/17
+ * 按配置的统计方式获取数量，大表可以改用估算值，避免InnoDB的COUNT(*)全表扫描
+ * 配置：travel.count.strategy.{key}=exact|cached|estimated，未配置的使用travel.count.strategy.default
+ */
+@Component
+public class RowCounter {
+
+	private static final String PREFIX = "travel.count.strategy.";
+
+	/**
+	 * 估算值在缓存中的key后缀，与精确数量分开保存，增量更新不会作用到估算值上
+	 */
+	private static final String ESTIMATED_SUFFIX = ":estimated";
+
+	private final CountCache countCache;
+
+	private final TableStatMapper tableStatMapper;
+
+	private final Environment environment;
+
+	private final CountStrategy defaultStrategy;
+
+	private final Map<String, CountStrategy> strategies = new ConcurrentHashMap<>();
+
+	public RowCounter(CountCache countCache, TableStatMapper tableStatMapper, Environment environment,
+	                  @Value("${travel.count.strategy.default:cached}") String defaultStrategy) {
+		this.countCache = countCache;
+		this.tableStatMapper = tableStatMapper;
+		this.environment = environment;
+		CountStrategy strategy = CountStrategy.of(defaultStrategy);
+		if (strategy == null) {
+			throw new IllegalArgumentException("未知的数量统计方式：" + defaultStrategy);
+		}
+		this.defaultStrategy = strategy;
+	}
+
+	/**
+	 * 获取数量
+	 * @param key 数量的key，同时也是缓存的key
+	 * @param table 估算时读取统计信息的表
+	 * @param loader 精确查询的方法
+	 * @return 数量
+	 */
+	public Integer count(String key, String table, Supplier<Integer> loader) {
+		switch (getStrategy(key)) {
+			case EXACT:
+				return loader.get();
+			case ESTIMATED:
+				return countCache.get(key + ESTIMATED_SUFFIX, () -> {
+					Long rows = tableStatMapper.selectTableRows(table);
+					//没有统计信息时退回精确查询
+					return rows == null ? loader.get() : (int) Math.min(rows, Integer.MAX_VALUE);
+				});
+			default:
+				return countCache.get(key, loader);
+		}
+	}
+
+	/**
+	 * 数量是否为估算值
+	 * @param key 数量的key
+	 * @return
+	 */
+	public boolean isEstimated(String key) {
+		return getStrategy(key) == CountStrategy.ESTIMATED;
+	}
+
+	/**
+	 * 获取key配置的统计方式
+	 * @param key 数量的key
+	 * @return
+	 */
+	public CountStrategy getStrategy(String key) {
+		return strategies.computeIfAbsent(key, k -> {
+			CountStrategy strategy = CountStrategy.of(environment.getProperty(PREFIX + k, ""));
+			return strategy == null ? defaultStrategy : strategy;
+		});
+	}
+}
@@ -1,9 +1,13 @@
 package com.fuchen.travel.background.config;
 
+import com.fuchen.travel.background.cache.NearCache;
+import com.fuchen.travel.background.search.SearchIndexer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.RedisSerializer;
 
 /**
@@ -31,4 +35,17 @@ public class RedisConfig {
 		template.afterPropertiesSet();
 		return template;
 	}
+	
+	/**
+	 * 订阅一级缓存的失效通知和本地搜索索引的变更通知
+	 */
+	@Bean
+	public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory factory, NearCache nearCache,
+	                                                                   SearchIndexer searchIndexer) {
+		RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+		container.setConnectionFactory(factory);
+		container.addMessageListener(nearCache, new ChannelTopic(NearCache.CHANNEL));
+		container.addMessageListener(searchIndexer, new ChannelTopic(SearchIndexer.CHANNEL));
+		return container;
+	}
 }
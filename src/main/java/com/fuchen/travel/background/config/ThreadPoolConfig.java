@@ -1,8 +1,13 @@
 package com.fuchen.travel.background.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * @author 伏辰
@@ -13,4 +18,114 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 @EnableAsync
 public class ThreadPoolConfig {
 
+	/**
+	 * 缓存后台刷新线程池，队列满时丢弃（旧值仍可使用，下次访问会再次触发刷新）
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor cacheRefreshExecutor() {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(1);
+		executor.setMaxPoolSize(2);
+		executor.setQueueCapacity(64);
+		executor.setThreadNamePrefix("cache-refresh-");
+		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+		return executor;
+	}
+	
+	/**
+	 * 首页统计并行查询线程池，队列满时拒绝，由IndexController按超时处理使用上次的统计，不在请求线程中查询
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor dashboardExecutor(@Value("${travel.dashboard.pool-size:4}") int poolSize) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(poolSize);
+		executor.setMaxPoolSize(poolSize);
+		executor.setQueueCapacity(100);
+		executor.setThreadNamePrefix("dashboard-");
+		return executor;
+	}
+	
+	/**
+	 * 搜索索引写入线程池，单线程保证同一条数据的写入顺序，队列满时由调用线程写入，不丢失更新
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor searchIndexExecutor() {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(1);
+		executor.setMaxPoolSize(1);
+		executor.setQueueCapacity(10000);
+		executor.setThreadNamePrefix("search-index-");
+		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+		return executor;
+	}
+	
+	/**
+	 * 对象存储上传线程池，队列满时拒绝（由UploadQueue返回错误），不在请求线程中上传
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor uploadExecutor(@Value("${travel.upload.pool-size:4}") int poolSize) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(poolSize);
+		executor.setMaxPoolSize(poolSize);
+		executor.setQueueCapacity(200);
+		executor.setThreadNamePrefix("upload-");
+		//关闭时等待已提交的上传完成
+		executor.setWaitForTasksToCompleteOnShutdown(true);
+		executor.setAwaitTerminationSeconds(60);
+		return executor;
+	}
+	
+	/**
+	 * 上传后预先生成缩略图的线程池，与上传线程池分开，不占用上传的排队位置
+	 * 队列满时拒绝，由ThumbnailService放弃预生成（第一次访问时再生成）
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor thumbnailExecutor(@Value("${travel.thumb.pool-size:1}") int poolSize) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(poolSize);
+		executor.setMaxPoolSize(poolSize);
+		executor.setQueueCapacity(32);
+		executor.setThreadNamePrefix("thumbnail-");
+		return executor;
+	}
+	
+	/**
+	 * 分片上传线程池，各个分片并行上传，队列满时由调用线程上传
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor uploadPartExecutor(@Value("${travel.upload.multipart.pool-size:8}") int poolSize) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(poolSize);
+		executor.setMaxPoolSize(poolSize);
+		executor.setQueueCapacity(256);
+		executor.setThreadNamePrefix("upload-part-");
+		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+		return executor;
+	}
+	
+	/**
+	 * 邮件发送线程池，每个线程循环从redis队列中取出邮件发送
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor mailExecutor(@Value("${travel.mail.workers:2}") int workers) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(workers);
+		executor.setMaxPoolSize(workers);
+		executor.setQueueCapacity(0);
+		executor.setThreadNamePrefix("mail-");
+		return executor;
+	}
+	
+	/**
+	 * 群发邮件线程池，每次群发占用一个线程读取收件人并放入发送队列
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor campaignExecutor(@Value("${travel.mail.campaign.pool-size:2}") int poolSize) {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(poolSize);
+		executor.setMaxPoolSize(poolSize);
+		executor.setQueueCapacity(20);
+		executor.setThreadNamePrefix("campaign-");
+		return executor;
+	}
 }
@@ -0,0 +1,33 @@
+package com.fuchen.travel.background.config;
+
+import com.fuchen.travel.background.controller.interceptor.AdminRequiredInterceptor;
+import com.fuchen.travel.background.controller.interceptor.LoginTicketInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/13
+ * web配置类
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+	@Autowired
+	private LoginTicketInterceptor loginTicketInterceptor;
+
+	@Autowired
+	private AdminRequiredInterceptor adminRequiredInterceptor;
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		//静态资源不需要登录用户
+		registry.addInterceptor(loginTicketInterceptor)
+				.excludePathPatterns("/css/**", "/fonts/**", "/images/**", "/js/**", "/scss/**", "/vendors/**");
+		//群发邮件、邮件队列和运行指标（慢sql中带有参数值）只允许管理员访问，必须在登录凭证拦截器之后注册
+		registry.addInterceptor(adminRequiredInterceptor)
+				.addPathPatterns("/sendCampaign", "/campaign/progress", "/mail/stats", "/metrics", "/metrics/**");
+	}
+}
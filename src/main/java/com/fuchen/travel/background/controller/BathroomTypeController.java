@@ -2,6 +2,7 @@ package com.fuchen.travel.background.controller;
 
 import com.fuchen.travel.background.entity.BathroomType;
 import com.fuchen.travel.background.entity.Page;
+import com.fuchen.travel.background.entity.SearchPage;
 import com.fuchen.travel.background.service.BathroomTypeService;
 import com.fuchen.travel.background.service.UserService;
 import com.fuchen.travel.background.util.TravelUtil;
@@ -115,17 +116,15 @@ public class BathroomTypeController {
             return "/pages/bathroomType-control";
         }
 
-        //获取用户数量
-        Integer bathroomTypeCount = bathroomTypeService.getBathroomTypeCountSearch(keyword);
-
         //设置分页数据
         page.setLimit(5);
         page.setPath("/bathroomType/search?keyword=" + keyword);
-        page.setRows(bathroomTypeCount);
-        //分页查询用户集合
-        List<BathroomType> bathroomTypes = bathroomTypeService.getBathroomTypeSearch(keyword, page.getOffset(), page.getLimit());
+        //一次查询同时得到当前页数据和数量
+        SearchPage<BathroomType> searchPage = bathroomTypeService.getBathroomTypeSearchPage(keyword, page.getOffset(), page.getLimit());
+        page.setRows(searchPage.getTotal());
+        List<BathroomType> bathroomTypes = searchPage.getRows();
         //创建景点集合存放景点数据
-        List<Map<String, BathroomType>> bathroomTypeList = new ArrayList<>(bathroomTypeCount);
+        List<Map<String, BathroomType>> bathroomTypeList = new ArrayList<>(bathroomTypes.size());
         //遍历景点集合，将其通过map放入list中
         for (int i = 0; i < bathroomTypes.size(); i++) {
             Map<String, BathroomType> map = new HashMap<>();
@@ -1,11 +1,15 @@
 package com.fuchen.travel.background.controller;
 
+import com.fuchen.travel.background.cache.RowCounter;
 import com.fuchen.travel.background.entity.DiscussPost;
 import com.fuchen.travel.background.entity.Page;
+import com.fuchen.travel.background.entity.SearchPage;
 import com.fuchen.travel.background.entity.User;
 import com.fuchen.travel.background.service.DiscussPostService;
 import com.fuchen.travel.background.service.LikeService;
 import com.fuchen.travel.background.service.UserService;
+import com.fuchen.travel.background.util.IntLongMap;
+import com.fuchen.travel.background.util.PostListUtil;
 import com.fuchen.travel.background.util.TravelConstant;
 
 import org.springframework.stereotype.Controller;
@@ -14,9 +18,10 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author  伏辰
@@ -32,10 +37,14 @@ public class DiscussPostController implements TravelConstant {
 
     private final LikeService likeService;
 
-    public DiscussPostController(DiscussPostService discussPostService, UserService userService, LikeService likeService) {
+    private final RowCounter rowCounter;
+
+    public DiscussPostController(DiscussPostService discussPostService, UserService userService, LikeService likeService,
+                                 RowCounter rowCounter) {
         this.discussPostService = discussPostService;
         this.userService = userService;
         this.likeService = likeService;
+        this.rowCounter = rowCounter;
     }
 
 
@@ -55,25 +64,16 @@ public class DiscussPostController implements TravelConstant {
         page.setLimit(10);
         page.setPath("/discuss-post-control");
         page.setRows(postCount);
+        //管理员帖子和撤销帖子的数量总是精确查询
+        page.setEstimated(!"admin".equals(keyword) && !"cancel".equals(keyword) && rowCounter.isEstimated("postCount"));
         //keyword不为空，则说明有条件获取数据，应重新设置分页路径
         if (keyword != null){
             page.setPath("/discuss-post-control?keyword=" + keyword);
         }
         //分页获取帖子内容
-        List<DiscussPost> discussPosts = discussPostService.getPost(keyword, page.getOffset(), page.getLimit());
+        List<DiscussPost> discussPosts = discussPostService.getPost(keyword, page);
         //创建list集合存放map集合，将贴子的数据放入map集合中
-        List<Map<String, Object>> postList = new ArrayList<>();
-        if(discussPosts.size() > 0) {
-            for (DiscussPost discussPost : discussPosts) {
-                Map<String, Object> map = new HashMap<>(4);
-                map.put("post", discussPost);
-                User user = userService.getUserById(Integer.parseInt(discussPost.getUserId()));
-                map.put("user",user);
-                long likeCount = likeService.findEntityLikeCount(ENTITY_TYPE_POST, discussPost.getId());
-                map.put("likeCount", likeCount);
-                postList.add(map);
-            }
-        }
+        List<Map<String, Object>> postList = getPostList(discussPosts);
         //添加到模板渲染
         model.addAttribute("postList", postList);
 
@@ -104,27 +104,15 @@ public class DiscussPostController implements TravelConstant {
      */
     @GetMapping("/discuss-post-control/search")
     public String postSearch(String keyword, Model model, Page page) {
-        //获取帖子数量
-        Integer postCount = discussPostService.getPostCountByKeyword(keyword);
         //设置分页数据
         page.setLimit(10);
         page.setPath("/discuss-post-control/search?keyword=" + keyword);
-        page.setRows(postCount);
-        //分页获取帖子内容
-        List<DiscussPost> discussPosts = discussPostService.getPost(keyword, page.getOffset(), page.getLimit());
+        //分页获取帖子内容，同时得到帖子数量
+        SearchPage<DiscussPost> searchPage = discussPostService.getPostSearchPage(keyword, page.getOffset(), page.getLimit());
+        page.setRows(searchPage.getTotal());
+        List<DiscussPost> discussPosts = searchPage.getRows();
         //创建list集合存放map集合，将贴子的数据放入map集合中
-        List<Map<String, Object>> postList = new ArrayList<>();
-        if(discussPosts.size() > 0) {
-            for (DiscussPost discussPost : discussPosts) {
-                Map<String, Object> map = new HashMap<>(4);
-                map.put("post", discussPost);
-                User user = userService.getUserById(Integer.parseInt(discussPost.getUserId()));
-                map.put("user",user);
-                long likeCount = likeService.findEntityLikeCount(ENTITY_TYPE_POST, discussPost.getId());
-                map.put("likeCount", likeCount);
-                postList.add(map);
-            }
-        }
+        List<Map<String, Object>> postList = getPostList(discussPosts);
         //添加到模板渲染
         model.addAttribute("postList", postList);
         //返回帖子管理页面
@@ -146,4 +134,24 @@ public class DiscussPostController implements TravelConstant {
     }
 
 
+
+    /**
+     * 将帖子与作者、赞数量组装在一起，作者和赞数量各批量查询一次
+     * @param discussPosts 帖子集合
+     * @return
+     */
+    private List<Map<String, Object>> getPostList(List<DiscussPost> discussPosts) {
+        if (discussPosts.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<Integer> userIds = new HashSet<>();
+        List<Integer> postIds = new ArrayList<>();
+        for (DiscussPost discussPost : discussPosts) {
+            userIds.add(Integer.parseInt(discussPost.getUserId()));
+            postIds.add(discussPost.getId());
+        }
+        Map<Integer, User> users = userService.getUsersByIds(userIds);
+        IntLongMap likeCounts = likeService.findEntityLikeCounts(ENTITY_TYPE_POST, postIds);
+        return PostListUtil.wrap(discussPosts, users, likeCounts);
+    }
 }
@@ -14,6 +14,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * @author Fu chen
@@ -43,15 +44,18 @@ public class FeedbackController {
         page.setRows(feedbackService.getAllCount());
         page.setPath("/feedback");
         //获取意见反馈信息
-        List<Feedback> feedbacks = feedbackService.findAllFeedback(page.getOffset(), page.getLimit());
+        List<Feedback> feedbacks = feedbackService.findAllFeedback(page);
         //创建一个响应集合
         List<Map<String, Object>> feedbackList = new ArrayList<>();
+        //一次查询出反馈集合中全部的用户信息
+        Map<Integer, User> users = userService.getUsersByIds(
+                feedbacks.stream().map(Feedback::getUserId).collect(Collectors.toSet()));
         //遍历反馈信息集合
         feedbacks.stream().forEach(item -> {
             //创建一个map集合用于保存数据
             Map<String, Object> map = new HashMap<>();
             //根据反馈集合中的userId获取用户信息
-            User user = userService.getUserById(item.getUserId());
+            User user = users.get(item.getUserId());
             //保存到map集合中
             map.put("feedback", item);
             map.put("user", user);
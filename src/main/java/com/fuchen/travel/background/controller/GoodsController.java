@@ -1,8 +1,10 @@
 package com.fuchen.travel.background.controller;
 
+import com.fuchen.travel.background.cache.RowCounter;
 import com.fuchen.travel.background.entity.Goods;
 import com.fuchen.travel.background.entity.GoodsOrder;
 import com.fuchen.travel.background.entity.Page;
+import com.fuchen.travel.background.entity.SearchPage;
 
 import com.fuchen.travel.background.service.GoodsService;
 
@@ -41,6 +43,9 @@ public class GoodsController {
     @Resource
     private UserService userService;
 
+    @Resource
+    private RowCounter rowCounter;
+
     @Value("${scenic.path.image}")
     private String goodsImage;
 
@@ -53,7 +58,7 @@ public class GoodsController {
         page.setPath("/goods");
         page.setRows(goodsCount);
 
-        List<Goods> goods = goodsService.getGoods(page.getOffset(), page.getLimit());
+        List<Goods> goods = goodsService.getGoods(page);
         //用户存放景点数据
         List<Map<String, Goods>> goodsList = new ArrayList<>(goodsCount);
         //遍历景点集合，将其通过map放入list中
@@ -111,17 +116,15 @@ public class GoodsController {
             return "/pages/scenic-control";
         }
 
-        //获取用户数量
-        Integer goodsCount = goodsService.getGoodsCountSearch(keyword);
-
         //设置分页数据
         page.setLimit(5);
         page.setPath("/goods/search?keyword=" + keyword);
-        page.setRows(goodsCount);
-        //分页查询用户集合
-        List<Goods> good = goodsService.getScenicSearch(keyword, page.getOffset(), page.getLimit());
+        //一次查询同时得到当前页数据和数量
+        SearchPage<Goods> searchPage = goodsService.getGoodsSearchPage(keyword, page.getOffset(), page.getLimit());
+        page.setRows(searchPage.getTotal());
+        List<Goods> good = searchPage.getRows();
         //创建景点集合存放景点数据
-        List<Map<String, Goods>> goodsList = new ArrayList<>(goodsCount);
+        List<Map<String, Goods>> goodsList = new ArrayList<>(good.size());
         //遍历景点集合，将其通过map放入list中
         for (int i = 0; i < good.size(); i++) {
             Map<String, Goods> map = new HashMap<>();
@@ -143,6 +146,7 @@ public class GoodsController {
         page.setLimit(5);
         page.setPath("/goods/order");
         page.setRows(orderCount);
+        page.setEstimated(rowCounter.isEstimated("orderCount"));
 
         List<GoodsOrder> goodsOrder = goodsService.getGoodsOrder(page.getOffset(), page.getLimit());
         //用户存放景点数据
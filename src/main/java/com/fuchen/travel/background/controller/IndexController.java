@@ -1,19 +1,33 @@
 package com.fuchen.travel.background.controller;
 
+import com.fuchen.travel.background.cache.NearCache;
+import com.fuchen.travel.background.entity.DashboardSnapshot;
 import com.fuchen.travel.background.entity.Preserve;
+import com.fuchen.travel.background.entity.User;
+import com.fuchen.travel.background.service.DashboardService;
 import com.fuchen.travel.background.service.DiscussPostService;
 import com.fuchen.travel.background.service.PreserveService;
 import com.fuchen.travel.background.service.UserService;
 import com.fuchen.travel.background.util.HostHolder;
+import com.fuchen.travel.background.util.TravelUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.CookieValue;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 /**
  * @Author 伏辰
@@ -36,6 +50,23 @@ public class IndexController {
     @Autowired
     private HostHolder hostHolder;
 
+    @Autowired
+    private NearCache nearCache;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    /**
+     * 没有快照时并行查询统计数据的总等待时间（毫秒）
+     */
+    @Value("${travel.dashboard.deadline-millis:1000}")
+    private long deadlineMillis;
+
+    /**
+     * 上一次并行查询得到的统计，查询超时或线程池已满时对应的统计项使用这里的旧值
+     */
+    private volatile DashboardSnapshot lastSnapshot;
+
     /**
      * 访问/index前往index页面
      * @param model 模板
@@ -56,18 +87,140 @@ public class IndexController {
         model.addAttribute("recommendScenicList", recommendScenicList);
 
         model.addAttribute("recommendScenicList", recommendScenicList);
+        //登录凭证已失效时页面无法显示用户信息，重新登录
+        User loginUser = userService.getLoginUser(request);
+        if (loginUser == null) {
+            return "redirect:/login";
+        }
+        //统计数据从预先计算的快照中一次取出
+        DashboardSnapshot snapshot = getSnapshot(loginUser);
         //将今日时期，用户数量，景点数量，帖子数量，封禁用户放入model中
         model.addAttribute("nowDate", new Date());
-        model.addAttribute("userCount", userService.getUserCount(request));
-        model.addAttribute("scenicCount", preserveService.getScenicCount());
-        model.addAttribute("discussPostCount", discussPostService.getPostCount(null));
-        model.addAttribute("banUserCount", userService.getBanUserCount());
+        //type为1的管理员只统计普通用户，其余统计全部用户
+        model.addAttribute("userCount", getUserCount(snapshot, loginUser));
+        model.addAttribute("scenicCount", snapshot.getScenicCount());
+        model.addAttribute("discussPostCount", snapshot.getDiscussPostCount());
+        model.addAttribute("banUserCount", snapshot.getBanUserCount());
 
-        model.addAttribute("loginUser", userService.getLoginUser(request));
+        model.addAttribute("loginUser", loginUser);
 
         //推荐景点数量
-        model.addAttribute("scenicRecommendCount", preserveService.getScenicRecommendCount());
+        model.addAttribute("scenicRecommendCount", snapshot.getScenicRecommendCount());
 
         return "/index";
     }
+
+    /**
+     * 查看本地一级缓存的命中情况
+     * @return json数据
+     */
+    @ResponseBody
+    @GetMapping("/cache/stats")
+    public String cacheStats() {
+        return TravelUtil.getJsonString(0, null, nearCache.getStats());
+    }
+
+    /**
+     * 首页统计快照，供前端轮询，用户数量只返回当前用户可以看到的一项
+     * @return json数据
+     */
+    @ResponseBody
+    @GetMapping("/dashboard/snapshot")
+    public String dashboardSnapshot(HttpServletRequest request, HttpServletResponse response) {
+        User loginUser = userService.getLoginUser(request);
+        if (loginUser == null) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            return TravelUtil.getJsonString(HttpServletResponse.SC_UNAUTHORIZED, "请先登录!");
+        }
+        DashboardSnapshot snapshot = getSnapshot(loginUser);
+        Map<String, Object> map = snapshot.toMap();
+        map.remove("userCountAll");
+        map.put("userCount", getUserCount(snapshot, loginUser));
+        return TravelUtil.getJsonString(0, null, map);
+    }
+
+    /**
+     * 获取首页统计快照，快照不存在时并行查询各项统计
+     * @param loginUser 当前登录的用户，可以为null
+     * @return
+     */
+    private DashboardSnapshot getSnapshot(User loginUser) {
+        DashboardSnapshot snapshot = dashboardService.getSnapshot();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        //各项查询互不依赖，同时提交到线程池，耗时取决于最慢的一项
+        CompletableFuture<Integer> userCount = submit(() -> userService.getUserCountAsync(loginUser));
+        CompletableFuture<Integer> scenicCount = submit(preserveService::getScenicCountAsync);
+        CompletableFuture<Integer> postCount = submit(() -> discussPostService.getPostCountAsync(null));
+        CompletableFuture<Integer> banUserCount = submit(userService::getBanUserCountAsync);
+        CompletableFuture<Integer> recommendCount = submit(preserveService::getScenicRecommendCountAsync);
+        try {
+            CompletableFuture.allOf(userCount, scenicCount, postCount, banUserCount, recommendCount)
+                    .get(deadlineMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            //超时的统计项不再等待，使用上次的值
+            log.warn("首页统计查询超时：" + deadlineMillis + "ms");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TaskRejectedException) {
+                log.warn("首页统计线程池已满，使用上次的统计");
+            } else {
+                log.warn("首页统计查询失败：" + e.getCause().getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        DashboardSnapshot last = lastSnapshot == null ? new DashboardSnapshot() : lastSnapshot;
+        snapshot = new DashboardSnapshot();
+        //type为1的管理员只统计普通用户，其余统计全部用户
+        if (isAdmin(loginUser)) {
+            snapshot.setUserCount(getNow(userCount, last.getUserCount()));
+            snapshot.setUserCountAll(last.getUserCountAll());
+        } else {
+            snapshot.setUserCount(last.getUserCount());
+            snapshot.setUserCountAll(getNow(userCount, last.getUserCountAll()));
+        }
+        snapshot.setScenicCount(getNow(scenicCount, last.getScenicCount()));
+        snapshot.setDiscussPostCount(getNow(postCount, last.getDiscussPostCount()));
+        snapshot.setBanUserCount(getNow(banUserCount, last.getBanUserCount()));
+        snapshot.setScenicRecommendCount(getNow(recommendCount, last.getScenicRecommendCount()));
+        snapshot.setUpdateTime(new Date());
+        lastSnapshot = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * 提交统计查询，线程池已满时不在请求线程中查询，与超时一样使用上次的值
+     */
+    private CompletableFuture<Integer> submit(Supplier<CompletableFuture<Integer>> query) {
+        try {
+            return query.get();
+        } catch (TaskRejectedException e) {
+            CompletableFuture<Integer> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * 当前用户可以看到的用户数量：管理员为普通用户数量，其余为全部用户数量
+     */
+    private Integer getUserCount(DashboardSnapshot snapshot, User loginUser) {
+        return isAdmin(loginUser) ? snapshot.getUserCount() : snapshot.getUserCountAll();
+    }
+
+    private boolean isAdmin(User loginUser) {
+        return loginUser != null && loginUser.getType() != null && loginUser.getType() == 1;
+    }
+
+    /**
+     * 取出已完成的结果，未完成或失败时返回上次的值（没有时为null，页面显示为空）
+     */
+    private Integer getNow(CompletableFuture<Integer> future, Integer last) {
+        if (!future.isDone() || future.isCompletedExceptionally()) {
+            return last;
+        }
+        return future.join();
+    }
 }
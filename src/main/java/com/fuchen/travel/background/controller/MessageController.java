@@ -3,6 +3,7 @@ package com.fuchen.travel.background.controller;
 import com.fuchen.travel.background.entity.Message;
 import com.fuchen.travel.background.entity.Page;
 import com.fuchen.travel.background.entity.User;
+import com.fuchen.travel.background.mail.MailQueue;
 import com.fuchen.travel.background.service.MessageService;
 import com.fuchen.travel.background.service.UserService;
 import com.fuchen.travel.background.util.HostHolder;
@@ -19,6 +20,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * @author 伏辰
@@ -37,6 +39,9 @@ public class MessageController {
     @Resource
     private HostHolder hostHolder;
 
+    @Resource
+    private MailQueue mailQueue;
+
     /**
      * 进入消息页面
      * @param model 模板渲染
@@ -56,15 +61,18 @@ public class MessageController {
 
         page.setRows(messageCount);
 
-        List<Message> messages = messageService.getMessage(status,page.getOffset(),page.getLimit());
+        List<Message> messages = messageService.getMessage(status, page);
 
         List<Map<String, Object>> messageList = new ArrayList<>();
 
         if (messages.size() > 0) {
+            //一次查询出全部发送者的信息
+            Map<Integer, User> users = userService.getUsersByIds(
+                    messages.stream().map(Message::getFromId).collect(Collectors.toSet()));
             for (int i = 0; i < messages.size(); i++) {
                 Map<String, Object> map = new HashMap<>();
                 map.put("message", messages.get(i));
-                User user = userService.getUserById(messages.get(i).getFromId());
+                User user = users.get(messages.get(i).getFromId());
                 map.put("user", user);
                 messageList.add(map);
             }
@@ -125,6 +133,57 @@ public class MessageController {
         return "/pages/send-email";
     }
 
+    /**
+     * 群发邮件
+     * @param segment 收件人范围
+     * @param type 用户类型
+     * @param title 主题
+     * @param content 内容
+     * @return 返回json，包含群发id
+     */
+    @ResponseBody
+    @PostMapping("/sendCampaign")
+    public String sendCampaign(String segment, Integer type, String title, String content) {
+        if (title == null || title.isEmpty() || content == null || content.isEmpty()) {
+            return TravelUtil.getJsonString(1, "请填写主题和内容!");
+        }
+        String id;
+        try {
+            id = messageService.sendCampaign(segment, type, title, content);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return TravelUtil.getJsonString(1, e.getMessage());
+        }
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", id);
+        return TravelUtil.getJsonString(0, "OK", map);
+    }
+
+    /**
+     * 查询群发进度，供页面轮询
+     * @param id 群发id
+     * @return 返回json
+     */
+    @ResponseBody
+    @GetMapping("/campaign/progress")
+    public String campaignProgress(String id) {
+        Map<String, Object> map = new HashMap<>();
+        messageService.getCampaignProgress(id).forEach((key, value) -> map.put(key.toString(), value));
+        if (map.isEmpty()) {
+            return TravelUtil.getJsonString(1, "群发不存在或已过期!");
+        }
+        return TravelUtil.getJsonString(0, null, map);
+    }
+
+    /**
+     * 查看邮件发送队列的情况
+     * @return json数据
+     */
+    @ResponseBody
+    @GetMapping("/mail/stats")
+    public String mailStats() {
+        return TravelUtil.getJsonString(0, null, mailQueue.getStats());
+    }
+
 
 
 
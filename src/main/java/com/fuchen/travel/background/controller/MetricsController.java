@@ -0,0 +1,101 @@
+package com.fuchen.travel.background.controller;
+
+import com.fuchen.travel.background.cache.LikeCountCache;
+import com.fuchen.travel.background.cache.NearCache;
+import com.fuchen.travel.background.mail.MailQueue;
+import com.fuchen.travel.background.metrics.MetricsRegistry;
+import com.fuchen.travel.background.metrics.SqlMetricsInterceptor;
+import com.fuchen.travel.background.storage.ThumbnailService;
+import com.fuchen.travel.background.storage.UploadQueue;
+import com.fuchen.travel.background.util.TravelUtil;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/26
+ * 运行指标-controller层
+ */
+@Controller
+public class MetricsController {
+
+    @Resource
+    private MetricsRegistry metricsRegistry;
+
+    @Resource
+    private SqlMetricsInterceptor sqlMetricsInterceptor;
+
+    @Resource
+    private NearCache nearCache;
+
+    @Resource
+    private LikeCountCache likeCountCache;
+
+    @Resource
+    private UploadQueue uploadQueue;
+
+    @Resource
+    private ThumbnailService thumbnailService;
+
+    @Resource
+    private MailQueue mailQueue;
+
+    /**
+     * 查看service方法的耗时分位数（毫秒）和失败次数，以及各个缓存、队列的统计
+     * @return json数据
+     */
+    @ResponseBody
+    @GetMapping("/metrics")
+    public String metrics() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("methods", metricsRegistry.snapshot());
+        map.put("sql", sqlMetricsInterceptor.snapshot());
+        map.put("slowSqlTotal", sqlMetricsInterceptor.getSlowQueryTotal());
+        map.put("nearCache", nearCache.getStats());
+        map.put("likeCountCache", likeCountCache.getStats());
+        map.put("upload", uploadQueue.getStats());
+        map.put("thumbnail", thumbnailService.getStats());
+        try {
+            map.put("mail", mailQueue.getStats());
+        } catch (RuntimeException e) {
+            //邮件队列的统计需要查询redis，redis不可用时不影响其他指标
+            map.put("mail", e.getMessage());
+        }
+        return TravelUtil.getJsonString(0, null, map);
+    }
+
+    /**
+     * sql监控页面：每条mapper语句的耗时统计和最近的慢sql
+     * @param model 模型渲染
+     * @return 进入sql监控页面
+     */
+    @GetMapping("/metrics/sql")
+    public String sqlMetrics(Model model) {
+        //按总耗时倒序，最拖慢数据库的语句排在前面
+        List<Map<String, Object>> statements = new ArrayList<>();
+        sqlMetricsInterceptor.snapshot().forEach((name, value) -> {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> stat = new LinkedHashMap<>((Map<String, Object>) value);
+            stat.put("name", name);
+            stat.put("totalMillis", (long) stat.get("count") * (double) stat.get("mean"));
+            statements.add(stat);
+        });
+        statements.sort(Comparator.comparingDouble(stat -> -(double) stat.get("totalMillis")));
+
+        model.addAttribute("statements", statements);
+        model.addAttribute("slowQueries", sqlMetricsInterceptor.getSlowQueries());
+        model.addAttribute("slowQueryTotal", sqlMetricsInterceptor.getSlowQueryTotal());
+        model.addAttribute("slowMillis", sqlMetricsInterceptor.getSlowMillis());
+        return "/pages/sql-metrics";
+    }
+}
@@ -1,9 +1,12 @@
 package com.fuchen.travel.background.controller;
 
+import com.fuchen.travel.background.cache.RowCounter;
 import com.fuchen.travel.background.entity.Page;
 import com.fuchen.travel.background.entity.Preserve;
+import com.fuchen.travel.background.entity.SearchPage;
 import com.fuchen.travel.background.service.PreserveService;
 import com.fuchen.travel.background.service.UserService;
+import com.fuchen.travel.background.util.ImageServer;
 import com.fuchen.travel.background.util.TravelUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -17,9 +20,7 @@ import org.springframework.web.multipart.MultipartFile;
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.util.*;
 
 /**
@@ -36,6 +37,12 @@ public class PreserveController {
     @Resource
     private UserService userService;
 
+    @Resource
+    private RowCounter rowCounter;
+
+    @Resource
+    private ImageServer imageServer;
+
     @Value("${scenic.path.image}")
     private String scenicImage;
 
@@ -53,8 +60,9 @@ public class PreserveController {
         page.setLimit(5);
         page.setPath("/scenic-control");
         page.setRows(scenicCount);
+        page.setEstimated(rowCounter.isEstimated("scenicCount"));
         //获取景点集合
-        List<Preserve> preserve = preserveService.getScenic(page.getOffset(), page.getLimit());
+        List<Preserve> preserve = preserveService.getScenic(page);
         //用户存放景点数据
         List<Map<String, Preserve>> scenicList = new ArrayList<>(scenicCount);
         //遍历景点集合，将其通过map放入list中
@@ -83,7 +91,7 @@ public class PreserveController {
         page.setPath("/scenic-controll");
         page.setRows(scenicCount);
         //获取景点集合
-        List<Preserve> preserve = preserveService.getScenic1(page.getOffset(), page.getLimit());
+        List<Preserve> preserve = preserveService.getScenic1(page);
         log.info(preserve.toString());
         //用户存放景点数据
         List<Map<String, Preserve>> scenicList = new ArrayList<>(scenicCount);
@@ -122,7 +130,7 @@ public class PreserveController {
         page.setPath("/scenic-controlll");
         page.setRows(scenicCount);
         //获取景点集合
-        List<Preserve> preserve = preserveService.getScenic2(page.getOffset(), page.getLimit());
+        List<Preserve> preserve = preserveService.getScenic2(page);
         //用户存放景点数据
         List<Map<String, Preserve>> scenicList = new ArrayList<>(scenicCount);
         //遍历景点集合，将其通过map放入list中
@@ -151,7 +159,7 @@ public class PreserveController {
         page.setPath("/scenic-controlll");
         page.setRows(scenicCount);
         //获取景点集合
-        List<Preserve> preserve = preserveService.getScenic3(page.getOffset(), page.getLimit());
+        List<Preserve> preserve = preserveService.getScenic3(page);
         //用户存放景点数据
         List<Map<String, Preserve>> scenicList = new ArrayList<>(scenicCount);
         //遍历景点集合，将其通过map放入list中
@@ -171,23 +179,10 @@ public class PreserveController {
      * @param response 响应体
      */
     @GetMapping("/scenicImg/{imageName}")
-    public void getScenicImage(@PathVariable("imageName") String imageName, HttpServletResponse response) {
-        //服务器存放路径
-        imageName = scenicImage + "/" + imageName;
-        //文件后缀
-        String suffix = imageName.substring(imageName.lastIndexOf("."));
-        //响应图片
-        response.setContentType("image/" + suffix);
-
-        try (FileInputStream inputStream = new FileInputStream(imageName);) {
-
-            OutputStream outputStream = response.getOutputStream();
-
-            byte[] buffer = new byte[1024];
-            int b = 0;
-            while ((b = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, b);
-            }
+    public void getScenicImage(@PathVariable("imageName") String imageName, HttpServletRequest request,
+                               HttpServletResponse response) {
+        try {
+            imageServer.serve(scenicImage, imageName, request, response);
         } catch (IOException e) {
             log.error("读写图像失败！" + e.getMessage());
         }
@@ -286,17 +281,15 @@ public class PreserveController {
             return "/pages/scenic-control";
         }
 
-        //获取用户数量
-        Integer scenicCount = preserveService.getScenicCountSearch(keyword);
-
         //设置分页数据
         page.setLimit(5);
         page.setPath("/scenic/search?keyword=" + keyword);
-        page.setRows(scenicCount);
-        //分页查询用户集合
-        List<Preserve> preserve = preserveService.getScenicSearch(keyword, page.getOffset(), page.getLimit());
+        //一次查询同时得到当前页数据和数量
+        SearchPage<Preserve> searchPage = preserveService.getScenicSearchPage(keyword, page.getOffset(), page.getLimit());
+        page.setRows(searchPage.getTotal());
+        List<Preserve> preserve = searchPage.getRows();
         //创建景点集合存放景点数据
-        List<Map<String, Preserve>> scenicList = new ArrayList<>(scenicCount);
+        List<Map<String, Preserve>> scenicList = new ArrayList<>(preserve.size());
         //遍历景点集合，将其通过map放入list中
         for (int i = 0; i < preserve.size(); i++) {
             Map<String, Preserve> map = new HashMap<>();
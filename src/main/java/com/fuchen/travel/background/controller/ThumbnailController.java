@@ -0,0 +1,57 @@
+package com.fuchen.travel.background.controller;
+
+import com.fuchen.travel.background.storage.ThumbnailService;
+import com.fuchen.travel.background.util.ImageServer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/21
+ * 缩略图-controller层
+ */
+@Controller
+@Slf4j
+public class ThumbnailController {
+
+    @Resource
+    private ThumbnailService thumbnailService;
+
+    @Resource
+    private ImageServer imageServer;
+
+    /**
+     * 获取缩略图，列表页面使用，不下载原图
+     * @param width 宽
+     * @param height 高
+     * @param name 原图文件名
+     * @param request 请求
+     * @param response 响应体
+     */
+    @GetMapping("/thumb/{width:\\d+}x{height:\\d+}/{name:.+}")
+    public void getThumbnail(@PathVariable("width") int width, @PathVariable("height") int height,
+                             @PathVariable("name") String name, HttpServletRequest request,
+                             HttpServletResponse response) {
+        try {
+            if (!thumbnailService.isAllowedSize(width, height) || !thumbnailService.isValidName(name)) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            ThumbnailService.Thumbnail thumbnail = thumbnailService.getThumbnail(width, height, name);
+            if (thumbnail == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            imageServer.serve(thumbnail.getData(), thumbnail.getFilename(), thumbnail.getCreateTime(), request, response);
+        } catch (IOException e) {
+            log.error("生成缩略图失败！" + e.getMessage());
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.fuchen.travel.background.controller;
 
+import com.fuchen.travel.background.cache.RowCounter;
 import com.fuchen.travel.background.entity.Page;
+import com.fuchen.travel.background.entity.SearchPage;
 import com.fuchen.travel.background.entity.User;
 import com.fuchen.travel.background.service.UserService;
 import com.fuchen.travel.background.util.HostHolder;
+import com.fuchen.travel.background.util.ImageServer;
 import com.fuchen.travel.background.util.TravelUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -18,9 +21,7 @@ import org.springframework.web.multipart.MultipartFile;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.util.*;
 
 /**
@@ -38,6 +39,12 @@ public class UserController {
     @Autowired
     private HostHolder hostHolder;
 
+    @Autowired
+    private RowCounter rowCounter;
+
+    @Autowired
+    private ImageServer imageServer;
+
     @Value("${travel.path.domain}")
     private String domain;
 
@@ -64,8 +71,12 @@ public class UserController {
         page.setLimit(5);
         page.setPath("/user-control");
         page.setRows(userCount);
+        //普通管理员只统计普通用户数量，总是精确查询；登录信息或类型缺失时与getUserCount一致，按全部用户统计
+        User loginUser = userService.getLoginUser(request);
+        boolean admin = loginUser != null && loginUser.getType() != null && loginUser.getType() == 1;
+        page.setEstimated(!admin && rowCounter.isEstimated("userCountAll"));
         //分页查询用户集合
-        List<User> users = userService.getAllUser(page.getOffset(), page.getLimit(), request);
+        List<User> users = userService.getAllUser(page, request);
         //创建list用于存放用户列表数据
         List<Map<String, User>> userList = new ArrayList<>(userCount);
         //循环遍历，将数据放入map后加入到list集合中
@@ -76,7 +87,7 @@ public class UserController {
         }
 
         model.addAttribute("userList", userList);
-        model.addAttribute("loginUser", userService.getLoginUser(request));
+        model.addAttribute("loginUser", loginUser);
         return "/pages/user-control";
     }
 
@@ -245,17 +256,15 @@ public class UserController {
             return "/pages/user-control";
         }
 
-        //获取用户数量
-        Integer userCount = userService.getUserCountSearch(keyword, type);
-
         //设置分页数据
         page.setLimit(5);
         page.setPath("/user/search?keyword=" + keyword);
-        page.setRows(userCount);
-        //分页查询用户集合
-        List<User> users = userService.getUserSearch(keyword, type, page.getOffset(), page.getLimit());
+        //分页查询用户集合，同时得到用户数量
+        SearchPage<User> searchPage = userService.getUserSearchPage(keyword, type, page.getOffset(), page.getLimit());
+        page.setRows(searchPage.getTotal());
+        List<User> users = searchPage.getRows();
         //创建list用于存放用户列表数据
-        List<Map<String, User>> userList = new ArrayList<>(userCount);
+        List<Map<String, User>> userList = new ArrayList<>(users.size());
         //循环遍历，将数据放入map后加入到list集合中
         for (int i = 0; i < users.size(); i++) {
             Map<String, User> map = new HashMap<>();
@@ -307,23 +316,10 @@ public class UserController {
      */
     @Deprecated
     @GetMapping("/user/header/{filename}")
-    public void getHeader(@PathVariable("filename") String filename, HttpServletResponse response) {
-        //服务器存放路径
-        filename = uploadPath + "/" + filename;
-        //文件后缀
-        String suffix = filename.substring(filename.lastIndexOf("."));
-        //响应图片
-        response.setContentType("image/" + suffix);
-
-        try (FileInputStream inputStream = new FileInputStream(filename);) {
-
-            OutputStream outputStream = response.getOutputStream();
-
-            byte[] buffer = new byte[1024];
-            int b = 0;
-            while ((b = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, b);
-            }
+    public void getHeader(@PathVariable("filename") String filename, HttpServletRequest request,
+                          HttpServletResponse response) {
+        try {
+            imageServer.serve(uploadPath, filename, request, response);
         } catch (IOException e) {
             log.error("读写图像失败！" + e.getMessage());
         }
@@ -24,10 +24,8 @@ public class ExceptionAdvice {
 	private static final Logger log = LoggerFactory.getLogger(ExceptionAdvice.class);
 	@ExceptionHandler(Exception.class)  //异常处理类
 	public void handleException(Exception e, HttpServletRequest request, HttpServletResponse response) throws IOException {
-		log.error("服务器发生异常：" + e.getMessage());
-		for (StackTraceElement element : e.getStackTrace()) {
-			log.error(element.toString());
-		}
+		//异常栈作为同一条日志输出，不按行拆成多条
+		log.error("服务器发生异常：{} {}", request.getMethod(), request.getRequestURI(), e);
 		
 		String requestHeader = request.getHeader("x-requested-with");
 		//异步请求
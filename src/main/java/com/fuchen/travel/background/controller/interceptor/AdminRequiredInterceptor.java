@@ -0,0 +1,48 @@
+package com.fuchen.travel.background.controller.interceptor;
+
+import com.fuchen.travel.background.entity.User;
+import com.fuchen.travel.background.util.HostHolder;
+import com.fuchen.travel.background.util.TravelUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/29
+ * 管理员权限拦截器：在LoginTicketInterceptor之后执行，未登录返回401，不是管理员返回403
+ */
+@Component
+public class AdminRequiredInterceptor implements HandlerInterceptor {
+
+	/**
+	 * 管理员的用户类型
+	 */
+	private static final int ADMIN_TYPE = 1;
+
+	@Autowired
+	private HostHolder hostHolder;
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+		User user = hostHolder.getUser();
+		if (user == null) {
+			reject(response, HttpServletResponse.SC_UNAUTHORIZED, "请先登录!");
+			return false;
+		}
+		if (user.getType() == null || user.getType() != ADMIN_TYPE) {
+			reject(response, HttpServletResponse.SC_FORBIDDEN, "没有权限!");
+			return false;
+		}
+		return true;
+	}
+
+	private void reject(HttpServletResponse response, int status, String msg) throws Exception {
+		response.setStatus(status);
+		response.setContentType("application/json;charset=utf-8");
+		response.getWriter().write(TravelUtil.getJsonString(status, msg));
+	}
+}
@@ -0,0 +1,59 @@
+package com.fuchen.travel.background.controller.interceptor;
+
+import com.fuchen.travel.background.entity.LoginTicket;
+import com.fuchen.travel.background.entity.User;
+import com.fuchen.travel.background.service.UserService;
+import com.fuchen.travel.background.util.CookieUtil;
+import com.fuchen.travel.background.util.HostHolder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/13
+ * 登录凭证拦截器：每个请求根据cookie中的凭证取出登录用户，放入HostHolder，请求结束后清除
+ */
+@Component
+public class LoginTicketInterceptor implements HandlerInterceptor {
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private HostHolder hostHolder;
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+		//从cookie中获取凭证
+		String ticket = CookieUtil.getValue(request, "ticket");
+		if (ticket != null) {
+			//查询凭证，签名正确、未注销、未过期才有效
+			LoginTicket loginTicket = userService.findLoginTicket(ticket);
+			if (loginTicket != null && loginTicket.getStatus() == 0) {
+				//根据凭证查询用户并在本次请求中持有
+				User user = userService.findCachedUser(loginTicket.getUserId());
+				hostHolder.setUser(user);
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) throws Exception {
+		User user = hostHolder.getUser();
+		if (user != null && modelAndView != null && !modelAndView.getModel().containsKey("loginUser")) {
+			modelAndView.addObject("loginUser", user);
+		}
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) throws Exception {
+		//线程会被复用，必须清除
+		hostHolder.clear();
+	}
+}
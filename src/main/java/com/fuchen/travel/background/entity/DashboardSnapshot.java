@@ -0,0 +1,77 @@
+package com.fuchen.travel.background.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/09
+ * 首页统计快照-实体类，定时任务预先计算，以一个redis哈希保存
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+public class DashboardSnapshot {
+    //普通用户数量
+    private Integer userCount;
+    //全部用户数量
+    private Integer userCountAll;
+    //景点数量
+    private Integer scenicCount;
+    //帖子数量
+    private Integer discussPostCount;
+    //封禁用户数量
+    private Integer banUserCount;
+    //推荐景点数量
+    private Integer scenicRecommendCount;
+    //快照生成时间
+    private Date updateTime;
+
+    /**
+     * 转换为redis哈希的字段
+     * @return 字段名与值
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("userCount", userCount);
+        map.put("userCountAll", userCountAll);
+        map.put("scenicCount", scenicCount);
+        map.put("discussPostCount", discussPostCount);
+        map.put("banUserCount", banUserCount);
+        map.put("scenicRecommendCount", scenicRecommendCount);
+        map.put("updateTime", updateTime == null ? null : updateTime.getTime());
+        return map;
+    }
+
+    /**
+     * 由redis哈希的字段还原
+     * @param map 字段名与值
+     * @return 哈希为空时返回null
+     */
+    public static DashboardSnapshot fromMap(Map<Object, Object> map) {
+        if (map == null || map.isEmpty()) {
+            return null;
+        }
+        DashboardSnapshot snapshot = new DashboardSnapshot();
+        snapshot.setUserCount(toInteger(map.get("userCount")));
+        snapshot.setUserCountAll(toInteger(map.get("userCountAll")));
+        snapshot.setScenicCount(toInteger(map.get("scenicCount")));
+        snapshot.setDiscussPostCount(toInteger(map.get("discussPostCount")));
+        snapshot.setBanUserCount(toInteger(map.get("banUserCount")));
+        snapshot.setScenicRecommendCount(toInteger(map.get("scenicRecommendCount")));
+        Object updateTime = map.get("updateTime");
+        snapshot.setUpdateTime(updateTime == null ? null : new Date(((Number) updateTime).longValue()));
+        return snapshot;
+    }
+
+    private static Integer toInteger(Object value) {
+        return value == null ? null : ((Number) value).intValue();
+    }
+}
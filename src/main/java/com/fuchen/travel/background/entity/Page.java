@@ -14,6 +14,10 @@ public class Page {
 	private Integer rows;
 	//查询路径（用于复用分页链接）
 	private String path;
+	//分页游标（由上一页最后一行的排序键生成，存在时按游标定位，不再使用offset）
+	private String cursor;
+	//数量总数是否为估算值
+	private boolean estimated;
 	
 	public String getPath() {
 		return path;
@@ -23,6 +27,22 @@ public class Page {
 		this.path = path;
 	}
 	
+	public String getCursor() {
+		return cursor;
+	}
+	
+	public void setCursor(String cursor) {
+		this.cursor = cursor;
+	}
+	
+	public boolean isEstimated() {
+		return estimated;
+	}
+	
+	public void setEstimated(boolean estimated) {
+		this.estimated = estimated;
+	}
+	
 	public Integer getCurrent() {
 		return current;
 	}
@@ -73,6 +93,14 @@ public class Page {
 		}
 	}
 	
+	/**
+	 * 获取数量总数的显示文本，数量为估算值时显示为"~N"
+	 * @return
+	 */
+	public String getRowsText(){
+		return estimated ? "~" + rows : String.valueOf(rows);
+	}
+	
 	/**
 	 * 获取起始页码
 	 * @return
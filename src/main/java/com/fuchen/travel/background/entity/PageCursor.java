@@ -0,0 +1,78 @@
+package com.fuchen.travel.background.entity;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/02
+ * 键集分页游标，保存上一页最后一行的排序键（id，必要时带上创建时间）
+ */
+public class PageCursor {
+
+	private static final String SPLIT = ":";
+
+	//最后一行的id
+	private final Integer id;
+	//最后一行的创建时间（按时间排序时使用）
+	private final Date createTime;
+
+	public PageCursor(Integer id, Date createTime) {
+		this.id = id;
+		this.createTime = createTime;
+	}
+
+	public static PageCursor of(Integer id) {
+		return id == null ? null : new PageCursor(id, null);
+	}
+
+	public static PageCursor of(Integer id, Date createTime) {
+		//排序键不完整时无法定位，返回空，由调用方退回offset分页
+		if (id == null || createTime == null) {
+			return null;
+		}
+		return new PageCursor(id, createTime);
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public Date getCreateTime() {
+		return createTime;
+	}
+
+	/**
+	 * 编码为对外不透明的字符串
+	 * @return base64url字符串
+	 */
+	public String encode() {
+		String raw = createTime == null ? String.valueOf(id) : id + SPLIT + createTime.getTime();
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * 解析游标字符串
+	 * @param cursor 游标
+	 * @return 解析失败返回null
+	 */
+	public static PageCursor decode(String cursor) {
+		if (StringUtils.isBlank(cursor)) {
+			return null;
+		}
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			String[] split = raw.split(SPLIT);
+			Integer id = Integer.valueOf(split[0]);
+			if (split.length == 1) {
+				return new PageCursor(id, null);
+			}
+			return new PageCursor(id, new Date(Long.parseLong(split[1])));
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package com.fuchen.travel.background.entity;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/16
+ * 搜索分页结果：当前页数据和命中总数一起返回，不再单独查询数量
+ */
+public class SearchPage<T> {
+	//当前页数据
+	private final List<T> rows;
+	//命中总数
+	private final Integer total;
+	
+	public SearchPage(List<T> rows, Integer total) {
+		this.rows = rows;
+		this.total = total;
+	}
+	
+	public static <T> SearchPage<T> empty() {
+		return new SearchPage<>(Collections.emptyList(), 0);
+	}
+	
+	public List<T> getRows() {
+		return rows;
+	}
+	
+	public Integer getTotal() {
+		return total;
+	}
+}
@@ -0,0 +1,156 @@
+package com.fuchen.travel.background.mail;
+
+import com.fuchen.travel.background.entity.User;
+import com.fuchen.travel.background.mapper.UserMapper;
+import com.fuchen.travel.background.util.RedisKeyUtil;
+import com.fuchen.travel.background.util.TravelUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/23
+ * 群发邮件：按id分批从数据库读取收件人，不一次全部加载；模板每次群发只渲染一次；
+ * 按限定的速率放入邮件发送队列，由发送线程并发发送
+ * 进度保存在redis的hash中：total、scanned、queued、sent、failed、status
+ */
+@Component
+public class CampaignDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(CampaignDispatcher.class);
+
+    /**
+     * 每批从数据库读取的收件人数量
+     */
+    private static final int BATCH_SIZE = 500;
+
+    public static final String STATUS_RUNNING = "running";
+
+    public static final String STATUS_DONE = "done";
+
+    public static final String STATUS_FAILED = "failed";
+
+    private final UserMapper userMapper;
+
+    private final MailQueue mailQueue;
+
+    private final MailRenderer mailRenderer;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final TaskExecutor executor;
+
+    /**
+     * 所有群发共用的限流，限制放入发送队列的速率，避免超过邮件服务商的发送频率
+     */
+    private final RateLimiter rateLimiter;
+
+    /**
+     * 进度保留的天数
+     */
+    private final long progressTtlDays;
+
+    public CampaignDispatcher(UserMapper userMapper, MailQueue mailQueue, MailRenderer mailRenderer,
+                              RedisTemplate<String, Object> redisTemplate,
+                              @Qualifier("campaignExecutor") TaskExecutor executor,
+                              @Value("${travel.mail.campaign.rate-per-second:20}") int ratePerSecond,
+                              @Value("${travel.mail.campaign.progress-ttl-days:7}") long progressTtlDays) {
+        this.userMapper = userMapper;
+        this.mailQueue = mailQueue;
+        this.mailRenderer = mailRenderer;
+        this.redisTemplate = redisTemplate;
+        this.executor = executor;
+        this.rateLimiter = new RateLimiter(ratePerSecond);
+        this.progressTtlDays = progressTtlDays;
+    }
+
+    /**
+     * 开始群发，在后台执行
+     * @param segment 收件人范围
+     * @param type 用户类型，segment为TYPE时使用
+     * @param title 主题
+     * @param content 内容
+     * @return 群发id，用于查询进度
+     * @throws IllegalStateException 同时进行的群发过多，线程池已满
+     */
+    public String start(CampaignSegment segment, Integer type, String title, String content) {
+        String id = TravelUtil.generateUUID();
+        String redisKey = RedisKeyUtil.getCampaignKey(id);
+        Map<String, Object> progress = new HashMap<>();
+        progress.put("segment", segment.getValue());
+        progress.put("title", title);
+        progress.put("status", STATUS_RUNNING);
+        progress.put("total", userMapper.selectUserCountForCampaign(segment.getValue(), type));
+        progress.put("scanned", 0);
+        progress.put("queued", 0);
+        progress.put("sent", 0);
+        progress.put("failed", 0);
+        progress.put("startTime", System.currentTimeMillis());
+        redisTemplate.opsForHash().putAll(redisKey, progress);
+        redisTemplate.expire(redisKey, progressTtlDays, TimeUnit.DAYS);
+
+        try {
+            executor.execute(() -> run(id, segment, type, title, content));
+        } catch (TaskRejectedException e) {
+            //线程池已满，本次群发不会执行，进度标记为失败，页面不再轮询
+            log.warn("群发邮件任务被拒绝：" + id);
+            redisTemplate.opsForHash().put(redisKey, "status", STATUS_FAILED);
+            redisTemplate.opsForHash().put(redisKey, "endTime", System.currentTimeMillis());
+            throw new IllegalStateException("同时进行的群发过多，请稍后再试！");
+        }
+        return id;
+    }
+
+    /**
+     * 查询群发进度
+     * @param id 群发id
+     * @return 不存在或已过期返回空map
+     */
+    public Map<Object, Object> getProgress(String id) {
+        return redisTemplate.opsForHash().entries(RedisKeyUtil.getCampaignKey(id));
+    }
+
+    private void run(String id, CampaignSegment segment, Integer type, String title, String content) {
+        String redisKey = RedisKeyUtil.getCampaignKey(id);
+        try {
+            MailRenderer.Rendered rendered = mailRenderer.prepare(title, content);
+            int afterId = 0;
+            List<User> batch;
+            do {
+                batch = userMapper.selectUsersForCampaign(segment.getValue(), type, afterId, BATCH_SIZE);
+                int queued = 0;
+                for (User user : batch) {
+                    afterId = user.getId();
+                    if (user.getEmail() == null || user.getEmail().isEmpty()) {
+                        continue;
+                    }
+                    rateLimiter.acquire();
+                    mailQueue.enqueue(user.getEmail(), title, rendered.forRecipient(user.getEmail()), id);
+                    queued++;
+                }
+                //每批更新一次进度，不是每封邮件都写redis
+                redisTemplate.opsForHash().increment(redisKey, "scanned", batch.size());
+                redisTemplate.opsForHash().increment(redisKey, "queued", queued);
+            } while (batch.size() == BATCH_SIZE);
+            redisTemplate.opsForHash().put(redisKey, "status", STATUS_DONE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            redisTemplate.opsForHash().put(redisKey, "status", STATUS_FAILED);
+        } catch (RuntimeException e) {
+            log.error("群发邮件失败：" + e.getMessage());
+            redisTemplate.opsForHash().put(redisKey, "status", STATUS_FAILED);
+        }
+        redisTemplate.opsForHash().put(redisKey, "endTime", System.currentTimeMillis());
+    }
+}
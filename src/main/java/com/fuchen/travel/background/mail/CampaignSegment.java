@@ -0,0 +1,48 @@
+package com.fuchen.travel.background.mail;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/23
+ * 群发邮件的收件人范围
+ */
+public enum CampaignSegment {
+
+    /**
+     * 全部用户（与首页的全部用户数量一致，不包括type=2）
+     */
+    ALL("all"),
+
+    /**
+     * 封禁的用户
+     */
+    BANNED("banned"),
+
+    /**
+     * 指定类型的用户
+     */
+    TYPE("type");
+
+    private final String value;
+
+    CampaignSegment(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * 根据参数获取收件人范围
+     * @param value 参数值
+     * @return 未知的参数值返回null
+     */
+    public static CampaignSegment of(String value) {
+        for (CampaignSegment segment : values()) {
+            if (segment.value.equalsIgnoreCase(value)) {
+                return segment;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,71 @@
+package com.fuchen.travel.background.mail;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/22
+ * 本地邮件接收端：不连接SMTP服务器，只记录日志并保留最近的邮件，本地开发和测试时使用
+ * 配置travel.mail.sink=log时代替自动配置的JavaMailSender
+ */
+@Component
+@ConditionalOnProperty(name = "travel.mail.sink", havingValue = "log")
+public class LoggingMailSender extends JavaMailSenderImpl {
+
+    private static final Logger log = LoggerFactory.getLogger(LoggingMailSender.class);
+
+    private static final int MAX_SIZE = 100;
+
+    private final LinkedList<MimeMessage> messages = new LinkedList<>();
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) throws MailException {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        for (int i = 0; i < mimeMessages.length; i++) {
+            MimeMessage message = mimeMessages[i];
+            try {
+                //校验收件人地址，与真实发送时的行为一致
+                for (javax.mail.Address address : message.getAllRecipients()) {
+                    ((InternetAddress) address).validate();
+                }
+                log.info("邮件（未实际发送）：" + InternetAddress.toString(message.getAllRecipients())
+                        + "，主题：" + message.getSubject());
+                synchronized (messages) {
+                    messages.addLast(message);
+                    if (messages.size() > MAX_SIZE) {
+                        messages.removeFirst();
+                    }
+                }
+            } catch (MessagingException e) {
+                failedMessages.put(originalMessages != null ? originalMessages[i] : message, e);
+            }
+        }
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    /**
+     * 最近收到的邮件
+     */
+    public List<MimeMessage> getMessages() {
+        synchronized (messages) {
+            return new ArrayList<>(messages);
+        }
+    }
+}
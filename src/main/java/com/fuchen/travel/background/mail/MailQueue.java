@@ -0,0 +1,388 @@
+package com.fuchen.travel.background.mail;
+
+import com.fuchen.travel.background.util.MailClient;
+import com.fuchen.travel.background.util.RedisKeyUtil;
+import com.fuchen.travel.background.util.TravelUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/22
+ * 邮件发送队列：请求线程只把邮件放入redis列表，由后台的发送线程批量取出，每批共用一个SMTP连接发送
+ * 取出的邮件先移到本节点的处理中列表，发送完成后才删除（至少发送一次）；
+ * 每个节点定期续期自己的租约，租约过期的节点（异常退出）的处理中列表由其他节点或重启后的节点放回队列，
+ * 不会放回仍在运行的节点正在发送的邮件
+ * 发送失败时按指数退避放入重试集合，超过最大次数后放入死信列表
+ */
+@Component
+public class MailQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(MailQueue.class);
+
+    private static final String QUEUE_KEY = "mail:queue";
+
+    /**
+     * 处理中列表的前缀，后面是节点id
+     */
+    private static final String PROCESSING_PREFIX = "mail:processing:";
+
+    /**
+     * 租约的前缀，后面是节点id，过期后该节点的处理中列表可以被放回队列
+     */
+    private static final String LEASE_PREFIX = "mail:lease:";
+
+    /**
+     * 所有节点的id集合
+     */
+    private static final String NODES_KEY = "mail:nodes";
+
+    /**
+     * 重试集合，分数为下次发送的时间
+     */
+    private static final String RETRY_KEY = "mail:retry";
+
+    private static final String DEAD_KEY = "mail:dead";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final MailClient mailClient;
+
+    private final TaskExecutor executor;
+
+    private final int workers;
+
+    /**
+     * 每批最多发送的数量
+     */
+    private final int batchSize;
+
+    private final int maxAttempts;
+
+    /**
+     * 第一次重试前的等待时间（毫秒），之后每次翻倍
+     */
+    private final long backoffMillis;
+
+    /**
+     * 死信列表保留的数量
+     */
+    private final long deadMaxSize;
+
+    /**
+     * 租约时长（毫秒），节点超过这个时间没有续期时认为已退出
+     */
+    private final long leaseMillis;
+
+    /**
+     * 本进程的节点id，每次启动都不同，重启前未完成的邮件按租约过期处理
+     */
+    private final String nodeId = TravelUtil.generateUUID();
+
+    private final String processingKey = PROCESSING_PREFIX + nodeId;
+
+    private volatile boolean running;
+
+    private final LongAdder sent = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder retried = new LongAdder();
+
+    private final LongAdder deadLettered = new LongAdder();
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder sendMillis = new LongAdder();
+
+    public MailQueue(RedisTemplate<String, Object> redisTemplate, MailClient mailClient,
+                     @Qualifier("mailExecutor") TaskExecutor executor,
+                     @Value("${travel.mail.workers:2}") int workers,
+                     @Value("${travel.mail.batch-size:20}") int batchSize,
+                     @Value("${travel.mail.max-attempts:5}") int maxAttempts,
+                     @Value("${travel.mail.backoff-millis:5000}") long backoffMillis,
+                     @Value("${travel.mail.dead-max-size:1000}") long deadMaxSize,
+                     @Value("${travel.mail.lease-millis:30000}") long leaseMillis) {
+        this.redisTemplate = redisTemplate;
+        this.mailClient = mailClient;
+        this.executor = executor;
+        this.workers = workers;
+        this.batchSize = Math.max(batchSize, 1);
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.backoffMillis = backoffMillis;
+        this.deadMaxSize = deadMaxSize;
+        this.leaseMillis = leaseMillis;
+    }
+
+    /**
+     * 邮件放入发送队列，立即返回
+     * @param to 收件人
+     * @param subject 主题
+     * @param content 内容（已渲染的html）
+     */
+    public void enqueue(String to, String subject, String content) {
+        enqueue(to, subject, content, null);
+    }
+
+    /**
+     * 群发的邮件放入发送队列，发送结果计入群发进度
+     * @param to 收件人
+     * @param subject 主题
+     * @param content 内容（已渲染的html）
+     * @param campaignId 群发id
+     */
+    public void enqueue(String to, String subject, String content, String campaignId) {
+        MailTask task = new MailTask();
+        task.setId(TravelUtil.generateUUID());
+        task.setTo(to);
+        task.setSubject(subject);
+        task.setContent(content);
+        task.setAttempts(0);
+        task.setCreateTime(System.currentTimeMillis());
+        task.setCampaignId(campaignId);
+        redisTemplate.opsForList().leftPush(QUEUE_KEY, task);
+    }
+
+    /**
+     * 登记本节点并启动发送线程，同时放回已退出节点未完成的邮件
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        renewLease();
+        recoverExpired();
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::work);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * 续期本节点的租约，并放回租约已过期的节点未完成的邮件
+     */
+    @Scheduled(fixedDelayString = "${travel.mail.lease-renew-millis:10000}")
+    public void heartbeat() {
+        if (!running) {
+            return;
+        }
+        renewLease();
+        recoverExpired();
+    }
+
+    private void renewLease() {
+        redisTemplate.opsForValue().set(LEASE_PREFIX + nodeId, System.currentTimeMillis(), leaseMillis, TimeUnit.MILLISECONDS);
+        //停顿过久被其他节点移除后重新登记
+        redisTemplate.opsForSet().add(NODES_KEY, nodeId);
+    }
+
+    /**
+     * 租约已过期的节点的处理中列表放回发送队列，多个节点同时执行时由SREM的结果保证只有一个节点处理
+     */
+    private void recoverExpired() {
+        Set<Object> nodes = redisTemplate.opsForSet().members(NODES_KEY);
+        if (nodes == null) {
+            return;
+        }
+        for (Object node : nodes) {
+            if (nodeId.equals(node) || Boolean.TRUE.equals(redisTemplate.hasKey(LEASE_PREFIX + node))) {
+                continue;
+            }
+            Long removed = redisTemplate.opsForSet().remove(NODES_KEY, node);
+            if (removed == null || removed == 0) {
+                continue;
+            }
+            int recovered = 0;
+            while (redisTemplate.opsForList().rightPopAndLeftPush(PROCESSING_PREFIX + node, QUEUE_KEY) != null) {
+                recovered++;
+            }
+            if (recovered > 0) {
+                log.info("重新发送已退出节点未完成的邮件：" + recovered + "封");
+            }
+        }
+    }
+
+    /**
+     * 到期的重试邮件放回发送队列，多个节点同时执行时由ZREM的结果保证只放回一次
+     */
+    @Scheduled(fixedDelayString = "${travel.mail.retry-poll-millis:1000}")
+    public void moveDueRetries() {
+        Set<Object> due = redisTemplate.opsForZSet().rangeByScore(RETRY_KEY, 0, System.currentTimeMillis(), 0, 100);
+        if (due == null) {
+            return;
+        }
+        for (Object task : due) {
+            Long removed = redisTemplate.opsForZSet().remove(RETRY_KEY, task);
+            if (removed != null && removed > 0) {
+                redisTemplate.opsForList().leftPush(QUEUE_KEY, task);
+            }
+        }
+    }
+
+    /**
+     * 发送统计
+     * @return 各队列长度、发送数量、平均每封耗时
+     */
+    public Map<String, Object> getStats() {
+        long sentCount = sent.sum();
+        long batchCount = batches.sum();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("queued", redisTemplate.opsForList().size(QUEUE_KEY));
+        map.put("processing", redisTemplate.opsForList().size(processingKey));
+        map.put("retrying", redisTemplate.opsForZSet().zCard(RETRY_KEY));
+        map.put("dead", redisTemplate.opsForList().size(DEAD_KEY));
+        map.put("sent", sentCount);
+        map.put("failed", failed.sum());
+        map.put("retried", retried.sum());
+        map.put("deadLettered", deadLettered.sum());
+        map.put("batches", batchCount);
+        map.put("avgBatchSize", batchCount == 0 ? 0 : (double) (sentCount + failed.sum()) / batchCount);
+        map.put("avgSendMillis", sentCount == 0 ? 0 : (double) sendMillis.sum() / sentCount);
+        return map;
+    }
+
+    private void work() {
+        while (running) {
+            try {
+                List<MailTask> batch = poll();
+                if (!batch.isEmpty()) {
+                    send(batch);
+                }
+            } catch (RuntimeException e) {
+                //redis不可用等情况，稍后再试
+                log.error("邮件发送线程异常：" + e.getMessage());
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 阻塞等待第一封邮件，之后不等待地取出同一批的其余邮件
+     */
+    private List<MailTask> poll() {
+        Object first = redisTemplate.opsForList().rightPopAndLeftPush(QUEUE_KEY, processingKey, 1, TimeUnit.SECONDS);
+        if (first == null) {
+            return Collections.emptyList();
+        }
+        List<MailTask> batch = new ArrayList<>(batchSize);
+        batch.add((MailTask) first);
+        while (batch.size() < batchSize) {
+            Object next = redisTemplate.opsForList().rightPopAndLeftPush(QUEUE_KEY, processingKey);
+            if (next == null) {
+                break;
+            }
+            batch.add((MailTask) next);
+        }
+        return batch;
+    }
+
+    private void send(List<MailTask> batch) {
+        batches.increment();
+        Map<MimeMessage, MailTask> messages = new LinkedHashMap<>();
+        for (MailTask task : batch) {
+            try {
+                messages.put(mailClient.createMail(task.getTo(), task.getSubject(), task.getContent()), task);
+            } catch (MessagingException e) {
+                //地址格式错误等，重试也不会成功
+                deadLetter(task, e.getMessage());
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+        Map<Object, Exception> failedMessages = Collections.emptyMap();
+        long start = System.currentTimeMillis();
+        try {
+            mailClient.sendMails(messages.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            failedMessages = e.getFailedMessages();
+            //连接失败时没有具体的失败邮件，整批都算失败
+            if (failedMessages.isEmpty()) {
+                failedMessages = allFailed(messages, e);
+            }
+        } catch (MailException e) {
+            failedMessages = allFailed(messages, e);
+        }
+        sendMillis.add(System.currentTimeMillis() - start);
+        for (Map.Entry<MimeMessage, MailTask> entry : messages.entrySet()) {
+            Exception error = failedMessages.get(entry.getKey());
+            if (error == null) {
+                sent.increment();
+                redisTemplate.opsForList().remove(processingKey, 1, entry.getValue());
+                countCampaign(entry.getValue(), "sent");
+            } else {
+                retry(entry.getValue(), error.getMessage());
+            }
+        }
+    }
+
+    private Map<Object, Exception> allFailed(Map<MimeMessage, MailTask> messages, Exception e) {
+        Map<Object, Exception> map = new LinkedHashMap<>();
+        for (MimeMessage message : messages.keySet()) {
+            map.put(message, e);
+        }
+        return map;
+    }
+
+    private void retry(MailTask task, String error) {
+        failed.increment();
+        if (task.getAttempts() + 1 >= maxAttempts) {
+            deadLetter(task, error);
+            return;
+        }
+        //先按原内容从处理中列表删除，再修改次数
+        redisTemplate.opsForList().remove(processingKey, 1, task);
+        task.setAttempts(task.getAttempts() + 1);
+        task.setLastError(error);
+        long due = System.currentTimeMillis() + (backoffMillis << (task.getAttempts() - 1));
+        redisTemplate.opsForZSet().add(RETRY_KEY, task, due);
+        retried.increment();
+    }
+
+    private void deadLetter(MailTask task, String error) {
+        redisTemplate.opsForList().remove(processingKey, 1, task);
+        task.setAttempts(task.getAttempts() + 1);
+        task.setLastError(error);
+        redisTemplate.opsForList().leftPush(DEAD_KEY, task);
+        redisTemplate.opsForList().trim(DEAD_KEY, 0, deadMaxSize - 1);
+        deadLettered.increment();
+        countCampaign(task, "failed");
+        log.error("邮件发送失败，已放入死信列表：" + task.getTo() + "，" + error);
+    }
+
+    private void countCampaign(MailTask task, String field) {
+        if (task.getCampaignId() != null) {
+            redisTemplate.opsForHash().increment(RedisKeyUtil.getCampaignKey(task.getCampaignId()), field, 1);
+        }
+    }
+}
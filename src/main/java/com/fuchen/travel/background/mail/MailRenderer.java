@@ -0,0 +1,85 @@
+package com.fuchen.travel.background.mail;
+
+import com.fuchen.travel.background.util.TravelUtil;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.HtmlUtils;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring5.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/23
+ * 邮件模板渲染，使用单独的模板引擎并开启模板缓存，
+ * 页面模板为了开发方便关闭了缓存（spring.thymeleaf.cache=false），不影响邮件模板只解析一次
+ */
+@Component
+public class MailRenderer {
+
+    private static final String TEMPLATE = "/mail/mail";
+
+    private final SpringTemplateEngine templateEngine;
+
+    public MailRenderer() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(true);
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+    }
+
+    /**
+     * 渲染发给一个收件人的邮件
+     * @param email 收件人
+     * @param title 主题
+     * @param content 内容
+     * @return html
+     */
+    public String render(String email, String title, String content) {
+        Context context = new Context();
+        context.setVariable("email", email);
+        context.setVariable("title", title);
+        context.setVariable("content", content);
+        return templateEngine.process(TEMPLATE, context);
+    }
+
+    /**
+     * 群发时只渲染一次，收件人的位置留一个占位符，发送前替换
+     * @param title 主题
+     * @param content 内容
+     * @return 渲染好的模板
+     */
+    public Rendered prepare(String title, String content) {
+        //随机占位符，不会与内容中的文字冲突，也不会被html转义
+        String placeholder = "recipient-" + TravelUtil.generateUUID();
+        return new Rendered(render(placeholder, title, content), placeholder);
+    }
+
+    /**
+     * 渲染好的群发模板
+     */
+    public static class Rendered {
+
+        private final String html;
+
+        private final String placeholder;
+
+        private Rendered(String html, String placeholder) {
+            this.html = html;
+            this.placeholder = placeholder;
+        }
+
+        /**
+         * 填入收件人
+         * @param email 收件人
+         * @return html
+         */
+        public String forRecipient(String email) {
+            return html.replace(placeholder, HtmlUtils.htmlEscape(email));
+        }
+    }
+}
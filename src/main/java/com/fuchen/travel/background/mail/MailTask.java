@@ -0,0 +1,30 @@
+package com.fuchen.travel.background.mail;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/22
+ * 待发送的邮件，以json保存在redis队列中
+ */
+@Data
+@NoArgsConstructor
+public class MailTask {
+    //任务id，区分内容相同的邮件
+    private String id;
+    //收件人
+    private String to;
+    //主题
+    private String subject;
+    //内容（已渲染的html）
+    private String content;
+    //已尝试发送的次数
+    private Integer attempts;
+    //最后一次失败的原因
+    private String lastError;
+    //加入队列的时间
+    private Long createTime;
+    //所属的群发id，单独发送时为null
+    private String campaignId;
+}
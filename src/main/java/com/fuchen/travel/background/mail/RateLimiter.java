@@ -0,0 +1,42 @@
+package com.fuchen.travel.background.mail;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/23
+ * 匀速限流：每个许可之间间隔固定时间，多个线程共用时总速率不超过设置值
+ */
+class RateLimiter {
+
+    private final long intervalNanos;
+
+    /**
+     * 下一个许可可用的时间
+     */
+    private long nextFreeNanos = System.nanoTime();
+
+    RateLimiter(int permitsPerSecond) {
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(permitsPerSecond, 1);
+    }
+
+    /**
+     * 获取一个许可，必要时等待
+     * @throws InterruptedException 等待时被中断
+     */
+    void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            //空闲期间不积攒许可，避免空闲后突发
+            if (nextFreeNanos < now) {
+                nextFreeNanos = now;
+            }
+            waitNanos = nextFreeNanos - now;
+            nextFreeNanos += intervalNanos;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
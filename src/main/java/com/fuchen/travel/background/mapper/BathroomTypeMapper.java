@@ -4,6 +4,7 @@ import com.fuchen.travel.background.entity.BathroomType;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -29,8 +30,9 @@ public interface BathroomTypeMapper {
     /**
      * 插入浴室信息
      * @param bathroomType
+     * @return 影响行数
      */
-    void insertBathroomType(@Param("bathroomType") BathroomType bathroomType);
+    int insertBathroomType(@Param("bathroomType") BathroomType bathroomType);
 
     /**
      * 修改浴室信息
@@ -40,8 +42,9 @@ public interface BathroomTypeMapper {
     /**
      * 修改景点的状态，将其设置为删除
      * @param list
+     * @return 影响行数
      */
-    void updateBathroomTypeById(@Param("ids") List<String> list);
+    int updateBathroomTypeById(@Param("ids") List<String> list);
     /**
      * 查询指定关键字的景点数量
      * @param keyword
@@ -59,4 +62,18 @@ public interface BathroomTypeMapper {
                                        @Param("offset") Integer offset,
                                        @Param("limit") Integer limit);
 
+    /**
+     * 按id顺序分批查询需要建立搜索索引的数据
+     * @param afterId 上一批最后一条的id
+     * @param limit 每批数量
+     * @return
+     */
+    List<BathroomType> selectBathroomTypeForIndex(@Param("afterId") Integer afterId, @Param("limit") Integer limit);
+
+    /**
+     * 根据id批量查询（搜索结果回表）
+     * @param ids id集合
+     * @return
+     */
+    List<BathroomType> selectBathroomTypeByIds(@Param("ids") Collection<Integer> ids);
 }
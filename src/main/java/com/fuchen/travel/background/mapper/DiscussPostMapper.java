@@ -1,9 +1,11 @@
 package com.fuchen.travel.background.mapper;
 
 import com.fuchen.travel.background.entity.DiscussPost;
+import com.fuchen.travel.background.entity.PageCursor;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -31,24 +33,29 @@ public interface DiscussPostMapper {
     /**
      * 插入新帖子信息
      * @param discussPost 帖子对象信息
+     * @return 影响行数
      */
-    void insertDiscussPost(@Param("post") DiscussPost discussPost);
+    int insertDiscussPost(@Param("post") DiscussPost discussPost);
 
     /**
      * 查询帖子信息，按照id排序
+     * @param cursor 分页游标（上一页最后一条帖子的id）
      * @param offset 分页起始行
      * @param limit 分页条数
      * @return 返回帖子信息集合
      */
-    List<DiscussPost> selectPostSortById(@Param("offset") Integer offset, @Param("limit") Integer limit);
+    List<DiscussPost> selectPostSortById(@Param("cursor") PageCursor cursor, @Param("offset") Integer offset,
+                                         @Param("limit") Integer limit);
 
     /**
      * 查询帖子信息，按照时间排序
+     * @param cursor 分页游标（上一页最后一条帖子的创建时间和id）
      * @param offset 分页起始行
      * @param limit 分页条数
      * @return 返回帖子信息集合
      */
-    List<DiscussPost> selectPostSortByTime(@Param("offset") Integer offset, @Param("limit") Integer limit);
+    List<DiscussPost> selectPostSortByTime(@Param("cursor") PageCursor cursor, @Param("offset") Integer offset,
+                                           @Param("limit") Integer limit);
 
     /**
      * 查询管理员发布的帖子信息
@@ -78,8 +85,9 @@ public interface DiscussPostMapper {
      * 修改帖子状态，撤销帖子转正常，否则相反
      * @param postId 帖子id
      * @param status 帖子当前状态
+     * @return 影响行数，帖子的状态已经被改变过时为0
      */
-    void updatePostStatus(@Param("id") String postId, @Param("status") String status);
+    int updatePostStatus(@Param("id") String postId, @Param("status") String status);
 
     /**
      * 查询撤销的帖子
@@ -100,4 +108,19 @@ public interface DiscussPostMapper {
      * @return 撤销帖子数量
      */
     Integer selectPostCountToCancel();
+
+    /**
+     * 按id顺序分批查询需要建立搜索索引的数据
+     * @param afterId 上一批最后一条的id
+     * @param limit 每批数量
+     * @return
+     */
+    List<DiscussPost> selectPostsForIndex(@Param("afterId") Integer afterId, @Param("limit") Integer limit);
+
+    /**
+     * 根据id批量查询未撤销的帖子（搜索结果回表、索引对账）
+     * @param ids id集合
+     * @return
+     */
+    List<DiscussPost> selectPostsByIds(@Param("ids") Collection<Integer> ids);
 }
@@ -1,6 +1,7 @@
 package com.fuchen.travel.background.mapper;
 
 import com.fuchen.travel.background.entity.Feedback;
+import com.fuchen.travel.background.entity.PageCursor;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
@@ -22,9 +23,11 @@ public interface FeedbackMapper {
 
     /**
      * 查询全部意见反馈信息
+     * @param cursor 分页游标
      * @param offset 分页起始行
      * @param limit 分页显示条数
      * @return 返回Feedback集合
      */
-    List<Feedback> selectAllFeedback(@Param("offset") Integer offset, @Param("limit") Integer limit);
+    List<Feedback> selectAllFeedback(@Param("cursor") PageCursor cursor, @Param("offset") Integer offset,
+                                     @Param("limit") Integer limit);
 }
@@ -2,9 +2,11 @@ package com.fuchen.travel.background.mapper;
 
 import com.fuchen.travel.background.entity.Goods;
 import com.fuchen.travel.background.entity.GoodsOrder;
+import com.fuchen.travel.background.entity.PageCursor;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -17,7 +19,7 @@ public interface GoodsMapper {
 
     Integer selectGoodsCount ();
 
-    List<Goods> selectGoods(Integer offset, Integer limit);
+    List<Goods> selectGoods(@Param("cursor") PageCursor cursor, @Param("offset") Integer offset, @Param("limit") Integer limit);
 
     void insertGoods(Goods good);
 
@@ -31,4 +33,18 @@ public interface GoodsMapper {
 
     List<GoodsOrder> getGoodsOrder(Integer offset, Integer limit);
 
+    /**
+     * 按id顺序分批查询需要建立搜索索引的数据
+     * @param afterId 上一批最后一条的id
+     * @param limit 每批数量
+     * @return
+     */
+    List<Goods> selectGoodsForIndex(@Param("afterId") Integer afterId, @Param("limit") Integer limit);
+
+    /**
+     * 根据id批量查询（搜索结果回表）
+     * @param ids id集合
+     * @return
+     */
+    List<Goods> selectGoodsByIds(@Param("ids") Collection<Integer> ids);
 }
@@ -1,6 +1,7 @@
 package com.fuchen.travel.background.mapper;
 
 import com.fuchen.travel.background.entity.Message;
+import com.fuchen.travel.background.entity.PageCursor;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
@@ -24,12 +25,14 @@ public interface MessageMapper {
     /**
      * 查询消息列表
      * @return 返回消息集合
+     * @param cursor 分页游标（上一页最后一条消息的创建时间和id）
      * @param offset 查询起始行
      * @param limit 查询条数
      * @param status 状态
      * @param userId 根据userId查询
      */
     List<Message> selectMessageList(@Param("status") Integer status, @Param("userId") Integer userId,
+                                    @Param("cursor") PageCursor cursor,
                                     @Param("offset") Integer offset, @Param("limit") Integer limit);
 
     /**
@@ -1,9 +1,11 @@
 package com.fuchen.travel.background.mapper;
 
+import com.fuchen.travel.background.entity.PageCursor;
 import com.fuchen.travel.background.entity.Preserve;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -31,14 +33,15 @@ public interface ScenicMapper {
 
     /**
      * 分页查询全部景点
+     * @param cursor 分页游标，不为空时从游标处定位，忽略offset
      * @param offset 检索起始行
      * @param limit 简述条数
      * @return 返回list集合
      */
-    List<Preserve> selectScenic(@Param("offset") Integer offset, @Param("limit") Integer limit);
-    List<Preserve> selectScenic1(@Param("offset") Integer offset, @Param("limit") Integer limit);
-    List<Preserve> selectScenic2(@Param("offset") Integer offset, @Param("limit") Integer limit);
-    List<Preserve> selectScenic3(@Param("offset") Integer offset, @Param("limit") Integer limit);
+    List<Preserve> selectScenic(@Param("cursor") PageCursor cursor, @Param("offset") Integer offset, @Param("limit") Integer limit);
+    List<Preserve> selectScenic1(@Param("cursor") PageCursor cursor, @Param("offset") Integer offset, @Param("limit") Integer limit);
+    List<Preserve> selectScenic2(@Param("cursor") PageCursor cursor, @Param("offset") Integer offset, @Param("limit") Integer limit);
+    List<Preserve> selectScenic3(@Param("cursor") PageCursor cursor, @Param("offset") Integer offset, @Param("limit") Integer limit);
     /**
      * 推荐景点
      * @param scenicId 景点id
@@ -61,8 +64,9 @@ public interface ScenicMapper {
     /**
      * 插入景点信息
      * @param preserve
+     * @return 影响行数
      */
-    void insertScenic(@Param("scenic") Preserve preserve);
+    int insertScenic(@Param("scenic") Preserve preserve);
 
     /**
      * 修改景点信息
@@ -73,8 +77,9 @@ public interface ScenicMapper {
     /**
      * 修改景点的状态，将其设置为删除
      * @param list
+     * @return 影响行数
      */
-    void updateScenicById(@Param("ids") List<String> list);
+    int updateScenicById(@Param("ids") List<String> list);
 
     /**
      * 查询推荐景点的数量
@@ -101,4 +106,19 @@ public interface ScenicMapper {
                                          @Param("limit") Integer limit);
 
     Integer updateAudit(@Param("id") Integer id, @Param("audit") Integer audit);
+
+    /**
+     * 按id顺序分批查询需要建立搜索索引的数据
+     * @param afterId 上一批最后一条的id
+     * @param limit 每批数量
+     * @return
+     */
+    List<Preserve> selectScenicForIndex(@Param("afterId") Integer afterId, @Param("limit") Integer limit);
+
+    /**
+     * 根据id批量查询未移出的景点（搜索结果回表、索引对账）
+     * @param ids id集合
+     * @return
+     */
+    List<Preserve> selectScenicByIds(@Param("ids") Collection<Integer> ids);
 }
@@ -0,0 +1,20 @@
+package com.fuchen.travel.background.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/17
+ * 表统计信息-mapper层
+ */
+@Mapper
+public interface TableStatMapper {
+
+    /**
+     * 从information_schema读取表的估算行数，不扫描表
+     * @param table 表名
+     * @return 估算行数，表不存在返回null
+     */
+    Long selectTableRows(@Param("table") String table);
+}
@@ -1,9 +1,11 @@
 package com.fuchen.travel.background.mapper;
 
+import com.fuchen.travel.background.entity.PageCursor;
 import com.fuchen.travel.background.entity.User;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -47,13 +49,22 @@ public interface UserMapper {
      */
     User selectUserById(@Param("userId") Integer userId);
 
+    /**
+     * 根据用户id批量查询用户信息
+     * @param ids 用户id集合
+     * @return
+     */
+    List<User> selectUsersByIds(@Param("ids") Collection<Integer> ids);
+
     /**
      * 分页查询用户信息
+     * @param cursor 分页游标
      * @param offset 起始行
      * @param limit 查询条数
      * @return
      */
-    List<User> selectAllUser(@Param("offset") Integer offset, @Param("limit") Integer limit, @Param("type") Integer type);
+    List<User> selectAllUser(@Param("cursor") PageCursor cursor, @Param("offset") Integer offset,
+                             @Param("limit") Integer limit, @Param("type") Integer type);
 
     /**
      * 更改用户数据
@@ -106,8 +117,9 @@ public interface UserMapper {
      * @param salt
      * @param headerUrl
      * @param createTime
+     * @return 影响行数
      */
-    void insertUser(@Param("username") String username, @Param("email") String email,
+    int insertUser(@Param("username") String username, @Param("email") String email,
                     @Param("password") String password, @Param("salt") String salt,
                     @Param("headerUrl") String headerUrl, @Param("createTime") Date createTime);
 
@@ -115,8 +127,9 @@ public interface UserMapper {
     /**
      * 删除用户信息
      * @param ids 用户的id集合
+     * @return 影响行数
      */
-    void deleteUserById(@Param("ids") List<String> ids);
+    int deleteUserById(@Param("ids") List<String> ids);
 
     /**
      * 通过关键字查询用户
@@ -150,8 +163,9 @@ public interface UserMapper {
     /**
      * 修改用户状态为封禁
      * @param ids 用户id集合
+     * @return 影响行数
      */
-    void updateUserToBanStatus(@Param("ids") List<String> ids);
+    int updateUserToBanStatus(@Param("ids") List<String> ids);
 
     /**
      * 查询封禁用户
@@ -164,6 +178,26 @@ public interface UserMapper {
     /**
      * 修改用户状态为正常
      * @param ids 用户id集合
+     * @return 影响行数
+     */
+    int updateUserToNoBanStatus(@Param("ids")List<String> ids);
+
+    /**
+     * 查询群发邮件的收件人数量
+     * @param segment 收件人范围
+     * @param type 用户类型，segment为type时使用
+     * @return
+     */
+    Integer selectUserCountForCampaign(@Param("segment") String segment, @Param("type") Integer type);
+
+    /**
+     * 按id分批查询群发邮件的收件人
+     * @param segment 收件人范围
+     * @param type 用户类型，segment为type时使用
+     * @param afterId 从该id之后开始查询
+     * @param limit 查询条数
+     * @return
      */
-    void updateUserToNoBanStatus(@Param("ids")List<String> ids);
+    List<User> selectUsersForCampaign(@Param("segment") String segment, @Param("type") Integer type,
+                                      @Param("afterId") Integer afterId, @Param("limit") Integer limit);
 }
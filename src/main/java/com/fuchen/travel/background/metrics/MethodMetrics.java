@@ -0,0 +1,70 @@
+package com.fuchen.travel.background.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/26
+ * 一个方法的调用统计：耗时直方图（微秒）和失败次数
+ * 记录时只写Recorder，不加锁；查询时取出两次查询之间的数据并入累计直方图
+ */
+public class MethodMetrics {
+
+    /**
+     * 直方图的有效数字位数，3位时分位数的误差小于0.1%
+     */
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final String name;
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+
+    private final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+
+    private final LongAdder errors = new LongAdder();
+
+    private Histogram interval;
+
+    MethodMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 记录一次调用
+     * @param micros 耗时（微秒）
+     * @param failed 是否抛出异常
+     */
+    public void record(long micros, boolean failed) {
+        recorder.recordValue(Math.max(micros, 0));
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * 启动以来的统计
+     * @return 调用次数、失败次数、平均和各分位数耗时（毫秒）
+     */
+    public synchronized Map<String, Object> snapshot() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", total.getTotalCount());
+        map.put("errors", errors.sum());
+        map.put("mean", total.getMean() / 1000);
+        map.put("p50", total.getValueAtPercentile(50) / 1000.0);
+        map.put("p99", total.getValueAtPercentile(99) / 1000.0);
+        map.put("p999", total.getValueAtPercentile(99.9) / 1000.0);
+        map.put("max", total.getMaxValue() / 1000.0);
+        return map;
+    }
+}
@@ -0,0 +1,57 @@
+package com.fuchen.travel.background.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/26
+ * 方法调用统计的注册表，按Method查找，名称只在第一次调用时拼接
+ * 名称包含全部参数类型，重载的方法各自统计，名称不随遍历顺序变化
+ */
+@Component
+public class MetricsRegistry {
+
+    private final Map<Method, MethodMetrics> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * 获取方法的统计，不存在时创建
+     * @param method 被调用的方法
+     * @return 统计
+     */
+    public MethodMetrics get(Method method) {
+        MethodMetrics methodMetrics = metrics.get(method);
+        if (methodMetrics == null) {
+            methodMetrics = metrics.computeIfAbsent(method, key -> new MethodMetrics(getName(key)));
+        }
+        return methodMetrics;
+    }
+
+    /**
+     * 类名.方法名(参数类型,...)，例如UserServiceImpl.getUserSearchPage(String,String,Integer,Integer)
+     */
+    private static String getName(Method method) {
+        StringJoiner parameters = new StringJoiner(",", "(", ")");
+        for (Class<?> type : method.getParameterTypes()) {
+            parameters.add(type.getSimpleName());
+        }
+        return method.getDeclaringClass().getSimpleName() + "." + method.getName() + parameters;
+    }
+
+    /**
+     * 全部方法的统计，按名称排序
+     * @return 方法名到统计的映射
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> map = new TreeMap<>();
+        for (MethodMetrics methodMetrics : metrics.values()) {
+            map.put(methodMetrics.getName(), methodMetrics.snapshot());
+        }
+        return map;
+    }
+}
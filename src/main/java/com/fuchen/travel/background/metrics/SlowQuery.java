@@ -0,0 +1,57 @@
+package com.fuchen.travel.background.metrics;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/28
+ * 一次慢sql的记录：语句id、sql、绑定的参数和耗时
+ */
+public class SlowQuery {
+
+    private final Date time;
+
+    private final String statementId;
+
+    private final String sql;
+
+    private final List<String> params;
+
+    private final double millis;
+
+    private final boolean failed;
+
+    public SlowQuery(Date time, String statementId, String sql, List<String> params, double millis, boolean failed) {
+        this.time = time;
+        this.statementId = statementId;
+        this.sql = sql;
+        this.params = params;
+        this.millis = millis;
+        this.failed = failed;
+    }
+
+    public Date getTime() {
+        return time;
+    }
+
+    public String getStatementId() {
+        return statementId;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<String> getParams() {
+        return params;
+    }
+
+    public double getMillis() {
+        return millis;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+}
@@ -0,0 +1,48 @@
+package com.fuchen.travel.background.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/28
+ * 慢sql的环形缓冲区，只保留最近的若干条，写满后覆盖最旧的记录
+ */
+public class SlowQueryLog {
+
+    private final SlowQuery[] buffer;
+
+    /**
+     * 累计写入的条数，下一条写入的位置为 total % buffer.length
+     */
+    private long total;
+
+    public SlowQueryLog(int capacity) {
+        this.buffer = new SlowQuery[Math.max(capacity, 1)];
+    }
+
+    public synchronized void add(SlowQuery slowQuery) {
+        buffer[(int) (total % buffer.length)] = slowQuery;
+        total++;
+    }
+
+    /**
+     * 最近的慢sql，最新的在前
+     * @return 慢sql列表
+     */
+    public synchronized List<SlowQuery> recent() {
+        int size = (int) Math.min(total, buffer.length);
+        List<SlowQuery> list = new ArrayList<>(size);
+        for (long i = total - 1; i >= total - size; i--) {
+            list.add(buffer[(int) (i % buffer.length)]);
+        }
+        return list;
+    }
+
+    /**
+     * 启动以来的慢sql总数（包括已被覆盖的）
+     */
+    public synchronized long getTotal() {
+        return total;
+    }
+}
@@ -0,0 +1,183 @@
+package com.fuchen.travel.background.metrics;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/28
+ * mybatis插件：统计mapper中每条语句的耗时直方图，超过阈值的语句连同绑定的参数记入慢sql环形缓冲区
+ * 声明为spring bean后由mybatis-spring-boot-starter自动注册到SqlSessionFactory
+ */
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})
+})
+public class SqlMetricsInterceptor implements Interceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlMetricsInterceptor.class);
+
+    /**
+     * 只统计本项目mapper中的语句
+     */
+    private static final String MAPPER_PACKAGE = "com.fuchen.travel.background.mapper.";
+
+    /**
+     * 参数名包含这些字符串时不记录参数值
+     */
+    private static final String[] SENSITIVE_PARAMS = {"password", "salt"};
+
+    private final Map<String, MethodMetrics> statements = new ConcurrentHashMap<>();
+
+    private final SlowQueryLog slowQueryLog;
+
+    /**
+     * 慢sql阈值（微秒）
+     */
+    private final long slowMicros;
+
+    /**
+     * 记录的单个参数值的最大长度
+     */
+    private final int maxParamLength;
+
+    public SqlMetricsInterceptor(@Value("${travel.metrics.sql.slow-millis:200}") long slowMillis,
+                                 @Value("${travel.metrics.sql.slow-log-size:100}") int slowLogSize,
+                                 @Value("${travel.metrics.sql.max-param-length:200}") int maxParamLength) {
+        this.slowMicros = slowMillis * 1000;
+        this.slowQueryLog = new SlowQueryLog(slowLogSize);
+        this.maxParamLength = Math.max(maxParamLength, 4);
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object[] args = invocation.getArgs();
+        MappedStatement statement = (MappedStatement) args[0];
+        if (!statement.getId().startsWith(MAPPER_PACKAGE)) {
+            return invocation.proceed();
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = invocation.proceed();
+            failed = false;
+            return result;
+        } finally {
+            long micros = (System.nanoTime() - start) / 1000;
+            get(statement.getId()).record(micros, failed);
+            if (micros >= slowMicros) {
+                recordSlow(statement, args, micros, failed);
+            }
+        }
+    }
+
+    /**
+     * 全部语句的统计，按语句名称排序
+     * @return 语句名（mapper类名.方法名）到统计的映射
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> map = new TreeMap<>();
+        for (MethodMetrics metrics : statements.values()) {
+            map.put(metrics.getName(), metrics.snapshot());
+        }
+        return map;
+    }
+
+    /**
+     * 最近的慢sql，最新的在前
+     */
+    public List<SlowQuery> getSlowQueries() {
+        return slowQueryLog.recent();
+    }
+
+    /**
+     * 启动以来的慢sql总数
+     */
+    public long getSlowQueryTotal() {
+        return slowQueryLog.getTotal();
+    }
+
+    public long getSlowMillis() {
+        return slowMicros / 1000;
+    }
+
+    private MethodMetrics get(String statementId) {
+        MethodMetrics metrics = statements.get(statementId);
+        if (metrics == null) {
+            metrics = statements.computeIfAbsent(statementId,
+                    key -> new MethodMetrics(key.substring(MAPPER_PACKAGE.length())));
+        }
+        return metrics;
+    }
+
+    /**
+     * 记录慢sql，只有慢sql才解析参数；解析失败不影响本次执行的结果
+     */
+    private void recordSlow(MappedStatement statement, Object[] args, long micros, boolean failed) {
+        try {
+            Object parameter = args[1];
+            BoundSql boundSql = args.length == 6 ? (BoundSql) args[5] : statement.getBoundSql(parameter);
+            slowQueryLog.add(new SlowQuery(new Date(), statement.getId().substring(MAPPER_PACKAGE.length()),
+                    StringUtils.normalizeSpace(boundSql.getSql()), getParams(statement.getConfiguration(), boundSql, parameter),
+                    micros / 1000.0, failed));
+        } catch (RuntimeException e) {
+            log.warn("记录慢sql失败：" + statement.getId() + "，" + e.getMessage());
+        }
+    }
+
+    /**
+     * 按sql中?的顺序取出绑定的参数值，取值方式与mybatis的DefaultParameterHandler一致
+     */
+    private List<String> getParams(Configuration configuration, BoundSql boundSql, Object parameter) {
+        List<String> params = new ArrayList<>();
+        for (ParameterMapping mapping : boundSql.getParameterMappings()) {
+            if (mapping.getMode() == ParameterMode.OUT) {
+                continue;
+            }
+            String property = mapping.getProperty();
+            if (StringUtils.containsAny(property.toLowerCase(), SENSITIVE_PARAMS)) {
+                params.add("******");
+                continue;
+            }
+            Object value;
+            if (boundSql.hasAdditionalParameter(property)) {
+                value = boundSql.getAdditionalParameter(property);
+            } else if (parameter == null) {
+                value = null;
+            } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameter.getClass())) {
+                value = parameter;
+            } else {
+                value = configuration.newMetaObject(parameter).getValue(property);
+            }
+            params.add(StringUtils.abbreviate(String.valueOf(value), maxParamLength));
+        }
+        return params;
+    }
+}
@@ -0,0 +1,112 @@
+package com.fuchen.travel.background.search;
+
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
+import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/14
+ * 基于elasticsearch的搜索索引
+ */
+@Component
+@ConditionalOnProperty(name = "travel.search.mode", havingValue = "elasticsearch")
+public class ElasticsearchSearchIndex implements SearchIndex {
+
+    private final ElasticsearchOperations operations;
+
+    public ElasticsearchSearchIndex(ElasticsearchOperations operations) {
+        this.operations = operations;
+    }
+
+    /**
+     * 索引不存在时按SearchDocument的配置创建
+     */
+    @PostConstruct
+    public void init() {
+        IndexOperations indexOps = operations.indexOps(SearchDocument.class);
+        if (!indexOps.exists()) {
+            indexOps.createWithMapping();
+        }
+    }
+
+    @Override
+    public void save(SearchType type, Integer id, String content, int weight) {
+        String documentId = SearchDocument.getDocumentId(type, id);
+        operations.save(new SearchDocument(documentId, type.getValue(), id, weight, content));
+    }
+
+    @Override
+    public void delete(SearchType type, Integer id) {
+        operations.delete(SearchDocument.getDocumentId(type, id), SearchDocument.class);
+    }
+
+    @Override
+    public void clear(SearchType type) {
+        NativeSearchQuery query = new NativeSearchQueryBuilder()
+                .withQuery(QueryBuilders.termQuery("type", type.getValue()))
+                .build();
+        operations.delete(query, SearchDocument.class);
+    }
+
+    /**
+     * 使用scroll分批读取，只取entityId字段
+     */
+    @Override
+    public List<Integer> ids(SearchType type) {
+        NativeSearchQuery query = new NativeSearchQueryBuilder()
+                .withQuery(QueryBuilders.termQuery("type", type.getValue()))
+                .withSourceFilter(new FetchSourceFilter(new String[]{"entityId"}, null))
+                .build();
+        List<Integer> ids = new ArrayList<>();
+        try (SearchHitsIterator<SearchDocument> hits = operations.searchForStream(query, SearchDocument.class)) {
+            while (hits.hasNext()) {
+                ids.add(hits.next().getContent().getEntityId());
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public SearchResult search(SearchType type, String keyword, int offset, int limit) {
+        if (keyword == null || keyword.isEmpty()) {
+            return SearchResult.empty();
+        }
+        //短语匹配：分词必须按原顺序相邻出现，与LIKE "%关键词%"一致（只要求都出现时"西湖"会匹配"西…湖"），type只过滤不参与评分
+        NativeSearchQuery query = new NativeSearchQueryBuilder()
+                .withQuery(QueryBuilders.boolQuery()
+                        .filter(QueryBuilders.termQuery("type", type.getValue()))
+                        .must(QueryBuilders.matchPhraseQuery("content", keyword)))
+                .withSorts(SortBuilders.fieldSort("weight").order(SortOrder.DESC),
+                        SortBuilders.fieldSort("entityId").order(SortOrder.DESC))
+                .withPageable(PageRequest.of(offset / Math.max(limit, 1), Math.max(limit, 1)))
+                .withTrackTotalHits(true)
+                .build();
+        SearchHits<SearchDocument> hits = operations.search(query, SearchDocument.class);
+        List<Integer> ids = new ArrayList<>();
+        for (SearchHit<SearchDocument> hit : hits) {
+            ids.add(hit.getContent().getEntityId());
+        }
+        return new SearchResult(ids, hits.getTotalHits());
+    }
+
+    @Override
+    public boolean isLocal() {
+        return false;
+    }
+}
@@ -0,0 +1,222 @@
+package com.fuchen.travel.background.search;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/14
+ * 本地内存搜索索引，未部署elasticsearch时使用，启动时由SearchIndexer从数据库重建
+ * 每个节点各有一份，多节点部署时由SearchIndexer通过redis发布订阅把本节点的写入同步到其他节点
+ * 文本按单字和相邻两字（n-gram）建立倒排表，中文、手机号的任意子串都能命中；
+ * 先用关键词的n-gram求倒排表交集得到候选，再逐条确认包含关键词，结果与LIKE "%关键词%"一致
+ */
+@Component
+@ConditionalOnProperty(name = "travel.search.mode", havingValue = "memory", matchIfMissing = true)
+public class InMemorySearchIndex implements SearchIndex {
+
+    private final Map<SearchType, TypeIndex> indexes = new EnumMap<>(SearchType.class);
+
+    public InMemorySearchIndex() {
+        for (SearchType type : SearchType.values()) {
+            indexes.put(type, new TypeIndex());
+        }
+    }
+
+    @Override
+    public void save(SearchType type, Integer id, String content, int weight) {
+        indexes.get(type).save(id, content == null ? "" : content.toLowerCase(), weight);
+    }
+
+    @Override
+    public void delete(SearchType type, Integer id) {
+        indexes.get(type).delete(id);
+    }
+
+    @Override
+    public void clear(SearchType type) {
+        indexes.get(type).clear();
+    }
+
+    @Override
+    public List<Integer> ids(SearchType type) {
+        return indexes.get(type).ids();
+    }
+
+    @Override
+    public SearchResult search(SearchType type, String keyword, int offset, int limit) {
+        if (keyword == null || keyword.isEmpty()) {
+            return SearchResult.empty();
+        }
+        return indexes.get(type).search(keyword.toLowerCase(), offset, limit);
+    }
+
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
+    /**
+     * 文本的单字和相邻两字
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (int i = 0; i < text.length(); i++) {
+            tokens.add(text.substring(i, i + 1));
+            if (i + 1 < text.length()) {
+                tokens.add(text.substring(i, i + 2));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 关键词查询使用的分词：只有一个字时用单字，否则用全部相邻两字
+     */
+    static Set<String> queryTokens(String keyword) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (keyword.length() == 1) {
+            tokens.add(keyword);
+            return tokens;
+        }
+        for (int i = 0; i + 1 < keyword.length(); i++) {
+            tokens.add(keyword.substring(i, i + 2));
+        }
+        return tokens;
+    }
+
+    /**
+     * 某一种类型的索引
+     */
+    private static class TypeIndex {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private final Map<Integer, Document> documents = new HashMap<>();
+
+        private final Map<String, PostingList> postings = new HashMap<>();
+
+        void save(int id, String content, int weight) {
+            lock.writeLock().lock();
+            try {
+                Document old = documents.put(id, new Document(content, weight));
+                //修改时先移除旧文本的分词
+                if (old != null) {
+                    removePostings(id, old.content);
+                }
+                for (String token : tokenize(content)) {
+                    postings.computeIfAbsent(token, k -> new PostingList()).add(id);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void delete(int id) {
+            lock.writeLock().lock();
+            try {
+                Document old = documents.remove(id);
+                if (old != null) {
+                    removePostings(id, old.content);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void clear() {
+            lock.writeLock().lock();
+            try {
+                documents.clear();
+                postings.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        List<Integer> ids() {
+            lock.readLock().lock();
+            try {
+                return new ArrayList<>(documents.keySet());
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        SearchResult search(String keyword, int offset, int limit) {
+            List<int[]> matches = new ArrayList<>();
+            lock.readLock().lock();
+            try {
+                int[] candidates = candidates(keyword);
+                for (int id : candidates) {
+                    Document document = documents.get(id);
+                    //n-gram都出现不代表连续出现，确认包含整个关键词
+                    if (document != null && document.content.contains(keyword)) {
+                        matches.add(new int[]{id, document.weight});
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            //权重大的靠前，相同时id大的靠前
+            matches.sort((a, b) -> a[1] != b[1] ? Integer.compare(b[1], a[1]) : Integer.compare(b[0], a[0]));
+            List<Integer> ids = new ArrayList<>();
+            for (int i = offset; i < matches.size() && i < offset + limit; i++) {
+                ids.add(matches.get(i)[0]);
+            }
+            return new SearchResult(ids, matches.size());
+        }
+
+        /**
+         * 关键词全部n-gram倒排表的交集，从最短的倒排表开始求交
+         */
+        private int[] candidates(String keyword) {
+            List<PostingList> lists = new ArrayList<>();
+            for (String token : queryTokens(keyword)) {
+                PostingList list = postings.get(token);
+                if (list == null) {
+                    return new int[0];
+                }
+                lists.add(list);
+            }
+            lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+            int[] result = lists.get(0).toArray();
+            for (int i = 1; i < lists.size() && result.length > 0; i++) {
+                result = lists.get(i).intersect(result);
+            }
+            return result;
+        }
+
+        private void removePostings(int id, String content) {
+            for (String token : tokenize(content)) {
+                PostingList list = postings.get(token);
+                if (list != null) {
+                    list.remove(id);
+                    if (list.isEmpty()) {
+                        postings.remove(token);
+                    }
+                }
+            }
+        }
+    }
+
+    private static class Document {
+        private final String content;
+        private final int weight;
+
+        private Document(String content, int weight) {
+            this.content = content;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.fuchen.travel.background.search;
+
+import java.util.Arrays;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/15
+ * 倒排表：有序、不重复的文档id，保存在int数组中
+ */
+class PostingList {
+
+    private int[] ids = new int[4];
+    private int size;
+
+    /**
+     * 加入id，已存在时忽略
+     */
+    void add(int id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            return;
+        }
+        index = -index - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        ids[index] = id;
+        size++;
+    }
+
+    /**
+     * 删除id，不存在时忽略
+     */
+    void remove(int id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        size--;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 复制出全部id
+     */
+    int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * 与有序数组求交集
+     * @param other 有序的id数组
+     * @return 交集，仍然有序
+     */
+    int[] intersect(int[] other) {
+        int[] result = new int[Math.min(size, other.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.length) {
+            if (ids[i] < other[j]) {
+                i++;
+            } else if (ids[i] > other[j]) {
+                j++;
+            } else {
+                result[count++] = ids[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
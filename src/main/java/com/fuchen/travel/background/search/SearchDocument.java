@@ -0,0 +1,46 @@
+package com.fuchen.travel.background.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.Setting;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/14
+ * elasticsearch中的搜索文档，所有类型共用一个索引，用type区分
+ * content使用n-gram分词，与原来的LIKE "%关键词%"一样能匹配任意位置的子串（包括手机号）
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@Document(indexName = "travel_search")
+@Setting(settingPath = "elasticsearch/search-settings.json")
+public class SearchDocument {
+
+    //类型_实体id
+    @Id
+    private String id;
+
+    @Field(type = FieldType.Keyword)
+    private String type;
+
+    @Field(type = FieldType.Integer)
+    private Integer entityId;
+
+    @Field(type = FieldType.Integer)
+    private Integer weight;
+
+    @Field(type = FieldType.Text, analyzer = "ngram_analyzer")
+    private String content;
+
+    public static String getDocumentId(SearchType type, Integer id) {
+        return type.getValue() + "_" + id;
+    }
+}
@@ -0,0 +1,56 @@
+package com.fuchen.travel.background.search;
+
+import java.util.List;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/14
+ * 搜索索引，由travel.search.mode选择实现：elasticsearch或本地内存
+ */
+public interface SearchIndex {
+
+    /**
+     * 添加或覆盖文档
+     * @param type 数据类型
+     * @param id 实体id
+     * @param content 被搜索的文本
+     * @param weight 排序权重，越大越靠前，相同时id大的靠前
+     */
+    void save(SearchType type, Integer id, String content, int weight);
+
+    /**
+     * 删除文档
+     * @param type 数据类型
+     * @param id 实体id
+     */
+    void delete(SearchType type, Integer id);
+
+    /**
+     * 清空某种类型的全部文档（重建本地索引前使用，共享的索引清空后所有节点都搜不到数据，不能使用）
+     * @param type 数据类型
+     */
+    void clear(SearchType type);
+
+    /**
+     * 某种类型已建立索引的全部实体id，对账时用于找出数据库中已删除的数据
+     * @param type 数据类型
+     * @return 实体id
+     */
+    List<Integer> ids(SearchType type);
+
+    /**
+     * 搜索包含关键词的文档
+     * @param type 数据类型
+     * @param keyword 关键词
+     * @param offset 起始行
+     * @param limit 查询条数
+     * @return 当前页的id和命中总数
+     */
+    SearchResult search(SearchType type, String keyword, int offset, int limit);
+
+    /**
+     * 索引是否只保存在本节点的内存中，是时本节点的写入需要通知其他节点
+     * @return 本地索引返回true，elasticsearch等共享的索引返回false
+     */
+    boolean isLocal();
+}
@@ -0,0 +1,29 @@
+package com.fuchen.travel.background.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/29
+ * 本地内存索引的变更通知：一个节点写入索引后通过redis发布，其他节点收到后写入各自的索引
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchIndexMessage {
+
+    //发出通知的节点，收到自己发出的通知时忽略
+    private String nodeId;
+
+    private SearchType type;
+
+    //新增或修改的实体，删除时为null
+    private Object entity;
+
+    //删除的实体id
+    private List<Integer> removedIds;
+}
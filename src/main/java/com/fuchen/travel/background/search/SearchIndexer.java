@@ -0,0 +1,375 @@
+package com.fuchen.travel.background.search;
+
+import com.fuchen.travel.background.entity.BathroomType;
+import com.fuchen.travel.background.entity.DiscussPost;
+import com.fuchen.travel.background.entity.Goods;
+import com.fuchen.travel.background.entity.Preserve;
+import com.fuchen.travel.background.mapper.BathroomTypeMapper;
+import com.fuchen.travel.background.mapper.DiscussPostMapper;
+import com.fuchen.travel.background.mapper.GoodsMapper;
+import com.fuchen.travel.background.mapper.ScenicMapper;
+import com.fuchen.travel.background.util.TravelUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/14
+ * 搜索索引的写入：service的写操作调用这里，在单线程的线程池中按顺序异步写入索引，不阻塞请求
+ * 其他应用（小程序等）直接写入数据库的数据由定时同步补上：按id增量同步新数据，定期全量覆盖一遍修改过的数据并删除已删除的数据
+ * 使用本地内存索引时，本节点的写入通过redis发布给其他节点，各节点的索引保持一致
+ */
+@Component
+public class SearchIndexer implements MessageListener {
+
+    /**
+     * 索引变更通知的频道
+     */
+    public static final String CHANNEL = "searchIndex:update";
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexer.class);
+
+    /**
+     * 重建索引时每批从数据库读取的数量
+     */
+    private static final int BATCH_SIZE = 500;
+
+    private final SearchIndex searchIndex;
+
+    private final TaskExecutor executor;
+
+    private final DiscussPostMapper discussPostMapper;
+
+    private final ScenicMapper scenicMapper;
+
+    private final GoodsMapper goodsMapper;
+
+    private final BathroomTypeMapper bathroomTypeMapper;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 本节点的标识，用于忽略自己发出的变更通知
+     */
+    private final String nodeId = TravelUtil.generateUUID();
+
+    /**
+     * 启动时是否从数据库重建索引，使用本地内存索引时必须开启
+     */
+    private final boolean rebuildOnStartup;
+
+    /**
+     * 每种类型已从数据库同步到的最大id，只在索引线程中读写
+     * 本应用写入时不更新，否则其他应用写入的id更小的数据会被跳过
+     */
+    private final Map<SearchType, Integer> syncedIds = new EnumMap<>(SearchType.class);
+
+    public SearchIndexer(SearchIndex searchIndex, @Qualifier("searchIndexExecutor") TaskExecutor executor,
+                         DiscussPostMapper discussPostMapper, ScenicMapper scenicMapper,
+                         GoodsMapper goodsMapper, BathroomTypeMapper bathroomTypeMapper,
+                         RedisTemplate<String, Object> redisTemplate,
+                         @Value("${travel.search.rebuild-on-startup:true}") boolean rebuildOnStartup) {
+        this.searchIndex = searchIndex;
+        this.executor = executor;
+        this.discussPostMapper = discussPostMapper;
+        this.scenicMapper = scenicMapper;
+        this.goodsMapper = goodsMapper;
+        this.bathroomTypeMapper = bathroomTypeMapper;
+        this.redisTemplate = redisTemplate;
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    /**
+     * 帖子新增或恢复
+     */
+    public void indexPost(DiscussPost post) {
+        if (post.getId() != null) {
+            submit(() -> {
+                savePost(post);
+                publish(new SearchIndexMessage(nodeId, SearchType.POST, post, null));
+            });
+        }
+    }
+
+    /**
+     * 景点（预约）新增或修改
+     */
+    public void indexScenic(Preserve preserve) {
+        if (preserve.getId() != null) {
+            submit(() -> {
+                saveScenic(preserve);
+                publish(new SearchIndexMessage(nodeId, SearchType.SCENIC, preserve, null));
+            });
+        }
+    }
+
+    /**
+     * 商品新增
+     */
+    public void indexGoods(Goods goods) {
+        if (goods.getId() != null) {
+            submit(() -> {
+                saveGoods(goods);
+                publish(new SearchIndexMessage(nodeId, SearchType.GOODS, goods, null));
+            });
+        }
+    }
+
+    /**
+     * 浴室类型新增
+     */
+    public void indexBathroomType(BathroomType bathroomType) {
+        if (bathroomType.getId() != null) {
+            submit(() -> {
+                saveBathroomType(bathroomType);
+                publish(new SearchIndexMessage(nodeId, SearchType.BATHROOM_TYPE, bathroomType, null));
+            });
+        }
+    }
+
+    /**
+     * 从索引中删除
+     * @param type 数据类型
+     * @param ids 实体id
+     */
+    public void remove(SearchType type, Collection<Integer> ids) {
+        List<Integer> removedIds = new ArrayList<>(ids);
+        submit(() -> {
+            removedIds.forEach(id -> searchIndex.delete(type, id));
+            publish(new SearchIndexMessage(nodeId, type, null, removedIds));
+        });
+    }
+
+    /**
+     * 收到其他节点的索引变更通知，写入本节点的索引
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        if (!(body instanceof SearchIndexMessage) || !searchIndex.isLocal()) {
+            return;
+        }
+        SearchIndexMessage indexMessage = (SearchIndexMessage) body;
+        if (nodeId.equals(indexMessage.getNodeId())) {
+            return;
+        }
+        submit(() -> apply(indexMessage));
+    }
+
+    private void apply(SearchIndexMessage message) {
+        if (message.getEntity() == null) {
+            if (message.getRemovedIds() != null) {
+                message.getRemovedIds().forEach(id -> searchIndex.delete(message.getType(), id));
+            }
+            return;
+        }
+        switch (message.getType()) {
+            case POST:
+                savePost((DiscussPost) message.getEntity());
+                break;
+            case SCENIC:
+                saveScenic((Preserve) message.getEntity());
+                break;
+            case GOODS:
+                saveGoods((Goods) message.getEntity());
+                break;
+            case BATHROOM_TYPE:
+                saveBathroomType((BathroomType) message.getEntity());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 使用本地索引时通知其他节点，elasticsearch等共享的索引不需要
+     */
+    private void publish(SearchIndexMessage message) {
+        if (searchIndex.isLocal()) {
+            redisTemplate.convertAndSend(CHANNEL, message);
+        }
+    }
+
+    /**
+     * 应用启动后在后台重建全部索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (rebuildOnStartup) {
+            submit(this::rebuild);
+        }
+    }
+
+    /**
+     * 定时同步其他应用新增的数据：从已同步的最大id往后读取（表中没有修改时间字段，只能按id增量）
+     */
+    @Scheduled(initialDelayString = "${travel.search.catch-up-millis:60000}",
+            fixedDelayString = "${travel.search.catch-up-millis:60000}")
+    public void catchUpNew() {
+        submit(() -> {
+            for (SearchType type : SearchType.values()) {
+                sync(type, false, false, syncedIds.getOrDefault(type, 0));
+            }
+        });
+    }
+
+    /**
+     * 定时全量覆盖一遍索引，补上其他应用修改过的数据，并删除其他应用删除或撤销的数据；不清空索引，同步期间搜索不受影响
+     * 默认每天凌晨执行，配置为"-"时关闭
+     */
+    @Scheduled(cron = "${travel.search.reconcile-cron:0 30 3 * * ?}")
+    public void reconcile() {
+        submit(() -> {
+            for (SearchType type : SearchType.values()) {
+                sync(type, false, true, 0);
+            }
+        });
+    }
+
+    /**
+     * 从数据库重建全部索引
+     * 本地索引先清空再写入；elasticsearch等共享的索引被所有节点使用，清空后全集群在重建完成前都搜不到数据，
+     * 因此不清空，逐条覆盖后删除数据库中已不存在的文档，与定时对账相同
+     */
+    public void rebuild() {
+        boolean clear = searchIndex.isLocal();
+        for (SearchType type : SearchType.values()) {
+            sync(type, clear, !clear, 0);
+        }
+    }
+
+    /**
+     * 从数据库同步一种类型的数据
+     * @param type 数据类型
+     * @param clear 是否先清空该类型的索引，只能用于本地索引
+     * @param prune 同步完成后是否删除数据库中已不存在的文档，需要从头读取全部数据
+     * @param afterId 从这个id之后开始读取
+     */
+    private void sync(SearchType type, boolean clear, boolean prune, int afterId) {
+        switch (type) {
+            case POST:
+                sync(type, clear, prune, afterId, discussPostMapper::selectPostsForIndex,
+                        discussPostMapper::selectPostsByIds, DiscussPost::getId, this::savePost);
+                break;
+            case SCENIC:
+                sync(type, clear, prune, afterId, scenicMapper::selectScenicForIndex,
+                        scenicMapper::selectScenicByIds, Preserve::getId, this::saveScenic);
+                break;
+            case GOODS:
+                sync(type, clear, prune, afterId, goodsMapper::selectGoodsForIndex,
+                        goodsMapper::selectGoodsByIds, Goods::getId, this::saveGoods);
+                break;
+            case BATHROOM_TYPE:
+                sync(type, clear, prune, afterId, bathroomTypeMapper::selectBathroomTypeForIndex,
+                        bathroomTypeMapper::selectBathroomTypeByIds, BathroomType::getId, this::saveBathroomType);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private <T> void sync(SearchType type, boolean clear, boolean prune, int afterId,
+                          BiFunction<Integer, Integer, List<T>> loader, Function<Collection<Integer>, List<T>> reloader,
+                          Function<T, Integer> idGetter, Consumer<T> saver) {
+        long start = System.currentTimeMillis();
+        if (clear) {
+            searchIndex.clear(type);
+        }
+        //全量同步时记录数据库中存在的id
+        BitSet existing = prune ? new BitSet() : null;
+        int count = 0;
+        List<T> batch;
+        do {
+            batch = loader.apply(afterId, BATCH_SIZE);
+            for (T item : batch) {
+                saver.accept(item);
+                afterId = idGetter.apply(item);
+                if (existing != null) {
+                    existing.set(afterId);
+                }
+            }
+            count += batch.size();
+        } while (batch.size() == BATCH_SIZE);
+        syncedIds.merge(type, afterId, Math::max);
+        int removed = prune ? prune(type, existing, reloader, idGetter) : 0;
+        if (clear || count > 0 || removed > 0) {
+            log.info("同步搜索索引：" + type.getValue() + "，共" + count + "条，删除" + removed + "条，耗时"
+                    + (System.currentTimeMillis() - start) + "ms");
+        }
+    }
+
+    /**
+     * 删除索引中有、数据库中已删除或撤销的文档，其他应用直接修改数据库时不会通知本应用
+     * 扫描期间数据可能被新增或恢复，删除前按id再查一次数据库，查得到的保留
+     * @param existing 本次扫描读到的id
+     * @return 删除的数量
+     */
+    private <T> int prune(SearchType type, BitSet existing, Function<Collection<Integer>, List<T>> reloader,
+                          Function<T, Integer> idGetter) {
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : searchIndex.ids(type)) {
+            if (!existing.get(id)) {
+                missing.add(id);
+            }
+        }
+        int removed = 0;
+        for (int i = 0; i < missing.size(); i += BATCH_SIZE) {
+            List<Integer> ids = new ArrayList<>(missing.subList(i, Math.min(i + BATCH_SIZE, missing.size())));
+            for (T item : reloader.apply(ids)) {
+                ids.remove(idGetter.apply(item));
+            }
+            ids.forEach(id -> searchIndex.delete(type, id));
+            removed += ids.size();
+        }
+        return removed;
+    }
+
+    private void savePost(DiscussPost post) {
+        //置顶等类型越大越靠前，与原来按type倒序一致
+        int weight = post.getType() == null ? 0 : post.getType();
+        searchIndex.save(SearchType.POST, post.getId(), post.getTitle(), weight);
+    }
+
+    private void saveScenic(Preserve preserve) {
+        searchIndex.save(SearchType.SCENIC, preserve.getId(), preserve.getPhone(), 0);
+    }
+
+    private void saveGoods(Goods goods) {
+        searchIndex.save(SearchType.GOODS, goods.getId(), goods.getName(), 0);
+    }
+
+    private void saveBathroomType(BathroomType bathroomType) {
+        searchIndex.save(SearchType.BATHROOM_TYPE, bathroomType.getId(), bathroomType.getName(), 0);
+    }
+
+    private void submit(Runnable task) {
+        executor.execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                //索引写入失败不影响业务，下次重建时修正
+                log.warn("写入搜索索引失败：" + e.getMessage());
+            }
+        });
+    }
+}
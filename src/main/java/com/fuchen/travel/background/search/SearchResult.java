@@ -0,0 +1,80 @@
+package com.fuchen.travel.background.search;
+
+import com.fuchen.travel.background.entity.SearchPage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/14
+ * 搜索结果：当前页的id和命中总数，一次查询同时得到
+ */
+public class SearchResult {
+
+    private static final SearchResult EMPTY = new SearchResult(Collections.emptyList(), 0);
+
+    //当前页的实体id，按搜索结果排序
+    private final List<Integer> ids;
+    //命中总数
+    private final long total;
+
+    public SearchResult(List<Integer> ids, long total) {
+        this.ids = ids;
+        this.total = total;
+    }
+
+    public static SearchResult empty() {
+        return EMPTY;
+    }
+
+    public List<Integer> getIds() {
+        return ids;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return ids.isEmpty();
+    }
+
+    /**
+     * 数据库按id批量查询后顺序不确定，按搜索结果的顺序重新排列
+     * @param list 查询出的数据
+     * @param idGetter 获取id的方法
+     * @return 排序后的数据，已不存在的数据被忽略
+     */
+    public <T> List<T> orderBy(List<T> list, Function<T, Integer> idGetter) {
+        Map<Integer, T> map = new HashMap<>();
+        for (T item : list) {
+            map.put(idGetter.apply(item), item);
+        }
+        List<T> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            T item = map.get(id);
+            if (item != null) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按id查询当前页的数据，与命中总数一起组成分页结果
+     * @param loader 按id批量查询的方法
+     * @param idGetter 获取id的方法
+     * @return 分页结果
+     */
+    public <T> SearchPage<T> toPage(Function<List<Integer>, List<T>> loader, Function<T, Integer> idGetter) {
+        if (isEmpty()) {
+            return new SearchPage<>(Collections.emptyList(), (int) total);
+        }
+        return new SearchPage<>(orderBy(loader.apply(ids), idGetter), (int) total);
+    }
+}
@@ -0,0 +1,39 @@
+package com.fuchen.travel.background.search;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/14
+ * 可搜索的数据类型
+ */
+public enum SearchType {
+
+    /**
+     * 帖子，按标题搜索
+     */
+    POST("post"),
+
+    /**
+     * 预约，按手机号搜索
+     */
+    SCENIC("scenic"),
+
+    /**
+     * 商品，按名称搜索
+     */
+    GOODS("goods"),
+
+    /**
+     * 浴室类型，按名称搜索
+     */
+    BATHROOM_TYPE("bathroomType");
+
+    private final String value;
+
+    SearchType(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
@@ -1,6 +1,7 @@
 package com.fuchen.travel.background.service;
 
 import com.fuchen.travel.background.entity.BathroomType;
+import com.fuchen.travel.background.entity.SearchPage;
 
 import org.springframework.web.multipart.MultipartFile;
 
@@ -51,4 +52,13 @@ public interface BathroomTypeService {
      * @return
      */
     List<BathroomType> getBathroomTypeSearch(String keyword, Integer offset, Integer limit);
+
+    /**
+     * 搜索浴室类型，一次查询同时得到当前页数据和命中总数
+     * @param keyword 关键词
+     * @param offset 起始行
+     * @param limit 每页数量
+     * @return 分页结果
+     */
+    SearchPage<BathroomType> getBathroomTypeSearchPage(String keyword, Integer offset, Integer limit);
 }
@@ -0,0 +1,23 @@
+package com.fuchen.travel.background.service;
+
+import com.fuchen.travel.background.entity.DashboardSnapshot;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/09
+ * 首页统计-service层
+ */
+public interface DashboardService {
+
+    /**
+     * 获取首页统计快照
+     * @return 快照，定时任务还未生成或快照已过期时返回null
+     */
+    DashboardSnapshot getSnapshot();
+
+    /**
+     * 重新计算首页统计快照并写入redis
+     * @return 新的快照
+     */
+    DashboardSnapshot refreshSnapshot();
+}
@@ -1,8 +1,11 @@
 package com.fuchen.travel.background.service;
 
 import com.fuchen.travel.background.entity.DiscussPost;
+import com.fuchen.travel.background.entity.Page;
+import com.fuchen.travel.background.entity.SearchPage;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author 伏辰
@@ -18,14 +21,20 @@ public interface DiscussPostService {
      */
     Integer getPostCount(String keyword);
 
+    /**
+     * 在线程池中获取帖子总数
+     * @param keyword 关键字
+     * @return 返回贴子数量
+     */
+    CompletableFuture<Integer> getPostCountAsync(String keyword);
+
     /**
      * 获取帖子信息
      * @param sort 查询类型参数
-     * @param offset 分页起始行
-     * @param limit 分页条数
+     * @param page 分页对象，按id、时间排序时使用键集分页
      * @return 返回帖子信息集合
      */
-    List<DiscussPost> getPost(String sort, Integer offset, Integer limit);
+    List<DiscussPost> getPost(String sort, Page page);
 
     /**
      * 添加帖子
@@ -41,6 +50,15 @@ public interface DiscussPostService {
      */
     Integer getPostCountByKeyword(String keyword);
 
+    /**
+     * 搜索帖子，一次查询同时得到当前页数据和命中总数
+     * @param keyword 关键词
+     * @param offset 起始行
+     * @param limit 每页数量
+     * @return 分页结果
+     */
+    SearchPage<DiscussPost> getPostSearchPage(String keyword, Integer offset, Integer limit);
+
     /**
      * 更改帖子的状态，撤销的贴子恢复正常，正常的帖子撤销
      * @param postId 需要更改状态的帖子id
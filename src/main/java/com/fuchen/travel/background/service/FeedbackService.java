@@ -1,6 +1,7 @@
 package com.fuchen.travel.background.service;
 
 import com.fuchen.travel.background.entity.Feedback;
+import com.fuchen.travel.background.entity.Page;
 
 import java.util.List;
 
@@ -19,9 +20,8 @@ public interface FeedbackService {
 
     /**
      * 查找全部的意见反馈信息
-     * @param offset 分页起始行
-     * @param limit 分页条数
+     * @param page 分页对象
      * @return 返回一个Feedback集合
      */
-    List<Feedback> findAllFeedback(Integer offset, Integer limit);
+    List<Feedback> findAllFeedback(Page page);
 }
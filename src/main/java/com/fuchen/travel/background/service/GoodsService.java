@@ -2,6 +2,8 @@ package com.fuchen.travel.background.service;
 
 import com.fuchen.travel.background.entity.Goods;
 import com.fuchen.travel.background.entity.GoodsOrder;
+import com.fuchen.travel.background.entity.Page;
+import com.fuchen.travel.background.entity.SearchPage;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
@@ -19,7 +21,7 @@ public interface GoodsService {
      */
     Integer getGoodsCount ();
 
-    List<Goods> getGoods(Integer offset, Integer limit);
+    List<Goods> getGoods(Page page);
 
     void addGoods(Goods goods, MultipartFile goodsImg, String filename, String suffix);
 
@@ -29,6 +31,8 @@ public interface GoodsService {
 
     List<Goods> getScenicSearch(String keyword, Integer offset, Integer limit);
 
+    SearchPage<Goods> getGoodsSearchPage(String keyword, Integer offset, Integer limit);
+
     Integer getOrderCount();
 
     List<GoodsOrder> getGoodsOrder(Integer offset, Integer limit);
@@ -1,5 +1,9 @@
 package com.fuchen.travel.background.service;
 
+import com.fuchen.travel.background.util.IntLongMap;
+
+import java.util.Collection;
+
 /**
  * @author 伏辰
  * @date 2023/1/11
@@ -14,4 +18,12 @@ public interface LikeService {
      * @return 赞数量
      */
     long findEntityLikeCount(Integer entityType, Integer entityId);
+
+    /**
+     * 批量查询实体点赞数量，本地缓存未命中的部分一次往返取出
+     * @param entityType 点赞的实体
+     * @param entityIds 实体的id集合
+     * @return 实体id与赞数量
+     */
+    IntLongMap findEntityLikeCounts(int entityType, Collection<Integer> entityIds);
 }
@@ -1,8 +1,10 @@
 package com.fuchen.travel.background.service;
 
 import com.fuchen.travel.background.entity.Message;
+import com.fuchen.travel.background.entity.Page;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author 伏辰
@@ -22,11 +24,10 @@ public interface MessageService {
     /**
      * 查询消息信息
      * @param status 状态
-     * @param offset 查询起始行
-     * @param limit 查询条数
+     * @param page 分页对象
      * @return 返回消息列表
      */
-    List<Message> getMessage(String status, Integer offset, Integer limit);
+    List<Message> getMessage(String status, Page page);
 
     /**
      * 修改消息状态
@@ -42,4 +43,21 @@ public interface MessageService {
      * @param content 内容
      */
     void sendEmail(String email, String title, String content);
+
+    /**
+     * 群发邮件，在后台发送
+     * @param segment 收件人范围（all、banned、type）
+     * @param type 用户类型，segment为type时使用
+     * @param title 主题
+     * @param content 内容
+     * @return 群发id，用于查询进度
+     */
+    String sendCampaign(String segment, Integer type, String title, String content);
+
+    /**
+     * 查询群发进度
+     * @param id 群发id
+     * @return 进度计数
+     */
+    Map<Object, Object> getCampaignProgress(String id);
 }
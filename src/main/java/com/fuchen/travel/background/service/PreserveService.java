@@ -1,9 +1,12 @@
 package com.fuchen.travel.background.service;
 
+import com.fuchen.travel.background.entity.Page;
 import com.fuchen.travel.background.entity.Preserve;
+import com.fuchen.travel.background.entity.SearchPage;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author 伏辰
@@ -24,6 +27,12 @@ public interface PreserveService {
      */
     Integer getScenicCount ();
 
+    /**
+     * 在线程池中获取景点总数
+     * @return 景点总数
+     */
+    CompletableFuture<Integer> getScenicCountAsync();
+
     /**
      * 获取景点总数
      * @return 景点总数
@@ -34,15 +43,14 @@ public interface PreserveService {
 
 
     /**
-     * 分页查询全部景点
-     * @param offset 检索起始行
-     * @param limit 简述条数
+     * 分页查询全部景点，优先使用键集分页
+     * @param page 分页对象，查询后会写入下一页游标
      * @return 景点的list集合
      */
-    List<Preserve> getScenic(Integer offset, Integer limit);
-    List<Preserve> getScenic1(Integer offset, Integer limit);
-    List<Preserve> getScenic2(Integer offset, Integer limit);
-    List<Preserve> getScenic3(Integer offset, Integer limit);
+    List<Preserve> getScenic(Page page);
+    List<Preserve> getScenic1(Page page);
+    List<Preserve> getScenic2(Page page);
+    List<Preserve> getScenic3(Page page);
     /**
      * 推荐景点
      * @param recommendScenic 景点id
@@ -61,6 +69,12 @@ public interface PreserveService {
      */
     Integer getScenicRecommendCount();
 
+    /**
+     * 在线程池中查询推荐的景点数量
+     * @return
+     */
+    CompletableFuture<Integer> getScenicRecommendCountAsync();
+
     /**
      * 判断指定景点是否存在
      * @param scenicName
@@ -96,5 +110,14 @@ public interface PreserveService {
      */
     List<Preserve> getScenicSearch(String keyword, Integer offset, Integer limit);
 
+    /**
+     * 搜索景点，一次查询同时得到当前页数据和命中总数
+     * @param keyword 关键词
+     * @param offset 起始行
+     * @param limit 每页数量
+     * @return 分页结果
+     */
+    SearchPage<Preserve> getScenicSearchPage(String keyword, Integer offset, Integer limit);
+
     Integer updateAudit(Integer auditId, Integer audit);
 }
@@ -1,13 +1,17 @@
 package com.fuchen.travel.background.service;
 
 import com.fuchen.travel.background.entity.LoginTicket;
+import com.fuchen.travel.background.entity.Page;
+import com.fuchen.travel.background.entity.SearchPage;
 import com.fuchen.travel.background.entity.User;
 
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @Author 伏辰
@@ -22,19 +26,31 @@ public interface UserService {
      */
     Integer getUserCount(HttpServletRequest request);
 
+    /**
+     * 在线程池中获取用户数量（线程池中不能使用request，需要先取出登录用户）
+     * @param loginUser 当前登录的用户
+     * @return
+     */
+    CompletableFuture<Integer> getUserCountAsync(User loginUser);
+
     /**
      * 获取封禁用户数量
      * @return
      */
     Integer getBanUserCount();
 
+    /**
+     * 在线程池中获取封禁用户数量
+     * @return
+     */
+    CompletableFuture<Integer> getBanUserCountAsync();
+
     /**
      * 分页获取用户信息
-     * @param offset
-     * @param limit
+     * @param page 分页对象
      * @return
      */
-    List<User> getAllUser(Integer offset, Integer limit, HttpServletRequest request);
+    List<User> getAllUser(Page page, HttpServletRequest request);
 
     /**
      * 获取用户信息
@@ -65,6 +81,13 @@ public interface UserService {
      */
     LoginTicket findLoginTicket(String ticket);
 
+    /**
+     * 获取缓存的用户信息，依次查询本地缓存、redis、数据库
+     * @param userId 用户id
+     * @return
+     */
+    User findCachedUser(Integer userId);
+
     /**
      * 通过id获取用户信息
      * @param userId
@@ -72,6 +95,13 @@ public interface UserService {
      */
     User getUserById(Integer userId);
 
+    /**
+     * 根据用户id批量获取用户信息，一次请求内已查询过的用户不再查询
+     * @param userIds 用户id集合
+     * @return 用户id与用户信息，不存在的用户不包含在内
+     */
+    Map<Integer, User> getUsersByIds(Collection<Integer> userIds);
+
 
     /**
      * 修改用户信息
@@ -158,6 +188,16 @@ public interface UserService {
      */
     Integer getUserCountSearch(String keyword, String type);
 
+    /**
+     * 搜索用户，只执行一次分页查询，命中总数能由当前页推算时不再计数，否则使用缓存的数量
+     * @param keyword 关键词
+     * @param type 用户类型
+     * @param offset 起始行
+     * @param limit 每页数量
+     * @return 分页结果
+     */
+    SearchPage<User> getUserSearchPage(String keyword, String type, Integer offset, Integer limit);
+
     /**
      * 查询管理员数量
      * @return
@@ -1,17 +1,25 @@
 package com.fuchen.travel.background.service.impl;
 
+import com.fuchen.travel.background.cache.CountCache;
 import com.fuchen.travel.background.entity.BathroomType;
+import com.fuchen.travel.background.entity.SearchPage;
 import com.fuchen.travel.background.mapper.BathroomTypeMapper;
+import com.fuchen.travel.background.search.SearchIndex;
+import com.fuchen.travel.background.search.SearchIndexer;
+import com.fuchen.travel.background.search.SearchResult;
+import com.fuchen.travel.background.search.SearchType;
 import com.fuchen.travel.background.service.BathroomTypeService;
-import com.fuchen.travel.background.util.QCloudUtil;
+import com.fuchen.travel.background.storage.ThumbnailService;
+import com.fuchen.travel.background.storage.UploadQueue;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * @author rtq
@@ -20,29 +28,17 @@ import java.util.List;
 @Service
 public class BathroomTypeServiceImpl implements BathroomTypeService {
     @Autowired
-    private RedisTemplate redisTemplate;
+    private CountCache countCache;
 
     @Autowired
     private BathroomTypeMapper bathroomTypeMapper;
 
+    @Autowired
+    private SearchIndex searchIndex;
 
-    /**
-     * 腾讯云存储地区
-     */
-    @Value("${qcloud.cosRegion}")
-    private String cosRegion;
-
-    /**
-     * 腾讯云密钥id
-     */
-    @Value("${qcloud.key.secretId}")
-    private String secretId;
+    @Autowired
+    private SearchIndexer searchIndexer;
 
-    /**
-     * 腾讯云密钥key
-     */
-    @Value("${qcloud.key.secretKey}")
-    private String secretKey;
 
     /**
      * 腾讯云对象存储桶名
@@ -57,24 +53,20 @@ public class BathroomTypeServiceImpl implements BathroomTypeService {
     private String qCloudUrl;
 
     /**
-     * 腾讯云工具类对象
+     * 异步上传队列
      */
     @Autowired
-    private QCloudUtil qCloudUtil;
+    private UploadQueue uploadQueue;
+
+    /**
+     * 缩略图
+     */
+    @Autowired
+    private ThumbnailService thumbnailService;
     @Override
     public Integer getScenicCount() {
-
-        //从redis中取出浴室总数
-        Integer scenicCount = (Integer) redisTemplate.opsForValue().get("scenicCount");
-        //如果浴室数量不为空，则返回浴室数量,否则重新进入数据库查询
-        if (scenicCount != null) {
-            return scenicCount;
-        }
-        //获取浴室数量
-        scenicCount = bathroomTypeMapper.selectScenicCount();
-        //将景点数量放入redis中
-        redisTemplate.opsForValue().set("bathroomTypeCount", scenicCount);
-        return scenicCount;
+        //从redis中取出浴室总数，为空则重新进入数据库查询后放入redis
+        return countCache.get("bathroomTypeCount", bathroomTypeMapper::selectScenicCount);
     }
 
 
@@ -92,8 +84,10 @@ public class BathroomTypeServiceImpl implements BathroomTypeService {
 
     @Override
     public void addBathRoomType(BathroomType bathroomType, MultipartFile BathroomTypeImg, String filename, String suffix) {
-        //上传腾讯云
-        qCloudUtil.uploadFile(bucketName, filename, BathroomTypeImg , cosRegion, secretId, secretKey);
+        //上传腾讯云，在后台完成，访问路径由文件名确定，不需要等待上传结束
+        uploadQueue.submit(bucketName, filename, BathroomTypeImg);
+        //列表页面使用缩略图，上传时提前生成
+        thumbnailService.pregenerate(filename, BathroomTypeImg);
 
         //更新景点图片路径
         String bathroomTypeUrl = qCloudUrl + "/" +  filename ;
@@ -102,21 +96,22 @@ public class BathroomTypeServiceImpl implements BathroomTypeService {
         //如果景点id为空说明已经不存在该景点，应该添加当前景点，否则为修改景点
         if (bathroomType.getId() == null) {
             //添加景点信息
-            bathroomTypeMapper.insertBathroomType(bathroomType);
+            int rows = bathroomTypeMapper.insertBathroomType(bathroomType);
+            countCache.incr("bathroomTypeCount", rows);
+            searchIndexer.indexBathroomType(bathroomType);
         } else {
-            //修改景点信息
+            //修改景点信息，数量不变
             bathroomTypeMapper.updateBathroomType(bathroomType);
         }
-        //清除redis中景点数量
-        redisTemplate.delete("bathroomTypeCount");
     }
 
     @Override
     public void removeBathRoomType(List<String> list) {
         //修改景点状态
-        bathroomTypeMapper.updateBathroomTypeById(list);
-        //清除redis中景点数量
-        redisTemplate.delete("bathroomTypeCount");
+        int rows = bathroomTypeMapper.updateBathroomTypeById(list);
+        //redis中数量同步减少
+        countCache.incr("bathroomTypeCount", -rows);
+        searchIndexer.remove(SearchType.BATHROOM_TYPE, list.stream().map(Integer::valueOf).collect(Collectors.toList()));
     }
 
     /**
@@ -126,12 +121,29 @@ public class BathroomTypeServiceImpl implements BathroomTypeService {
      */
     @Override
     public Integer getBathroomTypeCountSearch(String keyword) {
-        return bathroomTypeMapper.selectCountByKeyword(keyword);
+        return (int) searchIndex.search(SearchType.BATHROOM_TYPE, keyword, 0, 1).getTotal();
     }
 
     @Override
     public List<BathroomType> getBathroomTypeSearch(String keyword, Integer offset, Integer limit) {
-        return bathroomTypeMapper.selectBathroomTypeByKeyword(keyword, offset, limit);
+        SearchResult result = searchIndex.search(SearchType.BATHROOM_TYPE, keyword, offset, limit);
+        if (result.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return result.orderBy(bathroomTypeMapper.selectBathroomTypeByIds(result.getIds()), BathroomType::getId);
+    }
+
+    /**
+     * 搜索浴室类型，一次查询同时得到当前页数据和命中总数
+     * @param keyword 关键词
+     * @param offset 起始行
+     * @param limit 每页数量
+     * @return 分页结果
+     */
+    @Override
+    public SearchPage<BathroomType> getBathroomTypeSearchPage(String keyword, Integer offset, Integer limit) {
+        return searchIndex.search(SearchType.BATHROOM_TYPE, keyword, offset, limit)
+                .toPage(bathroomTypeMapper::selectBathroomTypeByIds, BathroomType::getId);
     }
 
 
@@ -0,0 +1,85 @@
+package com.fuchen.travel.background.service.impl;
+
+import com.fuchen.travel.background.cache.CountCache;
+import com.fuchen.travel.background.cache.RowCounter;
+import com.fuchen.travel.background.entity.DashboardSnapshot;
+import com.fuchen.travel.background.mapper.DiscussPostMapper;
+import com.fuchen.travel.background.mapper.ScenicMapper;
+import com.fuchen.travel.background.mapper.UserMapper;
+import com.fuchen.travel.background.service.DashboardService;
+import com.fuchen.travel.background.util.RedisKeyUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/09
+ * 首页统计-service层-实现类
+ */
+@Service
+public class DashboardServiceImpl implements DashboardService {
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private CountCache countCache;
+
+    @Autowired
+    private RowCounter rowCounter;
+
+    @Autowired
+    private ScenicMapper scenicMapper;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private DiscussPostMapper discussPostMapper;
+
+    /**
+     * 快照刷新间隔（毫秒）
+     */
+    @Value("${travel.dashboard.refresh-millis:30000}")
+    private long refreshMillis;
+
+    /**
+     * 获取首页统计快照，一次HGETALL取出全部统计
+     * @return
+     */
+    @Override
+    public DashboardSnapshot getSnapshot() {
+        Map<Object, Object> map = redisTemplate.opsForHash().entries(RedisKeyUtil.getDashboardKey());
+        return DashboardSnapshot.fromMap(map);
+    }
+
+    /**
+     * 定时重新计算首页统计快照
+     * @return
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${travel.dashboard.refresh-millis:30000}")
+    public DashboardSnapshot refreshSnapshot() {
+        DashboardSnapshot snapshot = new DashboardSnapshot();
+        snapshot.setUserCount(countCache.get("userCount", userMapper::selectUserCount));
+        snapshot.setUserCountAll(rowCounter.count("userCountAll", "sys_user", userMapper::selectUserCountAll));
+        snapshot.setScenicCount(rowCounter.count("scenicCount", "preserve", scenicMapper::selectScenicCount));
+        snapshot.setDiscussPostCount(rowCounter.count("postCount", "discuss_post", discussPostMapper::selectPostCount));
+        snapshot.setBanUserCount(countCache.get("userBanCount", userMapper::selectBanUserCount));
+        snapshot.setScenicRecommendCount(countCache.get("scenicRecommendCount", scenicMapper::selectScenicRecommendCount));
+        snapshot.setUpdateTime(new Date());
+
+        String redisKey = RedisKeyUtil.getDashboardKey();
+        redisTemplate.opsForHash().putAll(redisKey, snapshot.toMap());
+        //定时任务停止后快照自动失效，不会一直显示旧数据
+        redisTemplate.expire(redisKey, refreshMillis * 3, TimeUnit.MILLISECONDS);
+        return snapshot;
+    }
+}
@@ -1,16 +1,28 @@
 package com.fuchen.travel.background.service.impl;
 
+import com.fuchen.travel.background.cache.CountCache;
+import com.fuchen.travel.background.cache.RowCounter;
 import com.fuchen.travel.background.entity.DiscussPost;
+import com.fuchen.travel.background.entity.Page;
+import com.fuchen.travel.background.entity.PageCursor;
+import com.fuchen.travel.background.entity.SearchPage;
 import com.fuchen.travel.background.entity.User;
 import com.fuchen.travel.background.mapper.DiscussPostMapper;
+import com.fuchen.travel.background.search.SearchIndex;
+import com.fuchen.travel.background.search.SearchIndexer;
+import com.fuchen.travel.background.search.SearchResult;
+import com.fuchen.travel.background.search.SearchType;
 import com.fuchen.travel.background.service.DiscussPostService;
 import com.fuchen.travel.background.util.HostHolder;
+import com.fuchen.travel.background.util.PageCursorCache;
 
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author 伏辰
@@ -23,16 +35,30 @@ public class DiscussPostServiceImpl implements DiscussPostService {
     private final DiscussPostMapper discussPostMapper;
 
 
-    public DiscussPostServiceImpl(DiscussPostMapper discussPostMapper, RedisTemplate redisTemplate, HostHolder hostHolder) {
+    public DiscussPostServiceImpl(DiscussPostMapper discussPostMapper, CountCache countCache, RowCounter rowCounter,
+                                  HostHolder hostHolder, PageCursorCache pageCursorCache,
+                                  SearchIndex searchIndex, SearchIndexer searchIndexer) {
         this.discussPostMapper = discussPostMapper;
-        this.redisTemplate = redisTemplate;
+        this.countCache = countCache;
+        this.rowCounter = rowCounter;
         this.hostHolder = hostHolder;
+        this.pageCursorCache = pageCursorCache;
+        this.searchIndex = searchIndex;
+        this.searchIndexer = searchIndexer;
     }
 
-    private final RedisTemplate redisTemplate;
+    private final CountCache countCache;
+
+    private final RowCounter rowCounter;
 
     private final HostHolder hostHolder;
 
+    private final PageCursorCache pageCursorCache;
+
+    private final SearchIndex searchIndex;
+
+    private final SearchIndexer searchIndexer;
+
     /**
      * 获取帖子总数
      * @return 返回帖子数量
@@ -49,27 +75,33 @@ public class DiscussPostServiceImpl implements DiscussPostService {
         } if (cancel.equals(keyword)) {
             return discussPostMapper.selectPostCountToCancel();
         } else {
-            //首选从redis中查询帖子总数
-            Integer postCount = (Integer) redisTemplate.opsForValue().get("postCount");
-            //如果查询结果不为空，则直接返回当前数据
-            if (postCount != null) {
-                return postCount;
-            }
-            //为空，则进入数据库重新查询后返回数据
-            return discussPostMapper.selectPostCount();
+            //按配置的统计方式获取帖子总数，默认从redis中查询，为空则进入数据库重新查询后放入redis
+            return rowCounter.count("postCount", "discuss_post", discussPostMapper::selectPostCount);
         }
 
     }
 
+    /**
+     * 在线程池中获取帖子总数
+     * @param keyword 关键字
+     * @return
+     */
+    @Override
+    @Async("dashboardExecutor")
+    public CompletableFuture<Integer> getPostCountAsync(String keyword) {
+        return CompletableFuture.completedFuture(getPostCount(keyword));
+    }
+
     /**
      * 获取帖子信息
      * @param keyword 查询类型参数
-     * @param offset 分页起始行
-     * @param limit 分页条数
+     * @param page 分页对象
      * @return 返回帖子信息集合
      * */
     @Override
-    public List<DiscussPost> getPost(String keyword,Integer offset, Integer limit) {
+    public List<DiscussPost> getPost(String keyword, Page page) {
+        Integer offset = page.getOffset();
+        Integer limit = page.getLimit();
         //创建字符串，用于与传入的sort比较
         String id = "id";
         String time = "time";
@@ -83,10 +115,25 @@ public class DiscussPostServiceImpl implements DiscussPostService {
         //与cancel相等表示查询撤销的帖子，按照身份级别、时间倒序排序;
         //与空字符串相等表示查询发布的帖子，按照身份级别、状态、时间倒序排序;
         //否则，通过关键字直接查询，按照身份级别和时间倒序排序;
+        //按id、时间排序的列表使用键集分页，其余列表的排序键可为空且无索引，仍使用offset分页
         if (id.equals(keyword)) {
-            discussPosts = discussPostMapper.selectPostSortById(offset, limit);
+            PageCursor cursor = pageCursorCache.resolve("post:id", page);
+            discussPosts = discussPostMapper.selectPostSortById(cursor, offset, limit);
+            if (!discussPosts.isEmpty()) {
+                DiscussPost last = discussPosts.get(discussPosts.size() - 1);
+                pageCursorCache.record("post:id", page, PageCursor.of(last.getId()));
+            }
         } else if (time.equals(keyword)) {
-            discussPosts = discussPostMapper.selectPostSortByTime(offset, limit);
+            PageCursor cursor = pageCursorCache.resolve("post:time", page);
+            //按时间定位必须带有创建时间
+            if (cursor != null && cursor.getCreateTime() == null) {
+                cursor = null;
+            }
+            discussPosts = discussPostMapper.selectPostSortByTime(cursor, offset, limit);
+            if (!discussPosts.isEmpty()) {
+                DiscussPost last = discussPosts.get(discussPosts.size() - 1);
+                pageCursorCache.record("post:time", page, PageCursor.of(last.getId(), last.getCreateTime()));
+            }
         } else if (admin.equals(keyword)) {
             discussPosts = discussPostMapper.selectPostToAdmin(offset, limit);
         } else if(cancel.equals(keyword)) {
@@ -94,7 +141,10 @@ public class DiscussPostServiceImpl implements DiscussPostService {
         } else if ("".equals(keyword) || keyword == null){
             discussPosts = discussPostMapper.selectPost(offset, limit);
         } else {
-            discussPosts = discussPostMapper.selectPostByKeyword(keyword, offset, limit);
+            //通过搜索索引取出当前页的id，再按id回表
+            SearchResult result = searchIndex.search(SearchType.POST, keyword, offset, limit);
+            discussPosts = result.isEmpty() ? Collections.emptyList()
+                    : result.orderBy(discussPostMapper.selectPostsByIds(result.getIds()), DiscussPost::getId);
         }
         //返回查询的帖子信息
         return discussPosts;
@@ -117,9 +167,11 @@ public class DiscussPostServiceImpl implements DiscussPostService {
         discussPost.setType(user.getType());
         discussPost.setCreateTime(new Date());
         //插入新帖子
-        discussPostMapper.insertDiscussPost(discussPost);
-        //清除redis中的帖子数量
-        redisTemplate.delete("postCount");
+        int rows = discussPostMapper.insertDiscussPost(discussPost);
+        //redis中的帖子数量同步增加
+        countCache.incr("postCount", rows);
+        //加入搜索索引
+        searchIndexer.indexPost(discussPost);
     }
 
     /**
@@ -129,7 +181,20 @@ public class DiscussPostServiceImpl implements DiscussPostService {
      */
     @Override
     public Integer getPostCountByKeyword(String keyword) {
-        return discussPostMapper.selectPostCountByKeyWord(keyword);
+        return (int) searchIndex.search(SearchType.POST, keyword, 0, 1).getTotal();
+    }
+
+    /**
+     * 搜索帖子，一次查询同时得到当前页数据和命中总数
+     * @param keyword 关键词
+     * @param offset 起始行
+     * @param limit 每页数量
+     * @return 分页结果
+     */
+    @Override
+    public SearchPage<DiscussPost> getPostSearchPage(String keyword, Integer offset, Integer limit) {
+        return searchIndex.search(SearchType.POST, keyword, offset, limit)
+                .toPage(discussPostMapper::selectPostsByIds, DiscussPost::getId);
     }
 
     /**
@@ -139,6 +204,15 @@ public class DiscussPostServiceImpl implements DiscussPostService {
      */
     @Override
     public void changePostStatus(String postId, String status) {
-        discussPostMapper.updatePostStatus(postId, status);
+        int rows = discussPostMapper.updatePostStatus(postId, status);
+        //redis中的帖子数量只统计未撤销的帖子，恢复时增加，撤销时减少
+        countCache.incr("postCount", "2".equals(status) ? rows : -rows);
+        //撤销的帖子不能被搜索到，恢复的帖子重新加入索引
+        Integer id = Integer.valueOf(postId);
+        if ("2".equals(status)) {
+            discussPostMapper.selectPostsByIds(Collections.singletonList(id)).forEach(searchIndexer::indexPost);
+        } else {
+            searchIndexer.remove(SearchType.POST, Collections.singletonList(id));
+        }
     }
 }
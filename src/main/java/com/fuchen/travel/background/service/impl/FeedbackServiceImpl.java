@@ -1,8 +1,11 @@
 package com.fuchen.travel.background.service.impl;
 
 import com.fuchen.travel.background.entity.Feedback;
+import com.fuchen.travel.background.entity.Page;
+import com.fuchen.travel.background.entity.PageCursor;
 import com.fuchen.travel.background.mapper.FeedbackMapper;
 import com.fuchen.travel.background.service.FeedbackService;
+import com.fuchen.travel.background.util.PageCursorCache;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
@@ -19,6 +22,9 @@ public class FeedbackServiceImpl implements FeedbackService {
     @Resource
     private FeedbackMapper feedbackMapper;
 
+    @Resource
+    private PageCursorCache pageCursorCache;
+
     /**
      * 获取意见反馈全部数据的总数量
      * @return 返回总数量
@@ -30,12 +36,16 @@ public class FeedbackServiceImpl implements FeedbackService {
 
     /**
      * 查找全部的意见反馈信息
-     * @param offset 分页起始行
-     * @param limit 分页条数
+     * @param page 分页对象
      * @return 返回一个Feedback集合
      */
     @Override
-    public List<Feedback> findAllFeedback(Integer offset, Integer limit) {
-        return feedbackMapper.selectAllFeedback(offset, limit);
+    public List<Feedback> findAllFeedback(Page page) {
+        PageCursor cursor = pageCursorCache.resolve("feedback", page);
+        List<Feedback> feedbacks = feedbackMapper.selectAllFeedback(cursor, page.getOffset(), page.getLimit());
+        if (!feedbacks.isEmpty()) {
+            pageCursorCache.record("feedback", page, PageCursor.of(feedbacks.get(feedbacks.size() - 1).getId()));
+        }
+        return feedbacks;
     }
 }
@@ -1,17 +1,29 @@
 package com.fuchen.travel.background.service.impl;
 
+import com.fuchen.travel.background.cache.RowCounter;
 import com.fuchen.travel.background.entity.Goods;
 import com.fuchen.travel.background.entity.GoodsOrder;
+import com.fuchen.travel.background.entity.Page;
+import com.fuchen.travel.background.entity.PageCursor;
+import com.fuchen.travel.background.entity.SearchPage;
 import com.fuchen.travel.background.mapper.GoodsMapper;
+import com.fuchen.travel.background.search.SearchIndex;
+import com.fuchen.travel.background.search.SearchIndexer;
+import com.fuchen.travel.background.search.SearchResult;
+import com.fuchen.travel.background.search.SearchType;
 import com.fuchen.travel.background.service.GoodsService;
-import com.fuchen.travel.background.util.QCloudUtil;
+import com.fuchen.travel.background.storage.ThumbnailService;
+import com.fuchen.travel.background.storage.UploadQueue;
+import com.fuchen.travel.background.util.PageCursorCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.Resource;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * @Author 孑然
@@ -20,24 +32,6 @@ import java.util.List;
 @Service
 public class GoodsServiceImpl implements GoodsService {
 
-    /**
-     * 腾讯云存储地区
-     */
-    @Value("${qcloud.cosRegion}")
-    private String cosRegion;
-
-    /**
-     * 腾讯云密钥id
-     */
-    @Value("${qcloud.key.secretId}")
-    private String secretId;
-
-    /**
-     * 腾讯云密钥key
-     */
-    @Value("${qcloud.key.secretKey}")
-    private String secretKey;
-
     /**
      * 腾讯云对象存储桶名
      */
@@ -51,14 +45,32 @@ public class GoodsServiceImpl implements GoodsService {
     private String qCloudUrl;
 
     /**
-     * 腾讯云工具类对象
+     * 异步上传队列
+     */
+    @Autowired
+    private UploadQueue uploadQueue;
+
+    /**
+     * 缩略图
      */
     @Autowired
-    private QCloudUtil qCloudUtil;;
+    private ThumbnailService thumbnailService;
 
     @Resource
     private GoodsMapper goodsMapper;
 
+    @Resource
+    private RowCounter rowCounter;
+
+    @Resource
+    private PageCursorCache pageCursorCache;
+
+    @Resource
+    private SearchIndex searchIndex;
+
+    @Resource
+    private SearchIndexer searchIndexer;
+
 
     @Override
     public Integer getGoodsCount() {
@@ -67,41 +79,59 @@ public class GoodsServiceImpl implements GoodsService {
     }
 
     @Override
-    public List<Goods> getGoods(Integer offset, Integer limit) {
-        return goodsMapper.selectGoods(offset, limit);
+    public List<Goods> getGoods(Page page) {
+        PageCursor cursor = pageCursorCache.resolve("goods", page);
+        List<Goods> goods = goodsMapper.selectGoods(cursor, page.getOffset(), page.getLimit());
+        if (!goods.isEmpty()) {
+            pageCursorCache.record("goods", page, PageCursor.of(goods.get(goods.size() - 1).getId()));
+        }
+        return goods;
     }
 
     @Override
     public void addGoods(Goods good, MultipartFile goodsImg, String filename, String suffix) {
-        //上传腾讯云
-        qCloudUtil.uploadFile(bucketName, filename, goodsImg , cosRegion, secretId, secretKey);
+        //上传腾讯云，在后台完成，访问路径由文件名确定，不需要等待上传结束
+        uploadQueue.submit(bucketName, filename, goodsImg);
+        //列表页面使用缩略图，上传时提前生成
+        thumbnailService.pregenerate(filename, goodsImg);
 
         //更新景点图片路径
         String cover = qCloudUrl + "/" +  filename ;
         good.setCover(cover);
         goodsMapper.insertGoods(good);
+        searchIndexer.indexGoods(good);
     }
 
     @Override
     public void removeGoods(List<String> list) {
         //修改景点状态
         goodsMapper.deleteGoodsById(list);
+        searchIndexer.remove(SearchType.GOODS, list.stream().map(Integer::valueOf).collect(Collectors.toList()));
     }
 
     @Override
     public Integer getGoodsCountSearch(String keyword) {
-        Integer count = goodsMapper.selectGoodsCountSearch(keyword);
-        return count;
+        return (int) searchIndex.search(SearchType.GOODS, keyword, 0, 1).getTotal();
     }
 
     @Override
     public List<Goods> getScenicSearch(String keyword, Integer offset, Integer limit) {
-        return goodsMapper.getScenicSearch(keyword, offset, limit);
+        SearchResult result = searchIndex.search(SearchType.GOODS, keyword, offset, limit);
+        if (result.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return result.orderBy(goodsMapper.selectGoodsByIds(result.getIds()), Goods::getId);
+    }
+
+    @Override
+    public SearchPage<Goods> getGoodsSearchPage(String keyword, Integer offset, Integer limit) {
+        return searchIndex.search(SearchType.GOODS, keyword, offset, limit)
+                .toPage(goodsMapper::selectGoodsByIds, Goods::getId);
     }
 
     @Override
     public Integer getOrderCount() {
-        Integer count = goodsMapper.getOrderCount();
+        Integer count = rowCounter.count("orderCount", "orderdetails", goodsMapper::getOrderCount);
         return count;
     }
 
@@ -1,11 +1,20 @@
 package com.fuchen.travel.background.service.impl;
 
+import com.fuchen.travel.background.cache.LikeCountCache;
 import com.fuchen.travel.background.service.LikeService;
+import com.fuchen.travel.background.util.IntLongMap;
 import com.fuchen.travel.background.util.RedisKeyUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * @author 伏辰
  * @date 2023/1/11
@@ -17,6 +26,12 @@ public class LikeServiceImpl implements LikeService {
     @Autowired
     private RedisTemplate redisTemplate;
 
+    /**
+     * 赞数量短时间缓存在本地，列表翻页时不必每次访问redis
+     */
+    @Autowired
+    private LikeCountCache likeCountCache;
+
     /**
      * 某实体点赞数量
      * @param entityType 点赞的实体
@@ -28,4 +43,50 @@ public class LikeServiceImpl implements LikeService {
         String entityLikeKey = RedisKeyUtil.getEntityLikeKey(entityType, entityId);
         return redisTemplate.opsForSet().size(entityLikeKey);
     }
+
+    /**
+     * 批量查询实体点赞数量
+     * @param entityType 点赞的实体
+     * @param entityIds 实体的id集合
+     * @return 实体id与赞数量
+     */
+    @Override
+    public IntLongMap findEntityLikeCounts(int entityType, Collection<Integer> entityIds) {
+        IntLongMap result = new IntLongMap(entityIds.size());
+        //本地缓存中没有的实体
+        List<Integer> ids = new ArrayList<>();
+        for (Integer entityId : entityIds) {
+            Long count = likeCountCache.get(getLocalKey(entityType, entityId));
+            if (count != null) {
+                result.put(entityId, count);
+            } else if (!result.containsKey(entityId)) {
+                ids.add(entityId);
+            }
+        }
+        if (ids.isEmpty()) {
+            return result;
+        }
+        //通过管道一次发送全部SCARD命令
+        List<Object> sizes = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (Integer entityId : ids) {
+                    operations.opsForSet().size(RedisKeyUtil.getEntityLikeKey(entityType, entityId));
+                }
+                return null;
+            }
+        });
+        for (int i = 0; i < ids.size(); i++) {
+            Object size = sizes.get(i);
+            long count = size == null ? 0L : ((Number) size).longValue();
+            result.put(ids.get(i), count);
+            likeCountCache.put(getLocalKey(entityType, ids.get(i)), count);
+        }
+        return result;
+    }
+
+    private String getLocalKey(int entityType, Integer entityId) {
+        return "likeCount:" + entityType + ":" + entityId;
+    }
 }
@@ -1,17 +1,22 @@
 package com.fuchen.travel.background.service.impl;
 
 import com.fuchen.travel.background.entity.Message;
+import com.fuchen.travel.background.entity.Page;
+import com.fuchen.travel.background.entity.PageCursor;
 import com.fuchen.travel.background.entity.User;
+import com.fuchen.travel.background.mail.CampaignDispatcher;
+import com.fuchen.travel.background.mail.CampaignSegment;
+import com.fuchen.travel.background.mail.MailQueue;
+import com.fuchen.travel.background.mail.MailRenderer;
 import com.fuchen.travel.background.mapper.MessageMapper;
 import com.fuchen.travel.background.service.MessageService;
 import com.fuchen.travel.background.util.HostHolder;
-import com.fuchen.travel.background.util.MailClient;
+import com.fuchen.travel.background.util.PageCursorCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author 伏辰
@@ -28,10 +33,16 @@ public class MessageServiceImpl implements MessageService {
     private HostHolder hostHolder;
 
     @Autowired
-    private MailClient mailClient;
+    private MailQueue mailQueue;
 
     @Autowired
-    private TemplateEngine templateEngine;
+    private MailRenderer mailRenderer;
+
+    @Autowired
+    private CampaignDispatcher campaignDispatcher;
+
+    @Autowired
+    private PageCursorCache pageCursorCache;
 
     /**
      * 获取消息数量
@@ -54,12 +65,11 @@ public class MessageServiceImpl implements MessageService {
     /**
      * 查询消息信息
      * @param status 状态
-     * @param offset 查询起始行
-     * @param limit 查询条数
+     * @param page 分页对象
      * @return 返回消息列表
      */
     @Override
-    public List<Message> getMessage(String status, Integer offset, Integer limit) {
+    public List<Message> getMessage(String status, Page page) {
         User user = hostHolder.getUser();
         Integer i = null;
         if (status == null) {
@@ -67,7 +77,18 @@ public class MessageServiceImpl implements MessageService {
         } else {
             i = Integer.parseInt(status);
         }
-        return messageMapper.selectMessageList(i, user.getId(), offset, limit);
+        //消息列表按用户区分游标
+        String scope = "message:" + user.getId();
+        PageCursor cursor = pageCursorCache.resolve(scope, page);
+        if (cursor != null && cursor.getCreateTime() == null) {
+            cursor = null;
+        }
+        List<Message> messages = messageMapper.selectMessageList(i, user.getId(), cursor, page.getOffset(), page.getLimit());
+        if (!messages.isEmpty()) {
+            Message last = messages.get(messages.size() - 1);
+            pageCursorCache.record(scope, page, PageCursor.of(last.getId(), last.getCreateTime()));
+        }
+        return messages;
     }
 
     /**
@@ -97,11 +118,38 @@ public class MessageServiceImpl implements MessageService {
      */
     @Override
     public void sendEmail(String email, String title, String content) {
-        Context context = new Context();
-        context.setVariable("email", email);
-        context.setVariable("title", title);
-        context.setVariable("content", content);
-        String contentEnd = templateEngine.process("/mail/mail", context);
-        mailClient.sendMail(email, title, contentEnd);
+        String contentEnd = mailRenderer.render(email, title, content);
+        //放入发送队列，由后台线程发送，不阻塞请求
+        mailQueue.enqueue(email, title, contentEnd);
+    }
+
+    /**
+     * 群发邮件
+     * @param segment 收件人范围
+     * @param type 用户类型，segment为type时使用
+     * @param title 主题
+     * @param content 内容
+     * @return 群发id
+     */
+    @Override
+    public String sendCampaign(String segment, Integer type, String title, String content) {
+        CampaignSegment campaignSegment = CampaignSegment.of(segment);
+        if (campaignSegment == null) {
+            throw new IllegalArgumentException("未知的收件人范围：" + segment);
+        }
+        if (campaignSegment == CampaignSegment.TYPE && type == null) {
+            throw new IllegalArgumentException("请选择用户类型！");
+        }
+        return campaignDispatcher.start(campaignSegment, type, title, content);
+    }
+
+    /**
+     * 查询群发进度
+     * @param id 群发id
+     * @return 进度
+     */
+    @Override
+    public Map<Object, Object> getCampaignProgress(String id) {
+        return campaignDispatcher.getProgress(id);
     }
 }
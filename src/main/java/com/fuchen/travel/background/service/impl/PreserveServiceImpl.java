@@ -1,17 +1,32 @@
 package com.fuchen.travel.background.service.impl;
 
+import com.fuchen.travel.background.cache.CountCache;
+import com.fuchen.travel.background.cache.RowCounter;
+import com.fuchen.travel.background.cache.NearCache;
+import com.fuchen.travel.background.entity.Page;
+import com.fuchen.travel.background.entity.PageCursor;
 import com.fuchen.travel.background.entity.Preserve;
+import com.fuchen.travel.background.entity.SearchPage;
 import com.fuchen.travel.background.mapper.ScenicMapper;
+import com.fuchen.travel.background.search.SearchIndex;
+import com.fuchen.travel.background.search.SearchIndexer;
+import com.fuchen.travel.background.search.SearchResult;
+import com.fuchen.travel.background.search.SearchType;
 import com.fuchen.travel.background.service.PreserveService;
-import com.fuchen.travel.background.util.QCloudUtil;
+import com.fuchen.travel.background.storage.ThumbnailService;
+import com.fuchen.travel.background.storage.UploadQueue;
+import com.fuchen.travel.background.util.PageCursorCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 /**
  * @Author 伏辰
@@ -22,28 +37,30 @@ import java.util.List;
 public class PreserveServiceImpl implements PreserveService {
 
     @Autowired
-    private RedisTemplate redisTemplate;
+    private ScenicMapper scenicMapper;
 
     @Autowired
-    private ScenicMapper scenicMapper;
+    private PageCursorCache pageCursorCache;
 
-    /**
-     * 腾讯云存储地区
-     */
-    @Value("${qcloud.cosRegion}")
-    private String cosRegion;
+    @Autowired
+    private CountCache countCache;
 
-    /**
-     * 腾讯云密钥id
-     */
-    @Value("${qcloud.key.secretId}")
-    private String secretId;
+    @Autowired
+    private RowCounter rowCounter;
+
+    @Autowired
+    private NearCache nearCache;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Autowired
+    private SearchIndexer searchIndexer;
 
     /**
-     * 腾讯云密钥key
+     * 推荐景点在本地缓存中的key
      */
-    @Value("${qcloud.key.secretKey}")
-    private String secretKey;
+    private static final String RECOMMEND_SCENIC_KEY = "recommendScenic";
 
     /**
      * 腾讯云对象存储桶名
@@ -58,10 +75,16 @@ public class PreserveServiceImpl implements PreserveService {
     private String qCloudUrl;
 
     /**
-     * 腾讯云工具类对象
+     * 异步上传队列
      */
     @Autowired
-    private QCloudUtil qCloudUtil;
+    private UploadQueue uploadQueue;
+
+    /**
+     * 缩略图
+     */
+    @Autowired
+    private ThumbnailService thumbnailService;
 
     /**
      * 获取推荐景点信息
@@ -69,12 +92,13 @@ public class PreserveServiceImpl implements PreserveService {
      */
     @Override
     public List<Preserve> findRecommendScenic() {
-
-        List<Preserve> list = scenicMapper.selectRecommendScenic();
-        //将推荐的景点数量放入redis中
-        redisTemplate.opsForValue().set("scenicRecommendCount", list.size());
-
-        return list;
+        //优先从本地缓存中取出，多个请求共享同一个集合，因此设为只读
+        return nearCache.get(RECOMMEND_SCENIC_KEY, () -> {
+            List<Preserve> list = scenicMapper.selectRecommendScenic();
+            //将推荐的景点数量放入redis中
+            countCache.set("scenicRecommendCount", list.size());
+            return Collections.unmodifiableList(list);
+        });
     }
 
     /**
@@ -83,17 +107,18 @@ public class PreserveServiceImpl implements PreserveService {
      */
     @Override
     public Integer getScenicCount() {
-        //从redis中取出景点总数
-        Integer scenicCount = (Integer) redisTemplate.opsForValue().get("scenicCount");
-        //如果景点数量不为空，则返回景点数量,否则重新进入数据库查询
-        if (scenicCount != null) {
-            return scenicCount;
-        }
-        //获取景点数量
-        scenicCount = scenicMapper.selectScenicCount();
-        //将景点数量放入redis中
-        redisTemplate.opsForValue().set("scenicCount", scenicCount);
-        return scenicCount;
+        //按配置的统计方式获取景点总数，默认从redis中取出，未命中时查询数据库后放入redis
+        return rowCounter.count("scenicCount", "preserve", scenicMapper::selectScenicCount);
+    }
+
+    /**
+     * 在线程池中获取景点总数
+     * @return
+     */
+    @Override
+    @Async("dashboardExecutor")
+    public CompletableFuture<Integer> getScenicCountAsync() {
+        return CompletableFuture.completedFuture(getScenicCount());
     }
     /**
      * 获取景点总数
@@ -101,34 +126,14 @@ public class PreserveServiceImpl implements PreserveService {
      */
     @Override
     public Integer getScenicCount1() {
-        //从redis中取出景点总数
-        Integer scenicCount = (Integer) redisTemplate.opsForValue().get("scenicCount");
-        //如果景点数量不为空，则返回景点数量,否则重新进入数据库查询
-        if (scenicCount != null) {
-            return scenicCount;
-        }
-        //获取景点数量
-        scenicCount = scenicMapper.selectScenicCount1();
-        //将景点数量放入redis中
-        redisTemplate.opsForValue().set("scenicCount", scenicCount);
-        return scenicCount;
+        return countCache.get("scenicCount", scenicMapper::selectScenicCount1);
     } /**
      * 获取景点总数
      * @return
      */
     @Override
     public Integer getScenicCount2() {
-        //从redis中取出景点总数
-        Integer scenicCount = (Integer) redisTemplate.opsForValue().get("scenicCount");
-        //如果景点数量不为空，则返回景点数量,否则重新进入数据库查询
-        if (scenicCount != null) {
-            return scenicCount;
-        }
-        //获取景点数量
-        scenicCount = scenicMapper.selectScenicCount2();
-        //将景点数量放入redis中
-        redisTemplate.opsForValue().set("scenicCount", scenicCount);
-        return scenicCount;
+        return countCache.get("scenicCount", scenicMapper::selectScenicCount2);
     }
     /**
      * 获取景点总数
@@ -136,39 +141,52 @@ public class PreserveServiceImpl implements PreserveService {
      */
     @Override
     public Integer getScenicCount3() {
-        //从redis中取出景点总数
-        Integer scenicCount = (Integer) redisTemplate.opsForValue().get("scenicCount");
-        //如果景点数量不为空，则返回景点数量,否则重新进入数据库查询
-        if (scenicCount != null) {
-            return scenicCount;
-        }
-        //获取景点数量
-        scenicCount = scenicMapper.selectScenicCount3();
-        //将景点数量放入redis中
-        redisTemplate.opsForValue().set("scenicCount", scenicCount);
-        return scenicCount;
+        return countCache.get("scenicCount", scenicMapper::selectScenicCount3);
     }
     /**
      * 分页查询全部景点
-     * @param offset 检索起始行
-     * @param limit 简述条数
+     * @param page 分页对象
      * @return
      */
     @Override
-    public List<Preserve> getScenic(Integer offset, Integer limit) {
-        return scenicMapper.selectScenic(offset, limit);
+    public List<Preserve> getScenic(Page page) {
+        PageCursor cursor = pageCursorCache.resolve("scenic", page);
+        List<Preserve> list = scenicMapper.selectScenic(cursor, page.getOffset(), page.getLimit());
+        recordNextCursor("scenic", page, list);
+        return list;
     }
     @Override
-    public List<Preserve> getScenic1(Integer offset, Integer limit) {
-        return scenicMapper.selectScenic1(offset, limit);
+    public List<Preserve> getScenic1(Page page) {
+        PageCursor cursor = pageCursorCache.resolve("scenic1", page);
+        List<Preserve> list = scenicMapper.selectScenic1(cursor, page.getOffset(), page.getLimit());
+        recordNextCursor("scenic1", page, list);
+        return list;
     }
     @Override
-    public List<Preserve> getScenic2(Integer offset, Integer limit) {
-        return scenicMapper.selectScenic2(offset, limit);
+    public List<Preserve> getScenic2(Page page) {
+        PageCursor cursor = pageCursorCache.resolve("scenic2", page);
+        List<Preserve> list = scenicMapper.selectScenic2(cursor, page.getOffset(), page.getLimit());
+        recordNextCursor("scenic2", page, list);
+        return list;
     }
     @Override
-    public List<Preserve> getScenic3(Integer offset, Integer limit) {
-        return scenicMapper.selectScenic3(offset, limit);
+    public List<Preserve> getScenic3(Page page) {
+        PageCursor cursor = pageCursorCache.resolve("scenic3", page);
+        List<Preserve> list = scenicMapper.selectScenic3(cursor, page.getOffset(), page.getLimit());
+        recordNextCursor("scenic3", page, list);
+        return list;
+    }
+
+    /**
+     * 以当前页最后一条记录的id作为下一页游标
+     * @param scope 列表标识
+     * @param page 分页对象
+     * @param list 当前页数据
+     */
+    private void recordNextCursor(String scope, Page page, List<Preserve> list) {
+        if (!list.isEmpty()) {
+            pageCursorCache.record(scope, page, PageCursor.of(list.get(list.size() - 1).getId()));
+        }
     }
 
     /**
@@ -181,8 +199,9 @@ public class PreserveServiceImpl implements PreserveService {
         Integer scenicId = Integer.parseInt(recommendScenic);
         //推荐景点
         scenicMapper.recommend(scenicId);
-        //清除redis中的推荐景点数量
-        redisTemplate.delete("scenicRecommendCount");
+        //清除推荐景点和redis中的推荐景点数量
+        nearCache.invalidate(RECOMMEND_SCENIC_KEY);
+        countCache.evict("scenicRecommendCount");
     }
 
     /**
@@ -195,8 +214,9 @@ public class PreserveServiceImpl implements PreserveService {
         Integer scenicId = Integer.parseInt(recommendScenic);
         //移出推荐景点
         scenicMapper.removeRecommend(scenicId);
-        //清除redis中的推荐景点数量
-        redisTemplate.delete("scenicRecommendCount");
+        //清除推荐景点和redis中的推荐景点数量
+        nearCache.invalidate(RECOMMEND_SCENIC_KEY);
+        countCache.evict("scenicRecommendCount");
     }
 
     /**
@@ -205,15 +225,18 @@ public class PreserveServiceImpl implements PreserveService {
      */
     @Override
     public Integer getScenicRecommendCount() {
-        //从redis中取出推荐的景点数量
-        Integer scenicRecommendCount = (Integer) redisTemplate.opsForValue().get("scenicRecommendCount");
-        //如果数量不为空，则直接返回景点数量,否则进入数据库重新查询
-        if (scenicRecommendCount != null) {
-            return scenicRecommendCount;
-        }
-        scenicRecommendCount = scenicMapper.selectScenicRecommendCount();
-        redisTemplate.opsForValue().set("scenicRecommendCount", scenicRecommendCount);
-        return scenicRecommendCount;
+        //从redis中取出推荐的景点数量，未命中时进入数据库重新查询
+        return countCache.get("scenicRecommendCount", scenicMapper::selectScenicRecommendCount);
+    }
+
+    /**
+     * 在线程池中查询推荐的景点数量
+     * @return
+     */
+    @Override
+    @Async("dashboardExecutor")
+    public CompletableFuture<Integer> getScenicRecommendCountAsync() {
+        return CompletableFuture.completedFuture(getScenicRecommendCount());
     }
 
     /**
@@ -242,8 +265,10 @@ public class PreserveServiceImpl implements PreserveService {
     @Override
     public void addScenic(Preserve preserve, MultipartFile scenicImg, String filename, String suffix) {
 
-        //上传腾讯云
-        qCloudUtil.uploadFile(bucketName, filename, scenicImg , cosRegion, secretId, secretKey);
+        //上传腾讯云，在后台完成，访问路径由文件名确定，不需要等待上传结束
+        uploadQueue.submit(bucketName, filename, scenicImg);
+        //列表页面使用缩略图，上传时提前生成
+        thumbnailService.pregenerate(filename, scenicImg);
 
         //更新景点图片路径
         String scenicUrl = qCloudUrl + "/" +  filename ;
@@ -252,14 +277,18 @@ public class PreserveServiceImpl implements PreserveService {
 
         //如果景点id为空说明已经不存在该景点，应该添加当前景点，否则为修改景点
         if (preserve.getId() == null) {
-            //添加景点信息
-            scenicMapper.insertScenic(preserve);
+            //添加景点信息，redis中景点数量同步增加
+            int rows = scenicMapper.insertScenic(preserve);
+            countCache.incr("scenicCount", rows);
         } else {
-            //修改景点信息
+            //修改景点信息，数量不变，推荐景点中可能包含该景点
             scenicMapper.updateScenic(preserve);
+            nearCache.invalidate(RECOMMEND_SCENIC_KEY);
+        }
+        //表单中不一定包含被搜索的字段，从数据库重新读取后写入搜索索引
+        if (preserve.getId() != null) {
+            scenicMapper.selectScenicByIds(Collections.singletonList(preserve.getId())).forEach(searchIndexer::indexScenic);
         }
-        //清除redis中景点数量
-        redisTemplate.delete("scenicCount");
     }
 
     /**
@@ -268,10 +297,10 @@ public class PreserveServiceImpl implements PreserveService {
      */
     @Override
     public void removeScenic(List<String> list) {
-        //修改景点状态
+        //修改景点状态（软删除，景点总数包含已移出的景点，数量不变）
         scenicMapper.updateScenicById(list);
-        //清除redis中景点数量
-        redisTemplate.delete("scenicCount");
+        nearCache.invalidate(RECOMMEND_SCENIC_KEY);
+        searchIndexer.remove(SearchType.SCENIC, list.stream().map(Integer::valueOf).collect(Collectors.toList()));
     }
 
     /**
@@ -281,7 +310,7 @@ public class PreserveServiceImpl implements PreserveService {
      */
     @Override
     public Integer getScenicCountSearch(String keyword) {
-        return scenicMapper.selectCountByKeyword(keyword);
+        return (int) searchIndex.search(SearchType.SCENIC, keyword, 0, 1).getTotal();
     }
 
     /**
@@ -293,7 +322,24 @@ public class PreserveServiceImpl implements PreserveService {
      */
     @Override
     public List<Preserve> getScenicSearch(String keyword, Integer offset, Integer limit) {
-        return scenicMapper.selectScenicByKeyword(keyword, offset, limit);
+        SearchResult result = searchIndex.search(SearchType.SCENIC, keyword, offset, limit);
+        if (result.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return result.orderBy(scenicMapper.selectScenicByIds(result.getIds()), Preserve::getId);
+    }
+
+    /**
+     * 搜索景点，一次查询同时得到当前页数据和命中总数
+     * @param keyword 关键词
+     * @param offset 起始行
+     * @param limit 每页数量
+     * @return 分页结果
+     */
+    @Override
+    public SearchPage<Preserve> getScenicSearchPage(String keyword, Integer offset, Integer limit) {
+        return searchIndex.search(SearchType.SCENIC, keyword, offset, limit)
+                .toPage(scenicMapper::selectScenicByIds, Preserve::getId);
     }
 
     @Override
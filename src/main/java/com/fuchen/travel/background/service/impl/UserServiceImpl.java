@@ -1,20 +1,30 @@
 package com.fuchen.travel.background.service.impl;
 
+import com.fuchen.travel.background.cache.CountCache;
+import com.fuchen.travel.background.cache.RowCounter;
+import com.fuchen.travel.background.cache.NearCache;
 import com.fuchen.travel.background.entity.LoginTicket;
+import com.fuchen.travel.background.entity.Page;
+import com.fuchen.travel.background.entity.PageCursor;
+import com.fuchen.travel.background.entity.SearchPage;
 import com.fuchen.travel.background.entity.User;
 import com.fuchen.travel.background.mapper.UserMapper;
-import com.fuchen.travel.background.util.QCloudUtil;
 import com.fuchen.travel.background.service.UserService;
+import com.fuchen.travel.background.storage.UploadQueue;
 import com.fuchen.travel.background.util.HostHolder;
+import com.fuchen.travel.background.util.PageCursorCache;
 import com.fuchen.travel.background.util.RedisKeyUtil;
+import com.fuchen.travel.background.util.TicketSigner;
 import com.fuchen.travel.background.util.TravelConstant;
 import com.fuchen.travel.background.util.TravelUtil;
+import com.fuchen.travel.background.util.UserIdentityMap;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.ibatis.annotations.Select;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -22,6 +32,8 @@ import javax.servlet.http.HttpServletRequest;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @Author 伏辰
@@ -41,6 +53,30 @@ public class UserServiceImpl implements UserService, TravelConstant {
     @Autowired
     private HostHolder hostHolder;
 
+    @Autowired
+    private PageCursorCache pageCursorCache;
+
+    @Autowired
+    private CountCache countCache;
+
+    @Autowired
+    private RowCounter rowCounter;
+
+    @Autowired
+    private UserIdentityMap userIdentityMap;
+
+    @Autowired
+    private TicketSigner ticketSigner;
+
+    @Autowired
+    private NearCache nearCache;
+
+    /**
+     * redis中用户信息的有效时间（秒）
+     */
+    @Value("${travel.cache.user.ttl-seconds:3600}")
+    private long userTtlSeconds;
+
     @Value("${upload.path.image}")
     private String uploadPath;
 
@@ -50,24 +86,6 @@ public class UserServiceImpl implements UserService, TravelConstant {
     @Value("${server.servlet.context-path}")
     private String contextPath;
 
-    /**
-     * 腾讯云存储地区
-     */
-    @Value("${qcloud.cosRegion}")
-    private String cosRegion;
-
-    /**
-     * 腾讯云密钥id
-     */
-    @Value("${qcloud.key.secretId}")
-    private String secretId;
-
-    /**
-     * 腾讯云密钥key
-     */
-    @Value("${qcloud.key.secretKey}")
-    private String secretKey;
-
     /**
      * 腾讯云对象存储桶名
      */
@@ -81,39 +99,42 @@ public class UserServiceImpl implements UserService, TravelConstant {
     private String qCloudUrl;
 
     /**
-     * 腾讯云工具类对象
+     * 异步上传队列
      */
     @Autowired
-    private QCloudUtil qCloudUtil;;
+    private UploadQueue uploadQueue;
     /**
      * 获取普通用户数量
      * @return
      */
     @Override
     public Integer getUserCount(HttpServletRequest request) {
-        User user = getLoginUser(request);
-        if (user.getType() == 1) {
-            //从redis中获取普通用户数量
-            Integer userCount = (Integer) redisTemplate.opsForValue().get("userCount");
-            //如果不为空，则直接返回普通用户数量
-            if (userCount != null) {
-                return userCount;
-            }
-            //为空，则查询普通用户数量并放入redis中
-            userCount = userMapper.selectUserCount();
-            redisTemplate.opsForValue().set("userCount", userCount);
-            return userCount;
+        return getUserCount(getLoginUser(request));
+    }
+
+    /**
+     * 在线程池中获取用户数量
+     * @param loginUser 当前登录的用户
+     * @return
+     */
+    @Override
+    @Async("dashboardExecutor")
+    public CompletableFuture<Integer> getUserCountAsync(User loginUser) {
+        return CompletableFuture.completedFuture(getUserCount(loginUser));
+    }
+
+    /**
+     * 根据登录用户的类型获取用户数量
+     * @param user 当前登录的用户，未登录时按非管理员统计
+     * @return
+     */
+    private Integer getUserCount(User user) {
+        if (user != null && user.getType() != null && user.getType() == 1) {
+            //从redis中获取普通用户数量，为空则查询普通用户数量并放入redis中
+            return countCache.get("userCount", userMapper::selectUserCount);
         } else {
-            //从redis中获取全部用户数量
-            Integer userCountAll = (Integer) redisTemplate.opsForValue().get("userCountAll");
-            //如果不为空，则直接返回普通用户数量
-            if (userCountAll != null) {
-                return userCountAll;
-            }
-            //为空，则查询全部用户数量并放入redis中
-            userCountAll = userMapper.selectUserCountAll();
-            redisTemplate.opsForValue().set("userCountAll", userCountAll);
-            return userCountAll;
+            //按配置的统计方式获取全部用户数量，默认从redis中获取，为空则查询全部用户数量并放入redis中
+            return rowCounter.count("userCountAll", "sys_user", userMapper::selectUserCountAll);
         }
 
 
@@ -125,28 +146,34 @@ public class UserServiceImpl implements UserService, TravelConstant {
      */
     @Override
     public Integer getBanUserCount() {
-        //从redis中获取封禁用户数量
-        Integer userBanCount = (Integer) redisTemplate.opsForValue().get("userBanCount");
-        //如果不为空，则直接返回封禁用户数量
-        if (userBanCount != null) {
-            return userBanCount;
-        }
-        //为空，则查询封禁用户数量并放入redis中
-        userBanCount = userMapper.selectBanUserCount();
-        redisTemplate.opsForValue().set("userBanCount", userBanCount);
-        return userBanCount;
+        //从redis中获取封禁用户数量，为空则查询封禁用户数量并放入redis中
+        return countCache.get("userBanCount", userMapper::selectBanUserCount);
+    }
+
+    /**
+     * 在线程池中获取封禁用户数量
+     * @return
+     */
+    @Override
+    @Async("dashboardExecutor")
+    public CompletableFuture<Integer> getBanUserCountAsync() {
+        return CompletableFuture.completedFuture(getBanUserCount());
     }
 
     /**
      * 分页获取用户信息
-     * @param offset
-     * @param limit
+     * @param page 分页对象
      * @return
      */
     @Override
-    public List<User> getAllUser(Integer offset, Integer limit, HttpServletRequest request) {
+    public List<User> getAllUser(Page page, HttpServletRequest request) {
         User user = getLoginUser(request);
-        return userMapper.selectAllUser(offset, limit, user.getType());
+        PageCursor cursor = pageCursorCache.resolve("user", page);
+        List<User> users = userMapper.selectAllUser(cursor, page.getOffset(), page.getLimit(), user.getType());
+        if (!users.isEmpty()) {
+            pageCursorCache.record("user", page, PageCursor.of(users.get(users.size() - 1).getId()));
+        }
+        return users;
     }
 
     /**
@@ -157,22 +184,36 @@ public class UserServiceImpl implements UserService, TravelConstant {
     @Override
     public Map<String, Object> getUser(String ticket) {
         Map<String, Object> map = new HashMap<>();
-        //从redis中的登录凭证汇总获取用户id
-        String redisKey = RedisKeyUtil.getTicketKey(ticket);
-        LoginTicket loginTicket = (LoginTicket) redisTemplate.opsForValue().get(redisKey);
-        if (loginTicket.getStatus() == 1) {
+        //校验登录凭证并取出用户id
+        LoginTicket loginTicket = findLoginTicket(ticket);
+        if (loginTicket == null || loginTicket.getStatus() == 1) {
             map.put("errorMsg","请重新登录！");
             return map;
         }
-        Integer userId = loginTicket.getUserId();
-        User user = userMapper.selectUserById(userId);
-        String userKey = RedisKeyUtil.getUserKey(userId);
-        //将获取的user信息放入redis
-        redisTemplate.opsForValue().set(userKey, user);
-        map.put("user",user);
+        map.put("user", findCachedUser(loginTicket.getUserId()));
         return map;
     }
 
+    /**
+     * 获取缓存的用户信息：本地缓存 -> redis -> 数据库
+     * @param userId 用户id
+     * @return
+     */
+    @Override
+    public User findCachedUser(Integer userId) {
+        String userKey = RedisKeyUtil.getUserKey(userId);
+        return nearCache.get(userKey, () -> {
+            User user = (User) redisTemplate.opsForValue().get(userKey);
+            if (user == null) {
+                user = userMapper.selectUserById(userId);
+                if (user != null) {
+                    redisTemplate.opsForValue().set(userKey, user, userTtlSeconds, TimeUnit.SECONDS);
+                }
+            }
+            return user;
+        });
+    }
+
     /**
      * 用户登录
      * @param username 用户名
@@ -219,17 +260,9 @@ public class UserServiceImpl implements UserService, TravelConstant {
         }
 
 
-        //生成登录凭证
-        LoginTicket loginTicket = new LoginTicket();
-        loginTicket.setUserId(user.getId());
-        loginTicket.setTicket(TravelUtil.generateUUID());
-        loginTicket.setStatus(0);
-        loginTicket.setExpired(new Date(System.currentTimeMillis() + expiredSeconds * 1000));
-
-        String redisKey = RedisKeyUtil.getTicketKey(loginTicket.getTicket());
-        redisTemplate.opsForValue().set(redisKey, loginTicket);
-
-        map.put("ticket", loginTicket.getTicket());
+        //生成登录凭证，凭证自带用户id和过期时间并签名，不需要保存到redis
+        Date expired = new Date(System.currentTimeMillis() + expiredSeconds * 1000L);
+        map.put("ticket", ticketSigner.sign(user.getId(), expired));
 
         return map;
     }
@@ -241,17 +274,68 @@ public class UserServiceImpl implements UserService, TravelConstant {
     @Override
     public void logout(String ticket) {
         //loginTicketMapper.updateStatus(ticket, 1);
-        String redisKey = RedisKeyUtil.getTicketKey(ticket);
-        LoginTicket loginTicket = (LoginTicket) redisTemplate.opsForValue().get(redisKey);
-        loginTicket.setStatus(1);
-        redisTemplate.opsForValue().set(redisKey, loginTicket);
+        if (!ticketSigner.isSigned(ticket)) {
+            //旧格式的凭证保存在redis中，修改状态即可
+            String redisKey = RedisKeyUtil.getTicketKey(ticket);
+            LoginTicket loginTicket = (LoginTicket) redisTemplate.opsForValue().get(redisKey);
+            if (loginTicket != null) {
+                loginTicket.setStatus(1);
+                redisTemplate.opsForValue().set(redisKey, loginTicket);
+                clearCache(loginTicket.getUserId());
+            }
+            return;
+        }
+        LoginTicket loginTicket = ticketSigner.verify(ticket);
+        if (loginTicket == null) {
+            return;
+        }
+        //加入注销集合，分数为过期时间，顺便清理已经过期的凭证
+        String revokedKey = RedisKeyUtil.getTicketRevokedKey();
+        redisTemplate.opsForZSet().add(revokedKey, ticket, loginTicket.getExpired().getTime());
+        redisTemplate.opsForZSet().removeRangeByScore(revokedKey, 0, System.currentTimeMillis());
+        //通知所有节点删除本地已校验的凭证
+        nearCache.invalidate(getTicketLocalKey(ticket));
         clearCache(loginTicket.getUserId());
     }
 
+    /**
+     * 获取登录凭证：本地缓存命中时不访问redis，
+     * 未命中时校验签名，并检查一次是否已注销
+     * @param ticket 凭证
+     * @return 签名错误返回null，已注销或已过期的凭证状态为1
+     */
     @Override
     public LoginTicket findLoginTicket(String ticket) {
-        String redisKey = RedisKeyUtil.getTicketKey(ticket);
-        return (LoginTicket) redisTemplate.opsForValue().get(redisKey);
+        if (!ticketSigner.isSigned(ticket)) {
+            //兼容旧格式的凭证
+            String redisKey = RedisKeyUtil.getTicketKey(ticket);
+            return (LoginTicket) redisTemplate.opsForValue().get(redisKey);
+        }
+        String localKey = getTicketLocalKey(ticket);
+        LoginTicket loginTicket = nearCache.get(localKey);
+        if (loginTicket == null) {
+            loginTicket = ticketSigner.verify(ticket);
+            if (loginTicket == null) {
+                return null;
+            }
+            if (redisTemplate.opsForZSet().score(RedisKeyUtil.getTicketRevokedKey(), ticket) != null) {
+                loginTicket.setStatus(1);
+            }
+            nearCache.put(localKey, loginTicket);
+        }
+        if (loginTicket.getStatus() == 0 && loginTicket.getExpired().before(new Date())) {
+            LoginTicket expiredTicket = new LoginTicket();
+            expiredTicket.setTicket(ticket);
+            expiredTicket.setUserId(loginTicket.getUserId());
+            expiredTicket.setExpired(loginTicket.getExpired());
+            expiredTicket.setStatus(1);
+            return expiredTicket;
+        }
+        return loginTicket;
+    }
+
+    private String getTicketLocalKey(String ticket) {
+        return "ticket:" + ticket;
     }
 
     /**
@@ -261,7 +345,50 @@ public class UserServiceImpl implements UserService, TravelConstant {
      */
     @Override
     public User getUserById(Integer userId) {
-        return userMapper.selectUserById(userId);
+        if (userIdentityMap.contains(userId)) {
+            return userIdentityMap.get(userId);
+        }
+        User user = userMapper.selectUserById(userId);
+        userIdentityMap.put(userId, user);
+        return user;
+    }
+
+    /**
+     * 根据用户id批量获取用户信息
+     * @param userIds 用户id集合
+     * @return
+     */
+    @Override
+    public Map<Integer, User> getUsersByIds(Collection<Integer> userIds) {
+        Map<Integer, User> result = new HashMap<>();
+        //本次请求中还没有查询过的用户
+        Set<Integer> missing = new HashSet<>();
+        for (Integer userId : userIds) {
+            if (userId == null) {
+                continue;
+            }
+            if (userIdentityMap.contains(userId)) {
+                User user = userIdentityMap.get(userId);
+                if (user != null) {
+                    result.put(userId, user);
+                }
+            } else {
+                missing.add(userId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (User user : userMapper.selectUsersByIds(missing)) {
+                userIdentityMap.put(user.getId(), user);
+                result.put(user.getId(), user);
+            }
+            //不存在的用户也记录下来，避免重复查询
+            for (Integer userId : missing) {
+                if (!result.containsKey(userId)) {
+                    userIdentityMap.put(userId, null);
+                }
+            }
+        }
+        return result;
     }
 
     /**
@@ -282,6 +409,7 @@ public class UserServiceImpl implements UserService, TravelConstant {
             userId = hostHolder.getUser().getId();
         }
         userMapper.updateUser(userId, username, password, headerImg);
+        clearCache(user.getId());
     }
 
     /**
@@ -292,6 +420,8 @@ public class UserServiceImpl implements UserService, TravelConstant {
     private void clearCache(Integer userId){
         String redisKey = RedisKeyUtil.getUserKey(userId);
         redisTemplate.delete(redisKey);
+        //同时删除所有节点本地缓存的用户信息
+        nearCache.invalidate(redisKey);
     }
 
     /**
@@ -322,6 +452,7 @@ public class UserServiceImpl implements UserService, TravelConstant {
         password = TravelUtil.md5(password + user.getSalt());
         //修改用户密码
         userMapper.updatePasswordById(user.getId(), password);
+        clearCache(user.getId());
     }
 
     /**
@@ -347,6 +478,7 @@ public class UserServiceImpl implements UserService, TravelConstant {
 
         //修改头像路径
         userMapper.uploadHeader(user.getId(), headerUrl);
+        clearCache(user.getId());
     }
 
     /**
@@ -394,9 +526,9 @@ public class UserServiceImpl implements UserService, TravelConstant {
         password = TravelUtil.md5(password + salt);
 
         //添加用户
-        userMapper.insertUser(username, email, password, salt, headerUrl, new Date());
-        //清除redis中用户数量
-        redisTemplate.delete("userCountAll");
+        int rows = userMapper.insertUser(username, email, password, salt, headerUrl, new Date());
+        //redis中用户数量同步增加
+        countCache.incr("userCountAll", rows);
     }
 
     /**
@@ -405,10 +537,8 @@ public class UserServiceImpl implements UserService, TravelConstant {
      */
     @Override
     public void removeUser(List<String> list) {
+        //删除的是user表，sys_user的数量缓存不受影响
         userMapper.deleteUserById(list);
-        //清除redis中用户数量
-        redisTemplate.delete("userCount");
-        redisTemplate.delete("userCountAll");
     }
 
     /**
@@ -432,6 +562,28 @@ public class UserServiceImpl implements UserService, TravelConstant {
         return userMapper.selectUserCountByKeyword(keyword, type);
     }
 
+    /**
+     * 搜索用户，只执行一次分页查询
+     * 当前页不满时总数就是offset加当前页数量，不再计数；否则使用缓存的数量，同一关键词翻页时不重复COUNT
+     * @param keyword 关键词
+     * @param type 用户类型
+     * @param offset 起始行
+     * @param limit 每页数量
+     * @return 分页结果
+     */
+    @Override
+    public SearchPage<User> getUserSearchPage(String keyword, String type, Integer offset, Integer limit) {
+        List<User> users = userMapper.selectUserByKeyword(keyword, type, offset, limit);
+        if (users.size() < limit && (offset == 0 || !users.isEmpty())) {
+            return new SearchPage<>(users, offset + users.size());
+        }
+        //搜索的是user表的手机号，主要由小程序等其他应用写入，缓存的数量不主动删除，按过期时间刷新
+        Integer total = countCache.get(RedisKeyUtil.getSearchCountKey("user", keyword),
+                () -> userMapper.selectUserCountByKeyword(keyword, type));
+        //缓存的数量可能偏小，至少保证能翻到当前页
+        return new SearchPage<>(users, Math.max(total, offset + users.size()));
+    }
+
     /**
      * 查询管理员数量
      * @return
@@ -477,15 +629,22 @@ public class UserServiceImpl implements UserService, TravelConstant {
 
         if (ban.size() != 0) {
             //修改用户状态为封禁
-            userMapper.updateUserToBanStatus(ban);
-            //清除redis中封禁的数量
-            redisTemplate.delete("userBanCount");
+            int rows = userMapper.updateUserToBanStatus(ban);
+            //redis中封禁的数量同步增加
+            countCache.incr("userBanCount", rows);
         }
         if(noNan.size() != 0) {
             //修改用户状态为正常状态
-            userMapper.updateUserToNoBanStatus(noNan);
-            //清除redis中封禁的数量
-            redisTemplate.delete("userBanCount");
+            int rows = userMapper.updateUserToNoBanStatus(noNan);
+            //redis中封禁的数量同步减少
+            countCache.incr("userBanCount", -rows);
+        }
+        //用户状态已改变，删除缓存的用户信息
+        for (String userId : ban) {
+            clearCache(Integer.valueOf(userId));
+        }
+        for (String userId : noNan) {
+            clearCache(Integer.valueOf(userId));
         }
 
 
@@ -512,8 +671,8 @@ public class UserServiceImpl implements UserService, TravelConstant {
     public void uploadHeaderToQCloud(MultipartFile headerImg, String filename, String suffix) {
         //生成随机文件名
         filename = TravelUtil.generateUUID() + suffix;
-        //上传腾讯云
-        qCloudUtil.uploadFile(bucketName, filename, headerImg , cosRegion, secretId, secretKey);
+        //上传腾讯云，在后台完成，访问路径由文件名确定，不需要等待上传结束
+        uploadQueue.submit(bucketName, filename, headerImg);
 
         //更新用户头像的路径(web访问路径)
         User user = hostHolder.getUser();
@@ -521,9 +680,15 @@ public class UserServiceImpl implements UserService, TravelConstant {
 
         //修改头像路径
         userMapper.uploadHeader(user.getId(), headerUrl);
+        clearCache(user.getId());
     }
 
     public User getLoginUser(HttpServletRequest request) {
+        //优先使用拦截器根据登录凭证放入的用户，没有时兼容session中的用户
+        User user = hostHolder.getUser();
+        if (user != null) {
+            return user;
+        }
         return (User) request.getSession().getAttribute("user");
     }
 
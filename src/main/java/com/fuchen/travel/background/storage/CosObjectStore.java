@@ -0,0 +1,123 @@
+package com.fuchen.travel.background.storage;
+
+import com.qcloud.cos.COSClient;
+import com.qcloud.cos.ClientConfig;
+import com.qcloud.cos.auth.BasicCOSCredentials;
+import com.qcloud.cos.model.AbortMultipartUploadRequest;
+import com.qcloud.cos.model.CompleteMultipartUploadRequest;
+import com.qcloud.cos.model.InitiateMultipartUploadRequest;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.model.PartETag;
+import com.qcloud.cos.model.PutObjectRequest;
+import com.qcloud.cos.model.UploadPartRequest;
+import com.qcloud.cos.region.Region;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/18
+ * 腾讯云对象存储，整个应用共用一个客户端，客户端内部维护HTTP连接池，应用关闭时释放
+ */
+@Component
+@ConditionalOnProperty(name = "travel.storage.mode", havingValue = "cos", matchIfMissing = true)
+public class CosObjectStore implements ObjectStore {
+
+    private final COSClient cosClient;
+
+    public CosObjectStore(@Value("${qcloud.key.secretId}") String secretId,
+                          @Value("${qcloud.key.secretKey}") String secretKey,
+                          @Value("${qcloud.cosRegion}") String cosRegion,
+                          @Value("${travel.storage.cos.max-connections:64}") int maxConnections,
+                          @Value("${travel.storage.cos.connection-timeout-millis:3000}") int connectionTimeout,
+                          @Value("${travel.storage.cos.socket-timeout-millis:30000}") int socketTimeout) {
+        ClientConfig clientConfig = new ClientConfig(new Region(cosRegion));
+        clientConfig.setMaxConnectionsCount(maxConnections);
+        clientConfig.setConnectionTimeout(connectionTimeout);
+        clientConfig.setSocketTimeout(socketTimeout);
+        this.cosClient = new COSClient(new BasicCOSCredentials(secretId, secretKey), clientConfig);
+    }
+
+    @Override
+    public void put(String bucket, String key, InputStream in, long length, String contentType) throws IOException {
+        //指定长度后SDK直接发送输入流，不需要先缓存到内存计算长度
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(length);
+        if (contentType != null) {
+            metadata.setContentType(contentType);
+        }
+        try {
+            cosClient.putObject(new PutObjectRequest(bucket, key, in, metadata));
+        } catch (RuntimeException e) {
+            //SDK的异常都是运行时异常，统一转换为IOException交给调用方重试
+            throw new IOException("上传到对象存储失败：" + bucket + "/" + key, e);
+        }
+    }
+
+    @Override
+    public String initiateMultipart(String bucket, String key, String contentType) throws IOException {
+        ObjectMetadata metadata = new ObjectMetadata();
+        if (contentType != null) {
+            metadata.setContentType(contentType);
+        }
+        try {
+            return cosClient.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucket, key, metadata)).getUploadId();
+        } catch (RuntimeException e) {
+            throw new IOException("开始分片上传失败：" + bucket + "/" + key, e);
+        }
+    }
+
+    @Override
+    public String uploadPart(String bucket, String key, String uploadId, int partNumber, InputStream in, long length)
+            throws IOException {
+        UploadPartRequest request = new UploadPartRequest();
+        request.setBucketName(bucket);
+        request.setKey(key);
+        request.setUploadId(uploadId);
+        request.setPartNumber(partNumber);
+        request.setPartSize(length);
+        request.setInputStream(in);
+        try {
+            return cosClient.uploadPart(request).getETag();
+        } catch (RuntimeException e) {
+            throw new IOException("上传分片失败：" + bucket + "/" + key + "#" + partNumber, e);
+        }
+    }
+
+    @Override
+    public void completeMultipart(String bucket, String key, String uploadId, SortedMap<Integer, String> etags)
+            throws IOException {
+        List<PartETag> parts = new ArrayList<>(etags.size());
+        for (Map.Entry<Integer, String> entry : etags.entrySet()) {
+            parts.add(new PartETag(entry.getKey(), entry.getValue()));
+        }
+        try {
+            cosClient.completeMultipartUpload(new CompleteMultipartUploadRequest(bucket, key, uploadId, parts));
+        } catch (RuntimeException e) {
+            throw new IOException("合并分片失败：" + bucket + "/" + key, e);
+        }
+    }
+
+    @Override
+    public void abortMultipart(String bucket, String key, String uploadId) throws IOException {
+        try {
+            cosClient.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId));
+        } catch (RuntimeException e) {
+            throw new IOException("放弃分片上传失败：" + bucket + "/" + key, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cosClient.shutdown();
+    }
+}
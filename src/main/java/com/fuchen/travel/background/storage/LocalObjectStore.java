@@ -0,0 +1,128 @@
+package com.fuchen.travel.background.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.SortedMap;
+import java.util.UUID;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/18
+ * 本地文件系统对象存储，本地开发和测试时代替腾讯云，文件保存在 根目录/存储桶/键名
+ * 分片保存在 根目录/.multipart/分片上传id/分片序号，合并时按序号拼接
+ */
+@Component
+@ConditionalOnProperty(name = "travel.storage.mode", havingValue = "local")
+public class LocalObjectStore implements ObjectStore {
+
+    private static final String MULTIPART_DIR = ".multipart";
+
+    private final Path root;
+
+    public LocalObjectStore(@Value("${travel.storage.local.root:${java.io.tmpdir}/travel-storage}") String root) {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void put(String bucket, String key, InputStream in, long length, String contentType) throws IOException {
+        Path target = resolve(bucket, key);
+        Files.createDirectories(target.getParent());
+        //先写临时文件再改名，读取方不会看到写了一半的文件
+        Path temp = Files.createTempFile(target.getParent(), ".upload", null);
+        try {
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public String initiateMultipart(String bucket, String key, String contentType) throws IOException {
+        String uploadId = UUID.randomUUID().toString().replaceAll("-", "");
+        Files.createDirectories(partDir(uploadId));
+        return uploadId;
+    }
+
+    @Override
+    public String uploadPart(String bucket, String key, String uploadId, int partNumber, InputStream in, long length)
+            throws IOException {
+        Path dir = partDir(uploadId);
+        if (!Files.isDirectory(dir)) {
+            throw new IOException("分片上传不存在：" + uploadId);
+        }
+        Files.copy(in, dir.resolve(String.valueOf(partNumber)), StandardCopyOption.REPLACE_EXISTING);
+        return uploadId + "-" + partNumber;
+    }
+
+    @Override
+    public void completeMultipart(String bucket, String key, String uploadId, SortedMap<Integer, String> etags)
+            throws IOException {
+        Path dir = partDir(uploadId);
+        Path target = resolve(bucket, key);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), ".upload", null);
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                for (Integer partNumber : etags.keySet()) {
+                    Path part = dir.resolve(String.valueOf(partNumber));
+                    if (!Files.exists(part)) {
+                        throw new IOException("分片不存在：" + uploadId + "#" + partNumber);
+                    }
+                    Files.copy(part, out);
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        abortMultipart(bucket, key, uploadId);
+    }
+
+    @Override
+    public void abortMultipart(String bucket, String key, String uploadId) throws IOException {
+        Path dir = partDir(uploadId);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (DirectoryStream<Path> parts = Files.newDirectoryStream(dir)) {
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    private Path partDir(String uploadId) {
+        Path dir = root.resolve(MULTIPART_DIR).resolve(uploadId).normalize();
+        if (!dir.getParent().equals(root.resolve(MULTIPART_DIR))) {
+            throw new IllegalArgumentException("非法的分片上传id：" + uploadId);
+        }
+        return dir;
+    }
+
+    /**
+     * 对象在本地的路径
+     * @param bucket 存储桶名称
+     * @param key 对象的键名
+     * @return 文件路径
+     */
+    public Path resolve(String bucket, String key) {
+        Path path = root.resolve(bucket).resolve(key).normalize();
+        //键名中不能有..跳出根目录
+        if (!path.startsWith(root.resolve(bucket))) {
+            throw new IllegalArgumentException("非法的对象键名：" + key);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,242 @@
+package com.fuchen.travel.background.storage;
+
+import com.fuchen.travel.background.util.RedisKeyUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/19
+ * 大文件分片上传：按固定大小切分后在线程池中并行上传各个分片，再合并为一个对象
+ * 分片上传id和已完成分片的ETag保存在redis中，上传失败后重试时只上传缺少的分片；
+ * 数据源是UploadQueue的暂存文件，进程重启后从暂存文件继续上传，同样只上传缺少的分片
+ * 超过保存时间仍未完成的分片上传（暂存文件已丢失等）由定时任务在服务端放弃，不留下无主的分片
+ */
+@Component
+public class MultipartUploader {
+
+    private static final Logger log = LoggerFactory.getLogger(MultipartUploader.class);
+
+    private static final String UPLOAD_ID = "uploadId";
+
+    private static final String PART_PREFIX = "part:";
+
+    private static final String BUCKET = "bucket";
+
+    private static final String KEY = "key";
+
+    private final ObjectStore objectStore;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final TaskExecutor executor;
+
+    /**
+     * 达到该大小的文件使用分片上传，小于等于0时不启用
+     */
+    private final long thresholdBytes;
+
+    /**
+     * 分片大小，腾讯云要求除最后一片外不小于1MB
+     */
+    private final int partSizeBytes;
+
+    /**
+     * 上传进度的保存时间（小时），超过后重新开始上传
+     */
+    private final long stateTtlHours;
+
+    public MultipartUploader(ObjectStore objectStore, RedisTemplate<String, Object> redisTemplate,
+                             @Qualifier("uploadPartExecutor") TaskExecutor executor,
+                             @Value("${travel.upload.multipart.threshold-bytes:8388608}") long thresholdBytes,
+                             @Value("${travel.upload.multipart.part-size-bytes:2097152}") int partSizeBytes,
+                             @Value("${travel.upload.multipart.state-ttl-hours:24}") long stateTtlHours) {
+        if (partSizeBytes <= 0) {
+            throw new IllegalArgumentException("分片大小必须大于0：" + partSizeBytes);
+        }
+        this.objectStore = objectStore;
+        this.redisTemplate = redisTemplate;
+        this.executor = executor;
+        this.thresholdBytes = thresholdBytes;
+        this.partSizeBytes = partSizeBytes;
+        this.stateTtlHours = stateTtlHours;
+    }
+
+    /**
+     * 是否需要分片上传
+     * @param length 文件大小
+     * @return
+     */
+    public boolean shouldSplit(long length) {
+        return thresholdBytes > 0 && length >= thresholdBytes && length > partSizeBytes;
+    }
+
+    /**
+     * 分片上传，存在未完成的进度时继续上传
+     * @param bucket 存储桶名称
+     * @param key 对象的键名
+     * @param source 文件，各个分片上传时分别读取，同一时间只有正在上传的分片在内存中
+     * @param length 文件大小
+     * @param contentType 数据类型，可以为null
+     * @throws IOException 上传失败，已完成的分片保留，下次调用时继续
+     */
+    public void upload(String bucket, String key, Path source, long length, String contentType) throws IOException {
+        String stateKey = RedisKeyUtil.getUploadKey(bucket, key);
+        Map<Object, Object> state = redisTemplate.opsForHash().entries(stateKey);
+        Object savedUploadId = state.get(UPLOAD_ID);
+        String uploadId;
+        if (savedUploadId == null) {
+            uploadId = objectStore.initiateMultipart(bucket, key, contentType);
+            Map<String, Object> init = new HashMap<>();
+            init.put(UPLOAD_ID, uploadId);
+            init.put(BUCKET, bucket);
+            init.put(KEY, key);
+            redisTemplate.opsForHash().putAll(stateKey, init);
+        } else {
+            uploadId = savedUploadId.toString();
+            log.info("继续分片上传：" + bucket + "/" + key + "，已完成"
+                    + state.keySet().stream().filter(field -> field.toString().startsWith(PART_PREFIX)).count() + "个分片");
+        }
+        //进度多保留一段时间，过期前由定时任务根据其中的分片上传id在服务端放弃
+        redisTemplate.expire(stateKey, stateTtlHours * 2, TimeUnit.HOURS);
+        redisTemplate.opsForZSet().add(RedisKeyUtil.getUploadActiveKey(), stateKey,
+                System.currentTimeMillis() + TimeUnit.HOURS.toMillis(stateTtlHours));
+
+        int partCount = (int) ((length + partSizeBytes - 1) / partSizeBytes);
+        SortedMap<Integer, String> etags = new ConcurrentSkipListMap<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+            Object etag = state.get(PART_PREFIX + partNumber);
+            if (etag != null) {
+                etags.put(partNumber, etag.toString());
+                continue;
+            }
+            int number = partNumber;
+            long offset = (long) (partNumber - 1) * partSizeBytes;
+            int partLength = (int) Math.min(partSizeBytes, length - offset);
+            futures.add(CompletableFuture.runAsync(() -> {
+                String uploaded = uploadPart(bucket, key, uploadId, number, source, offset, partLength);
+                etags.put(number, uploaded);
+                //每完成一个分片就记录，失败后不需要重新上传
+                redisTemplate.opsForHash().put(stateKey, PART_PREFIX + number, uploaded);
+            }, executor));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException("分片上传失败：" + bucket + "/" + key, cause);
+        }
+
+        try {
+            objectStore.completeMultipart(bucket, key, uploadId, etags);
+        } catch (IOException e) {
+            //合并失败通常是分片上传已失效，放弃这次上传，下次从头开始
+            deleteState(stateKey);
+            abortQuietly(bucket, key, uploadId);
+            throw e;
+        }
+        deleteState(stateKey);
+    }
+
+    /**
+     * 放弃这个对象未完成的分片上传（数据源已不存在，无法继续时调用）
+     * @param bucket 存储桶名称
+     * @param key 对象的键名
+     */
+    public void discard(String bucket, String key) {
+        String stateKey = RedisKeyUtil.getUploadKey(bucket, key);
+        Object uploadId = redisTemplate.opsForHash().get(stateKey, UPLOAD_ID);
+        if (uploadId != null) {
+            abortQuietly(bucket, key, uploadId.toString());
+        }
+        deleteState(stateKey);
+    }
+
+    /**
+     * 放弃超过保存时间仍未完成的分片上传，删除服务端已上传的分片
+     * 多个节点同时执行时，只有从zset中移除成功的节点处理
+     */
+    @Scheduled(fixedDelayString = "${travel.upload.multipart.sweep-millis:3600000}")
+    public void abortExpired() {
+        String activeKey = RedisKeyUtil.getUploadActiveKey();
+        Set<Object> expired = redisTemplate.opsForZSet().rangeByScore(activeKey, 0, System.currentTimeMillis());
+        if (expired == null) {
+            return;
+        }
+        for (Object member : expired) {
+            Long removed = redisTemplate.opsForZSet().remove(activeKey, member);
+            if (removed == null || removed == 0) {
+                continue;
+            }
+            String stateKey = member.toString();
+            Map<Object, Object> state = redisTemplate.opsForHash().entries(stateKey);
+            Object uploadId = state.get(UPLOAD_ID);
+            if (uploadId != null && state.get(BUCKET) != null && state.get(KEY) != null) {
+                log.warn("放弃过期的分片上传：" + state.get(BUCKET) + "/" + state.get(KEY));
+                abortQuietly(state.get(BUCKET).toString(), state.get(KEY).toString(), uploadId.toString());
+            }
+            redisTemplate.delete(stateKey);
+        }
+    }
+
+    private void deleteState(String stateKey) {
+        redisTemplate.delete(stateKey);
+        redisTemplate.opsForZSet().remove(RedisKeyUtil.getUploadActiveKey(), stateKey);
+    }
+
+    private String uploadPart(String bucket, String key, String uploadId, int partNumber,
+                              Path source, long offset, int length) {
+        try {
+            byte[] data = readPart(source, offset, length);
+            return objectStore.uploadPart(bucket, key, uploadId, partNumber, new ByteArrayInputStream(data), length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] readPart(Path source, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new EOFException("文件长度不足：" + source);
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    private void abortQuietly(String bucket, String key, String uploadId) {
+        try {
+            objectStore.abortMultipart(bucket, key, uploadId);
+        } catch (IOException e) {
+            log.warn("放弃分片上传失败：" + bucket + "/" + key + "，" + e.getMessage());
+        }
+    }
+}
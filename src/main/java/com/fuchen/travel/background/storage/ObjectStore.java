@@ -0,0 +1,68 @@
+package com.fuchen.travel.background.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.SortedMap;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/18
+ * 对象存储，线上使用腾讯云COS，本地开发和测试使用本地文件系统
+ */
+public interface ObjectStore {
+
+    /**
+     * 上传对象，数据直接从输入流读取，不经过临时文件
+     * @param bucket 存储桶名称
+     * @param key 对象的键名
+     * @param in 数据
+     * @param length 数据长度
+     * @param contentType 数据类型，可以为null
+     * @throws IOException 上传失败
+     */
+    void put(String bucket, String key, InputStream in, long length, String contentType) throws IOException;
+
+    /**
+     * 开始分片上传
+     * @param bucket 存储桶名称
+     * @param key 对象的键名
+     * @param contentType 数据类型，可以为null
+     * @return 分片上传id
+     * @throws IOException 请求失败
+     */
+    String initiateMultipart(String bucket, String key, String contentType) throws IOException;
+
+    /**
+     * 上传一个分片，同一次分片上传的各个分片可以并行上传
+     * @param bucket 存储桶名称
+     * @param key 对象的键名
+     * @param uploadId 分片上传id
+     * @param partNumber 分片序号，从1开始
+     * @param in 分片数据
+     * @param length 分片长度
+     * @return 分片的ETag，合并时使用
+     * @throws IOException 上传失败
+     */
+    String uploadPart(String bucket, String key, String uploadId, int partNumber, InputStream in, long length)
+            throws IOException;
+
+    /**
+     * 合并全部分片，完成后对象才可以访问
+     * @param bucket 存储桶名称
+     * @param key 对象的键名
+     * @param uploadId 分片上传id
+     * @param etags 分片序号与ETag，按序号排列
+     * @throws IOException 合并失败
+     */
+    void completeMultipart(String bucket, String key, String uploadId, SortedMap<Integer, String> etags)
+            throws IOException;
+
+    /**
+     * 放弃分片上传，删除已上传的分片
+     * @param bucket 存储桶名称
+     * @param key 对象的键名
+     * @param uploadId 分片上传id
+     * @throws IOException 请求失败
+     */
+    void abortMultipart(String bucket, String key, String uploadId) throws IOException;
+}
@@ -0,0 +1,443 @@
+package com.fuchen.travel.background.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PostConstruct;
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/21
+ * 缩略图：第一次访问时从原图缩放生成，结果保存在磁盘缓存和内存LRU中，两者都按总字节数限制大小
+ * 原图优先从本地图片目录读取，不存在时从对象存储的访问地址下载
+ */
+@Component
+public class ThumbnailService {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailService.class);
+
+    /**
+     * 文件名只允许字母、数字、下划线、点和横线，不能以点开头
+     */
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9_.-]*");
+
+    private static final String SIZE_SPLIT = "x";
+
+    private final Path cacheDir;
+
+    /**
+     * 等待预生成的图片暂存目录，在缓存目录下
+     */
+    private final Path spoolDir;
+
+    private final Path imageDir;
+
+    private final String remoteUrl;
+
+    private final TaskExecutor executor;
+
+    /**
+     * 允许的尺寸，避免任意尺寸的请求占满缓存
+     */
+    private final Set<String> sizes;
+
+    private final long memoryMaxBytes;
+
+    private final long diskMaxBytes;
+
+    /**
+     * 内存缓存，按访问顺序淘汰
+     */
+    private final LinkedHashMap<String, Thumbnail> memory = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long memoryBytes;
+
+    /**
+     * 磁盘缓存的文件与大小，按访问顺序淘汰
+     */
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long diskBytes;
+
+    /**
+     * 正在生成的缩略图，同一张只生成一次
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<Thumbnail>> generating = new ConcurrentHashMap<>();
+
+    public ThumbnailService(@Value("${travel.thumb.cache-dir:${java.io.tmpdir}/travel-thumb}") String cacheDir,
+                            @Value("${scenic.path.image}") String imageDir,
+                            @Value("${qcloud.bucket.scenic.url}") String remoteUrl,
+                            @Qualifier("thumbnailExecutor") TaskExecutor executor,
+                            @Value("${travel.thumb.sizes:360x200}") List<String> sizes,
+                            @Value("${travel.thumb.memory-max-bytes:16777216}") long memoryMaxBytes,
+                            @Value("${travel.thumb.disk-max-bytes:268435456}") long diskMaxBytes) {
+        this.cacheDir = Paths.get(cacheDir).toAbsolutePath().normalize();
+        this.spoolDir = this.cacheDir.resolve(".spool");
+        this.imageDir = Paths.get(imageDir).toAbsolutePath().normalize();
+        this.remoteUrl = remoteUrl;
+        this.executor = executor;
+        this.sizes = new HashSet<>(sizes);
+        this.memoryMaxBytes = memoryMaxBytes;
+        this.diskMaxBytes = diskMaxBytes;
+    }
+
+    /**
+     * 启动时载入已有的磁盘缓存，旧文件先淘汰；上次退出时未处理的预生成暂存文件直接删除
+     */
+    @PostConstruct
+    public void loadDiskCache() throws IOException {
+        Files.createDirectories(spoolDir);
+        try (Stream<Path> files = Files.list(spoolDir)) {
+            files.forEach(this::deleteSpool);
+        }
+        try (Stream<Path> files = Files.walk(cacheDir, 2)) {
+            List<Path> list = files.filter(Files::isRegularFile)
+                    .filter(file -> !file.startsWith(spoolDir))
+                    .sorted(Comparator.comparingLong(this::lastModified))
+                    .collect(Collectors.toList());
+            synchronized (disk) {
+                for (Path file : list) {
+                    long size = file.toFile().length();
+                    disk.put(cacheDir.relativize(file).toString().replace('\\', '/'), size);
+                    diskBytes += size;
+                }
+                evictDisk();
+            }
+        }
+    }
+
+    /**
+     * 是否为允许的尺寸
+     */
+    public boolean isAllowedSize(int width, int height) {
+        return sizes.contains(width + SIZE_SPLIT + height);
+    }
+
+    /**
+     * 是否为合法的文件名
+     */
+    public boolean isValidName(String name) {
+        return name != null && NAME.matcher(name).matches();
+    }
+
+    /**
+     * 图片地址对应的缩略图路径，供页面使用
+     * @param imageUrl 原图地址
+     * @param width 宽
+     * @param height 高
+     * @return 缩略图路径（不含context-path），不能生成缩略图时返回原图地址
+     */
+    public String getPath(String imageUrl, int width, int height) {
+        if (imageUrl == null || !isAllowedSize(width, height)) {
+            return imageUrl;
+        }
+        String name = imageUrl.substring(imageUrl.lastIndexOf('/') + 1);
+        if (!isValidName(name)) {
+            return imageUrl;
+        }
+        return "/thumb/" + width + SIZE_SPLIT + height + "/" + name;
+    }
+
+    /**
+     * 获取缩略图，依次查找内存、磁盘，都没有时生成
+     * @param width 宽
+     * @param height 高
+     * @param name 原图文件名
+     * @return 缩略图，原图不存在时返回null
+     * @throws IOException 读取或生成失败
+     */
+    public Thumbnail getThumbnail(int width, int height, String name) throws IOException {
+        String size = width + SIZE_SPLIT + height;
+        String key = size + "/" + name;
+        synchronized (memory) {
+            Thumbnail thumbnail = memory.get(key);
+            if (thumbnail != null) {
+                return thumbnail;
+            }
+        }
+        CompletableFuture<Thumbnail> future = new CompletableFuture<>();
+        CompletableFuture<Thumbnail> existing = generating.putIfAbsent(key, future);
+        if (existing != null) {
+            return join(existing);
+        }
+        try {
+            Thumbnail thumbnail = readDisk(size, name);
+            if (thumbnail == null) {
+                BufferedImage source = readSource(name);
+                thumbnail = source == null ? null : createAndStore(source, width, height, name);
+            }
+            if (thumbnail != null) {
+                putMemory(key, thumbnail);
+            }
+            future.complete(thumbnail);
+            return thumbnail;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            generating.remove(key);
+        }
+    }
+
+    /**
+     * 上传图片时在后台生成全部尺寸的缩略图，页面第一次访问时不需要等待
+     * 请求结束后multipart的临时文件会被删除，上传队列的暂存文件在上传完成后删除，
+     * 所以把图片流式写入自己的暂存文件，后台线程从文件读取，不在堆中保留图片数据
+     * 预生成失败或线程池已满时放弃，不影响上传，第一次访问时再生成
+     * @param name 文件名
+     * @param file 上传的图片
+     */
+    public void pregenerate(String name, MultipartFile file) {
+        if (!isValidName(name)) {
+            return;
+        }
+        Path spool;
+        try {
+            spool = Files.createTempFile(spoolDir, "upload", null);
+        } catch (IOException e) {
+            log.warn("创建暂存文件失败，不生成缩略图：" + name + "，" + e.getMessage());
+            return;
+        }
+        try {
+            file.transferTo(spool);
+            executor.execute(() -> {
+                try {
+                    generateAll(name, spool);
+                } finally {
+                    deleteSpool(spool);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("保存图片失败，不生成缩略图：" + name + "，" + e.getMessage());
+            deleteSpool(spool);
+        } catch (TaskRejectedException e) {
+            log.debug("预生成缩略图的线程池已满，第一次访问时再生成：" + name);
+            deleteSpool(spool);
+        }
+    }
+
+    private void generateAll(String name, Path spool) {
+        try {
+            BufferedImage source = ImageIO.read(spool.toFile());
+            if (source == null) {
+                return;
+            }
+            for (String size : sizes) {
+                String[] split = size.split(SIZE_SPLIT);
+                createAndStore(source, Integer.parseInt(split[0]), Integer.parseInt(split[1]), name);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("生成缩略图失败：" + name + "，" + e.getMessage());
+        }
+    }
+
+    private void deleteSpool(Path spool) {
+        try {
+            Files.deleteIfExists(spool);
+        } catch (IOException e) {
+            log.warn("删除缩略图暂存文件失败：" + spool + "，" + e.getMessage());
+        }
+    }
+
+    /**
+     * 缓存统计
+     * @return 内存和磁盘缓存的数量与字节数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        synchronized (memory) {
+            map.put("memoryCount", memory.size());
+            map.put("memoryBytes", memoryBytes);
+        }
+        synchronized (disk) {
+            map.put("diskCount", disk.size());
+            map.put("diskBytes", diskBytes);
+        }
+        return map;
+    }
+
+    private BufferedImage readSource(String name) throws IOException {
+        Path local = imageDir.resolve(name);
+        if (Files.isRegularFile(local)) {
+            return ImageIO.read(local.toFile());
+        }
+        URLConnection connection = new URL(remoteUrl + "/" + name).openConnection();
+        connection.setConnectTimeout(3000);
+        connection.setReadTimeout(10000);
+        try (InputStream in = connection.getInputStream()) {
+            return ImageIO.read(in);
+        } catch (IOException e) {
+            //对象存储中不存在
+            log.debug("读取原图失败：" + name + "，" + e.getMessage());
+            return null;
+        }
+    }
+
+    private Thumbnail readDisk(String size, String name) throws IOException {
+        for (String filename : new String[]{name, name + ".png"}) {
+            String key = size + "/" + filename;
+            Path file = cacheDir.resolve(key);
+            synchronized (disk) {
+                if (disk.get(key) == null) {
+                    continue;
+                }
+            }
+            if (Files.isRegularFile(file)) {
+                return new Thumbnail(Files.readAllBytes(file), filename, lastModified(file));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 等比缩放到指定尺寸以内，只缩小不放大，写入磁盘缓存
+     */
+    private Thumbnail createAndStore(BufferedImage source, int width, int height, String name) throws IOException {
+        double scale = Math.min(1.0, Math.min((double) width / source.getWidth(), (double) height / source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        String lower = name.toLowerCase();
+        boolean jpeg = lower.endsWith(".jpg") || lower.endsWith(".jpeg");
+        //非jpg和png的图片统一输出为png，文件名加上.png后缀
+        String filename = jpeg || lower.endsWith(".png") ? name : name + ".png";
+
+        BufferedImage target = new BufferedImage(targetWidth, targetHeight,
+                jpeg ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.drawImage(source, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(target, jpeg ? "jpg" : "png", out);
+        byte[] data = out.toByteArray();
+
+        String key = width + SIZE_SPLIT + height + "/" + filename;
+        Path file = cacheDir.resolve(key);
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), ".thumb", null);
+        try {
+            Files.write(temp, data);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        synchronized (disk) {
+            Long old = disk.put(key, (long) data.length);
+            diskBytes += data.length - (old == null ? 0 : old);
+            evictDisk();
+        }
+        return new Thumbnail(data, filename, lastModified(file));
+    }
+
+    private void putMemory(String key, Thumbnail thumbnail) {
+        //单张超过上限的不放入内存
+        if (thumbnail.getData().length > memoryMaxBytes) {
+            return;
+        }
+        synchronized (memory) {
+            Thumbnail old = memory.put(key, thumbnail);
+            memoryBytes += thumbnail.getData().length - (old == null ? 0 : old.getData().length);
+            Iterator<Thumbnail> iterator = memory.values().iterator();
+            while (memoryBytes > memoryMaxBytes && iterator.hasNext()) {
+                memoryBytes -= iterator.next().getData().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 磁盘缓存超过上限时删除最久未使用的文件，调用方持有disk的锁
+     */
+    private void evictDisk() {
+        Iterator<Map.Entry<String, Long>> iterator = disk.entrySet().iterator();
+        while (diskBytes > diskMaxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            try {
+                Files.deleteIfExists(cacheDir.resolve(eldest.getKey()));
+            } catch (IOException e) {
+                log.warn("删除缩略图缓存失败：" + eldest.getKey() + "，" + e.getMessage());
+            }
+            diskBytes -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+
+    private long lastModified(Path file) {
+        return file.toFile().lastModified();
+    }
+
+    private static Thumbnail join(CompletableFuture<Thumbnail> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 缩略图数据
+     */
+    public static class Thumbnail {
+        private final byte[] data;
+        private final String filename;
+        private final long createTime;
+
+        public Thumbnail(byte[] data, String filename, long createTime) {
+            this.data = data;
+            this.filename = filename;
+            this.createTime = createTime;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        public long getCreateTime() {
+            return createTime;
+        }
+    }
+}
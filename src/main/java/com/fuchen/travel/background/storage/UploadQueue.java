@@ -0,0 +1,346 @@
+package com.fuchen.travel.background.storage;
+
+import com.fuchen.travel.background.util.TravelUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/18
+ * 异步上传队列：请求线程只把上传的数据写入本地暂存文件，对象的访问地址由键名直接确定，可以立即返回；
+ * 上传在后台线程池中从暂存文件流式读取，失败时按指数退避重试
+ * 排队中的数据按字节数限制总量，超过时直接拒绝，不占用堆内存，也不在请求线程中上传；
+ * 暂存文件在上传结束后删除，进程退出时未上传完的文件在下次启动时继续上传（分片上传从已完成的分片继续）
+ */
+@Component
+public class UploadQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadQueue.class);
+
+    private static final String DATA_SUFFIX = ".data";
+
+    private static final String META_SUFFIX = ".properties";
+
+    private final ObjectStore objectStore;
+
+    private final MultipartUploader multipartUploader;
+
+    private final TaskExecutor executor;
+
+    /**
+     * 最多尝试次数
+     */
+    private final int maxAttempts;
+
+    /**
+     * 第一次重试前的等待时间（毫秒），之后每次翻倍
+     */
+    private final long backoffMillis;
+
+    /**
+     * 暂存文件的目录
+     */
+    private final Path spoolDir;
+
+    /**
+     * 排队中（包括正在上传）的数据总量上限（字节）
+     */
+    private final long maxQueuedBytes;
+
+    /**
+     * 本进程的启动时间，之后写入的暂存文件由本进程上传，启动时不恢复
+     */
+    private final long startTime = System.currentTimeMillis();
+
+    private final AtomicLong queuedBytes = new AtomicLong();
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final LongAdder succeeded = new LongAdder();
+
+    private final LongAdder retried = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    public UploadQueue(ObjectStore objectStore, MultipartUploader multipartUploader,
+                       @Qualifier("uploadExecutor") TaskExecutor executor,
+                       @Value("${travel.upload.max-attempts:3}") int maxAttempts,
+                       @Value("${travel.upload.backoff-millis:1000}") long backoffMillis,
+                       @Value("${travel.upload.spool-dir:${java.io.tmpdir}/travel-upload}") String spoolDir,
+                       @Value("${travel.upload.max-queued-bytes:268435456}") long maxQueuedBytes) {
+        this.objectStore = objectStore;
+        this.multipartUploader = multipartUploader;
+        this.executor = executor;
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.backoffMillis = backoffMillis;
+        this.spoolDir = Paths.get(spoolDir).toAbsolutePath().normalize();
+        this.maxQueuedBytes = maxQueuedBytes;
+    }
+
+    /**
+     * 提交上传任务
+     * 请求结束后multipart的临时文件会被删除，所以在请求线程中复制到本队列的暂存目录，重试时从暂存文件重新读取
+     * @param bucket 存储桶名称
+     * @param key 对象的键名
+     * @param file 上传的文件
+     * @return 上传完成或最终失败时结束
+     * @throws IllegalStateException 排队中的数据过多
+     */
+    public CompletableFuture<Void> submit(String bucket, String key, MultipartFile file) {
+        long size = file.getSize();
+        if (!reserve(size)) {
+            rejected.increment();
+            throw new IllegalStateException("上传排队的文件过多，请稍后再试！");
+        }
+        Spool spool;
+        try (InputStream in = file.getInputStream()) {
+            spool = Spool.create(spoolDir, bucket, key, file.getContentType(), in);
+        } catch (IOException e) {
+            queuedBytes.addAndGet(-size);
+            throw new UncheckedIOException("保存上传文件失败！", e);
+        }
+        try {
+            return enqueue(spool);
+        } catch (TaskRejectedException e) {
+            //线程池的队列已满，不在请求线程中上传
+            spool.delete();
+            rejected.increment();
+            throw new IllegalStateException("上传排队的文件过多，请稍后再试！");
+        }
+    }
+
+    /**
+     * 启动后继续上传上次退出时未完成的暂存文件，不受排队总量的限制
+     * 暂存目录只属于本节点，多个节点不会重复上传
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        if (!Files.isDirectory(spoolDir)) {
+            return;
+        }
+        int count = 0;
+        try (DirectoryStream<Path> metas = Files.newDirectoryStream(spoolDir, "*" + META_SUFFIX)) {
+            for (Path meta : metas) {
+                if (Files.getLastModifiedTime(meta).toMillis() >= startTime) {
+                    continue;
+                }
+                Spool spool = Spool.load(meta);
+                if (spool == null) {
+                    continue;
+                }
+                queuedBytes.addAndGet(spool.length);
+                enqueue(spool);
+                count++;
+            }
+        } catch (TaskRejectedException e) {
+            //线程池已满，剩下的文件保留到下次启动
+            log.warn("上传线程池已满，部分未完成的文件下次启动时继续");
+        } catch (IOException | RuntimeException e) {
+            log.error("恢复未完成的上传失败：" + e.getMessage());
+        }
+        if (count > 0) {
+            log.info("继续上传上次未完成的文件：" + count + "个");
+        }
+    }
+
+    private CompletableFuture<Void> enqueue(Spool spool) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        pending.incrementAndGet();
+        try {
+            executor.execute(() -> run(spool, future));
+        } catch (TaskRejectedException e) {
+            pending.decrementAndGet();
+            queuedBytes.addAndGet(-spool.length);
+            throw e;
+        }
+        return future;
+    }
+
+    private void run(Spool spool, CompletableFuture<Void> future) {
+        Throwable error = null;
+        try {
+            upload(spool);
+            succeeded.increment();
+            spool.delete();
+        } catch (InterruptedException e) {
+            //关闭时被中断，保留暂存文件和分片进度，下次启动时继续
+            Thread.currentThread().interrupt();
+            log.warn("上传被中断，下次启动时继续：" + spool.bucket + "/" + spool.key);
+            error = e;
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            log.error("上传失败：" + spool.bucket + "/" + spool.key + "，已尝试" + maxAttempts + "次", e);
+            //暂存文件删除后无法继续上传，放弃服务端未完成的分片上传
+            multipartUploader.discard(spool.bucket, spool.key);
+            spool.delete();
+            error = e;
+        }
+        pending.decrementAndGet();
+        queuedBytes.addAndGet(-spool.length);
+        if (error == null) {
+            future.complete(null);
+        } else {
+            future.completeExceptionally(error);
+        }
+    }
+
+    private void upload(Spool spool) throws IOException, InterruptedException {
+        long wait = backoffMillis;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                //大文件分片并行上传，重试时跳过已完成的分片
+                if (multipartUploader.shouldSplit(spool.length)) {
+                    multipartUploader.upload(spool.bucket, spool.key, spool.data, spool.length, spool.contentType);
+                } else {
+                    try (InputStream in = Files.newInputStream(spool.data)) {
+                        objectStore.put(spool.bucket, spool.key, in, spool.length, spool.contentType);
+                    }
+                }
+                return;
+            } catch (IOException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                retried.increment();
+                log.warn("上传失败，" + wait + "ms后重试：" + spool.bucket + "/" + spool.key + "，" + e.getMessage());
+            }
+            Thread.sleep(wait);
+            wait *= 2;
+        }
+    }
+
+    /**
+     * 占用排队的字节数，超过上限时不占用
+     */
+    private boolean reserve(long size) {
+        long current;
+        do {
+            current = queuedBytes.get();
+            //队列为空时总是接受，单个文件的大小由multipart的配置限制
+            if (current > 0 && current + size > maxQueuedBytes) {
+                return false;
+            }
+        } while (!queuedBytes.compareAndSet(current, current + size));
+        return true;
+    }
+
+    /**
+     * 上传统计
+     * @return 排队中的数量和字节数，成功、重试、失败、拒绝的数量
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("pending", pending.get());
+        map.put("queuedBytes", queuedBytes.get());
+        map.put("succeeded", succeeded.sum());
+        map.put("retried", retried.sum());
+        map.put("failed", failed.sum());
+        map.put("rejected", rejected.sum());
+        return map;
+    }
+
+    /**
+     * 暂存文件：数据文件和记录存储桶、键名、数据类型的属性文件，属性文件最后写入，存在时数据一定完整
+     */
+    private static class Spool {
+
+        private final Path data;
+
+        private final Path meta;
+
+        private final String bucket;
+
+        private final String key;
+
+        private final String contentType;
+
+        private final long length;
+
+        private Spool(Path data, Path meta, String bucket, String key, String contentType, long length) {
+            this.data = data;
+            this.meta = meta;
+            this.bucket = bucket;
+            this.key = key;
+            this.contentType = contentType;
+            this.length = length;
+        }
+
+        static Spool create(Path dir, String bucket, String key, String contentType, InputStream in) throws IOException {
+            Files.createDirectories(dir);
+            String name = TravelUtil.generateUUID();
+            Path data = dir.resolve(name + DATA_SUFFIX);
+            Path meta = dir.resolve(name + META_SUFFIX);
+            try {
+                long length = Files.copy(in, data);
+                Properties properties = new Properties();
+                properties.setProperty("bucket", bucket);
+                properties.setProperty("key", key);
+                if (contentType != null) {
+                    properties.setProperty("contentType", contentType);
+                }
+                Path temp = dir.resolve(name + META_SUFFIX + ".tmp");
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    properties.store(out, null);
+                }
+                Files.move(temp, meta);
+                return new Spool(data, meta, bucket, key, contentType, length);
+            } catch (IOException e) {
+                Files.deleteIfExists(data);
+                throw e;
+            }
+        }
+
+        /**
+         * 读取暂存文件，数据文件已不存在时删除属性文件并返回null
+         */
+        static Spool load(Path meta) throws IOException {
+            String name = meta.getFileName().toString();
+            Path data = meta.resolveSibling(name.substring(0, name.length() - META_SUFFIX.length()) + DATA_SUFFIX);
+            if (!Files.exists(data)) {
+                Files.deleteIfExists(meta);
+                return null;
+            }
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(meta)) {
+                properties.load(in);
+            }
+            return new Spool(data, meta, properties.getProperty("bucket"), properties.getProperty("key"),
+                    properties.getProperty("contentType"), Files.size(data));
+        }
+
+        void delete() {
+            try {
+                Files.deleteIfExists(meta);
+                Files.deleteIfExists(data);
+            } catch (IOException e) {
+                log.warn("删除上传暂存文件失败：" + data + "，" + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.fuchen.travel.background.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/20
+ * 本地图片响应：支持ETag/Last-Modified协商缓存（未修改返回304）和Range分段请求，
+ * 文件内容由tomcat的sendfile或FileChannel.transferTo直接发送，不经过应用层缓冲区
+ */
+@Component
+public class ImageServer {
+
+	/**
+	 * tomcat支持sendfile时在请求中放入该属性
+	 */
+	private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+	private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+	private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+	private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+	/**
+	 * 浏览器缓存时间（秒）
+	 */
+	private final long cacheSeconds;
+
+	public ImageServer(@Value("${travel.image.cache-seconds:2592000}") long cacheSeconds) {
+		this.cacheSeconds = cacheSeconds;
+	}
+
+	/**
+	 * 响应目录中的图片
+	 * @param directory 图片所在目录
+	 * @param filename 文件名
+	 * @param request 请求
+	 * @param response 响应
+	 * @throws IOException 读取或发送失败
+	 */
+	public void serve(String directory, String filename, HttpServletRequest request,
+	                  HttpServletResponse response) throws IOException {
+		Path root = Paths.get(directory).toAbsolutePath().normalize();
+		Path file = root.resolve(filename).normalize();
+		//文件名中不能有..跳出图片目录
+		if (!file.startsWith(root)) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		serve(file, request, response);
+	}
+
+	/**
+	 * 响应图片文件
+	 * @param file 图片文件
+	 * @param request 请求
+	 * @param response 响应
+	 * @throws IOException 读取或发送失败
+	 */
+	public void serve(Path file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+		if (!Files.isRegularFile(file)) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		long length = Files.size(file);
+		long lastModified = Files.getLastModifiedTime(file).toMillis();
+		long[] range = prepare(file.getFileName().toString(), length, lastModified, request, response);
+		if (range != null) {
+			send(file, range[0], range[1], request, response);
+		}
+	}
+
+	/**
+	 * 响应内存中的图片
+	 * @param data 图片数据
+	 * @param filename 文件名，用于确定数据类型
+	 * @param lastModified 生成时间
+	 * @param request 请求
+	 * @param response 响应
+	 * @throws IOException 发送失败
+	 */
+	public void serve(byte[] data, String filename, long lastModified, HttpServletRequest request,
+	                  HttpServletResponse response) throws IOException {
+		long[] range = prepare(filename, data.length, lastModified, request, response);
+		if (range != null) {
+			response.getOutputStream().write(data, (int) range[0], (int) (range[1] - range[0]));
+		}
+	}
+
+	/**
+	 * 设置响应头，处理协商缓存和Range
+	 * @return 需要发送的区间[start, end)，已经响应完成（304、416、HEAD）时返回null
+	 */
+	private long[] prepare(String filename, long length, long lastModified, HttpServletRequest request,
+	                       HttpServletResponse response) throws IOException {
+		String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+		response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=" + cacheSeconds);
+		response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+		//设置ETag和Last-Modified，浏览器的缓存未过期时返回304
+		if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+			return null;
+		}
+		MediaType mediaType = MediaTypeFactory.getMediaType(filename).orElse(MediaType.APPLICATION_OCTET_STREAM);
+		response.setContentType(mediaType.toString());
+
+		long start = 0;
+		long end = length;
+		String range = request.getHeader(HttpHeaders.RANGE);
+		if (range != null && isRangeApplicable(request, etag, lastModified)) {
+			List<HttpRange> ranges;
+			try {
+				ranges = HttpRange.parseRanges(range);
+			} catch (IllegalArgumentException e) {
+				ranges = null;
+			}
+			//只支持单个区间，多个区间时返回整个文件
+			if (ranges != null && ranges.size() == 1) {
+				HttpRange httpRange = ranges.get(0);
+				start = httpRange.getRangeStart(length);
+				end = httpRange.getRangeEnd(length) + 1;
+				if (start >= length || start >= end) {
+					response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+					response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+					return null;
+				}
+				response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+				response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + length);
+			}
+		}
+		response.setContentLengthLong(end - start);
+		if ("HEAD".equalsIgnoreCase(request.getMethod())) {
+			return null;
+		}
+		return new long[]{start, end};
+	}
+
+	/**
+	 * If-Range与当前文件一致（或没有If-Range）时才按Range响应，否则返回整个文件
+	 */
+	private boolean isRangeApplicable(HttpServletRequest request, String etag, long lastModified) {
+		String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+		if (ifRange == null) {
+			return true;
+		}
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+			return ifRange.equals(etag);
+		}
+		long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+		return date != -1 && lastModified / 1000 <= date / 1000;
+	}
+
+	private void send(Path file, long start, long end, HttpServletRequest request,
+	                  HttpServletResponse response) throws IOException {
+		//tomcat直接调用系统的sendfile，文件内容不进入jvm堆
+		if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+			request.setAttribute(SENDFILE_FILENAME, file.toString());
+			request.setAttribute(SENDFILE_START, start);
+			request.setAttribute(SENDFILE_END, end);
+			return;
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+			long position = start;
+			while (position < end) {
+				position += channel.transferTo(position, end - position, out);
+			}
+		}
+	}
+}
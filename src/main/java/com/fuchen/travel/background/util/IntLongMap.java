@@ -0,0 +1,143 @@
+package com.fuchen.travel.background.util;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/11
+ * int到long的映射，键和值都保存在基本类型数组中，没有装箱对象（开放寻址，线性探测）
+ */
+public class IntLongMap {
+
+	private int[] keys;
+	private long[] values;
+	private boolean[] used;
+	private int size;
+
+	public IntLongMap() {
+		this(16);
+	}
+
+	public IntLongMap(int expectedSize) {
+		//负载因子不超过0.5
+		int capacity = Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) << 1;
+		keys = new int[capacity];
+		values = new long[capacity];
+		used = new boolean[capacity];
+	}
+
+	public void put(int key, long value) {
+		int index = indexOf(key);
+		if (used[index]) {
+			values[index] = value;
+			return;
+		}
+		keys[index] = key;
+		values[index] = value;
+		used[index] = true;
+		if (++size * 2 > keys.length) {
+			resize();
+		}
+	}
+
+	public long get(int key, long defaultValue) {
+		int index = indexOf(key);
+		return used[index] ? values[index] : defaultValue;
+	}
+
+	public long get(int key) {
+		return get(key, 0L);
+	}
+
+	public boolean containsKey(int key) {
+		return used[indexOf(key)];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * 找到key所在的位置，不存在时返回可插入的空位
+	 */
+	private int indexOf(int key) {
+		int mask = keys.length - 1;
+		int index = mix(key) & mask;
+		while (used[index] && keys[index] != key) {
+			index = (index + 1) & mask;
+		}
+		return index;
+	}
+
+	private void resize() {
+		int[] oldKeys = keys;
+		long[] oldValues = values;
+		boolean[] oldUsed = used;
+		keys = new int[oldKeys.length * 2];
+		values = new long[oldKeys.length * 2];
+		used = new boolean[oldKeys.length * 2];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i]) {
+				int index = indexOf(oldKeys[i]);
+				keys[index] = oldKeys[i];
+				values[index] = oldValues[i];
+				used[index] = true;
+			}
+		}
+	}
+
+	/**
+	 * 打散连续的id，减少线性探测的冲突
+	 */
+	private static int mix(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("{");
+		for (int i = 0; i < keys.length; i++) {
+			if (used[i]) {
+				if (builder.length() > 1) {
+					builder.append(", ");
+				}
+				builder.append(keys[i]).append('=').append(values[i]);
+			}
+		}
+		return builder.append('}').toString();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof IntLongMap)) {
+			return false;
+		}
+		IntLongMap other = (IntLongMap) o;
+		if (size != other.size) {
+			return false;
+		}
+		for (int i = 0; i < keys.length; i++) {
+			if (used[i] && (!other.containsKey(keys[i]) || other.get(keys[i]) != values[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (used[i]) {
+				hash += keys[i] ^ Long.hashCode(values[i]);
+			}
+		}
+		return hash;
+	}
+}
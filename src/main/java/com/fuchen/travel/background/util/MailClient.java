@@ -39,6 +39,33 @@ public class MailClient {
 			logger.error("发送邮件失败" + e.getMessage());
 		}
 	}
+	
+	/**
+	 * 创建邮件，不发送
+	 * @param to 收件人
+	 * @param subject 主题
+	 * @param content 内容（html）
+	 * @return 邮件
+	 * @throws MessagingException 收件人地址等格式错误
+	 */
+	public MimeMessage createMail(String to, String subject, String content) throws MessagingException {
+		MimeMessage mimeMessage = mailSender.createMimeMessage();
+		MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, "UTF-8");
+		helper.setFrom(from);
+		helper.setTo(to);
+		helper.setSubject(subject);
+		helper.setText(content, true);
+		return mimeMessage;
+	}
+	
+	/**
+	 * 批量发送邮件，只建立一次SMTP连接
+	 * @param mimeMessages 邮件
+	 * @throws org.springframework.mail.MailSendException 部分或全部发送失败，失败的邮件在getFailedMessages()中
+	 */
+	public void sendMails(MimeMessage... mimeMessages) {
+		mailSender.send(mimeMessages);
+	}
 
 	
 	
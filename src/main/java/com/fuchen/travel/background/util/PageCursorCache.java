@@ -0,0 +1,102 @@
+package com.fuchen.travel.background.util;
+
+import com.fuchen.travel.background.entity.Page;
+import com.fuchen.travel.background.entity.PageCursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/02
+ * 分页游标缓存，记录"第N页从哪个排序键开始"，让按页码跳转的旧分页也能走键集分页
+ */
+@Component
+public class PageCursorCache {
+
+	private static final String SPLIT = "|";
+
+	/**
+	 * 游标有效时间（毫秒），数据增删后页边界会漂移，过期后重新走offset校准
+	 */
+	private final long ttlMillis;
+
+	private final Map<String, Entry> cache;
+
+	public PageCursorCache(@Value("${travel.page.cursor.max-size:1024}") int maxSize,
+	                       @Value("${travel.page.cursor.ttl-seconds:300}") long ttlSeconds) {
+		this.ttlMillis = ttlSeconds * 1000;
+		//按访问顺序淘汰最久未使用的游标
+		this.cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * 获取当前页的起始游标：优先使用请求中携带的游标，其次使用缓存中记录的游标
+	 * @param scope 列表标识（不同列表、不同用户需区分）
+	 * @param page 分页对象
+	 * @return 没有可用游标时返回null，调用方使用offset分页
+	 */
+	public PageCursor resolve(String scope, Page page) {
+		PageCursor cursor = PageCursor.decode(page.getCursor());
+		if (cursor != null) {
+			return cursor;
+		}
+		//第一页不需要定位
+		if (page.getCurrent() == 1) {
+			return null;
+		}
+		String key = getKey(scope, page, page.getCurrent());
+		synchronized (cache) {
+			Entry entry = cache.get(key);
+			if (entry == null) {
+				return null;
+			}
+			if (entry.expireAt < System.currentTimeMillis()) {
+				cache.remove(key);
+				return null;
+			}
+			return entry.cursor;
+		}
+	}
+
+	/**
+	 * 记录下一页的起始游标
+	 * @param scope 列表标识
+	 * @param page 分页对象
+	 * @param next 当前页最后一行生成的游标
+	 */
+	public void record(String scope, Page page, PageCursor next) {
+		if (next == null) {
+			return;
+		}
+		//携带游标的请求不知道真实页码，不写缓存
+		if (page.getCursor() != null) {
+			return;
+		}
+		String key = getKey(scope, page, page.getCurrent() + 1);
+		synchronized (cache) {
+			cache.put(key, new Entry(next, System.currentTimeMillis() + ttlMillis));
+		}
+	}
+
+	private String getKey(String scope, Page page, int current) {
+		return scope + SPLIT + page.getPath() + SPLIT + page.getLimit() + SPLIT + current;
+	}
+
+	private static class Entry {
+		private final PageCursor cursor;
+		private final long expireAt;
+
+		private Entry(PageCursor cursor, long expireAt) {
+			this.cursor = cursor;
+			this.expireAt = expireAt;
+		}
+	}
+}
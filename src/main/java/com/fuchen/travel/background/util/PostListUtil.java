@@ -0,0 +1,36 @@
+package com.fuchen.travel.background.util;
+
+import com.fuchen.travel.background.entity.DiscussPost;
+import com.fuchen.travel.background.entity.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/24
+ * 帖子列表的封装，controller和基准测试调用同一个方法
+ */
+public class PostListUtil {
+
+	/**
+	 * 将帖子与已批量查出的作者、赞数量组装在一起
+	 * @param discussPosts 帖子集合
+	 * @param users 用户id与作者
+	 * @param likeCounts 帖子id与赞数量
+	 * @return 每个帖子一个map，包含post、user、likeCount
+	 */
+	public static List<Map<String, Object>> wrap(List<DiscussPost> discussPosts, Map<Integer, User> users, IntLongMap likeCounts) {
+		List<Map<String, Object>> postList = new ArrayList<>(discussPosts.size());
+		for (DiscussPost discussPost : discussPosts) {
+			Map<String, Object> map = new HashMap<>(4);
+			map.put("post", discussPost);
+			map.put("user", users.get(Integer.parseInt(discussPost.getUserId())));
+			map.put("likeCount", likeCounts.get(discussPost.getId()));
+			postList.add(map);
+		}
+		return postList;
+	}
+}
@@ -19,6 +19,10 @@ public class RedisKeyUtil {
 	private static final String PREFIX_DAU = "dau";
 	private static final String PREFIX_POST = "post";
 	private static final String PREFIX_SCENIC_RECOMMEND = "scenicRe";
+	private static final String PREFIX_DASHBOARD = "dashboard";
+	private static final String PREFIX_SEARCH_COUNT = "searchCount";
+	private static final String PREFIX_UPLOAD = "upload";
+	private static final String PREFIX_CAMPAIGN = "campaign";
 
 	/**
 	 * 某个实体类的赞
@@ -76,6 +80,14 @@ public class RedisKeyUtil {
 		return PREFIX_TICKET + SPLIT + ticket;
 	}
 	
+	/**
+	 * 已注销的登录凭证（有序集合，分数为凭证的过期时间）
+	 * @return
+	 */
+	public static String getTicketRevokedKey(){
+		return PREFIX_TICKET + SPLIT + "revoked";
+	}
+	
 	/**
 	 * 用户
 	 * @param userId
@@ -140,4 +152,49 @@ public class RedisKeyUtil {
 	public static String getPostScoreKey(){
 		return PREFIX_POST + SPLIT + "score";
 	}
+
+	/**
+	 * 首页统计快照
+	 * @return
+	 */
+	public static String getDashboardKey(){
+		return PREFIX_DASHBOARD + SPLIT + "snapshot";
+	}
+
+	/**
+	 * 搜索命中数量
+	 * @param type 搜索的数据类型
+	 * @param keyword 关键词
+	 * @return
+	 */
+	public static String getSearchCountKey(String type, String keyword){
+		return PREFIX_SEARCH_COUNT + SPLIT + type + SPLIT + keyword;
+	}
+
+	/**
+	 * 分片上传的进度（分片上传id和已完成分片的ETag）
+	 * @param bucket 存储桶名称
+	 * @param key 对象的键名
+	 * @return
+	 */
+	public static String getUploadKey(String bucket, String key){
+		return PREFIX_UPLOAD + SPLIT + bucket + SPLIT + key;
+	}
+
+	/**
+	 * 进行中的分片上传（zset，成员为分片上传进度的key，分数为过期时间），用于放弃过期未完成的分片上传
+	 * @return
+	 */
+	public static String getUploadActiveKey(){
+		return PREFIX_UPLOAD + SPLIT + "active";
+	}
+
+	/**
+	 * 群发邮件的进度
+	 * @param id 群发id
+	 * @return
+	 */
+	public static String getCampaignKey(String id){
+		return PREFIX_CAMPAIGN + SPLIT + id;
+	}
 }
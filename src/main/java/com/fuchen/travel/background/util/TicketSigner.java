@@ -0,0 +1,114 @@
+package com.fuchen.travel.background.util;
+
+import com.fuchen.travel.background.entity.LoginTicket;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/12
+ * 登录凭证签名工具，凭证中自带用户id和过期时间，只需校验签名即可确认有效，不需要查询redis
+ * 格式：base64url(用户id:过期时间:随机串).base64url(HMAC-SHA256签名)
+ */
+@Component
+public class TicketSigner {
+
+	private static final String ALGORITHM = "HmacSHA256";
+	private static final String SPLIT = ":";
+	private static final String DOT = ".";
+
+	/**
+	 * 密钥的最小长度（字节），与HMAC-SHA256的输出长度相同
+	 */
+	private static final int MIN_SECRET_BYTES = 32;
+
+	private final SecretKeySpec key;
+
+	/**
+	 * 密钥不能写在仓库中的配置文件里，通过环境变量TRAVEL_TICKET_SECRET或外部配置文件提供
+	 * @param secret 密钥，未配置或过短时启动失败
+	 */
+	public TicketSigner(@Value("${travel.ticket.secret:}") String secret) {
+		if (StringUtils.isBlank(secret)) {
+			throw new IllegalStateException("未配置登录凭证密钥，请设置环境变量TRAVEL_TICKET_SECRET！");
+		}
+		if (secret.getBytes(StandardCharsets.UTF_8).length < MIN_SECRET_BYTES) {
+			throw new IllegalStateException("登录凭证密钥长度不能少于" + MIN_SECRET_BYTES + "字节！");
+		}
+		this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+	}
+
+	/**
+	 * 生成签名后的凭证
+	 * @param userId 用户id
+	 * @param expired 过期时间
+	 * @return 凭证字符串
+	 */
+	public String sign(Integer userId, Date expired) {
+		String payload = userId + SPLIT + expired.getTime() + SPLIT + TravelUtil.generateUUID().substring(0, 8);
+		String encoded = encode(payload.getBytes(StandardCharsets.UTF_8));
+		return encoded + DOT + encode(hmac(encoded));
+	}
+
+	/**
+	 * 是否为签名格式的凭证（旧凭证是保存在redis中的随机串）
+	 * @param ticket 凭证
+	 * @return
+	 */
+	public boolean isSigned(String ticket) {
+		return ticket != null && ticket.contains(DOT);
+	}
+
+	/**
+	 * 校验签名并解析凭证，不检查是否过期
+	 * @param ticket 凭证
+	 * @return 签名不正确或格式错误返回null
+	 */
+	public LoginTicket verify(String ticket) {
+		if (!isSigned(ticket)) {
+			return null;
+		}
+		int index = ticket.indexOf(DOT);
+		String encoded = ticket.substring(0, index);
+		try {
+			byte[] signature = Base64.getUrlDecoder().decode(ticket.substring(index + 1));
+			//固定时间比较，避免通过响应时间猜测签名
+			if (!MessageDigest.isEqual(signature, hmac(encoded))) {
+				return null;
+			}
+			String payload = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+			String[] split = payload.split(SPLIT);
+			LoginTicket loginTicket = new LoginTicket();
+			loginTicket.setTicket(ticket);
+			loginTicket.setUserId(Integer.valueOf(split[0]));
+			loginTicket.setExpired(new Date(Long.parseLong(split[1])));
+			loginTicket.setStatus(0);
+			return loginTicket;
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			return null;
+		}
+	}
+
+	private byte[] hmac(String data) {
+		try {
+			Mac mac = Mac.getInstance(ALGORITHM);
+			mac.init(key);
+			return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("登录凭证签名失败！", e);
+		}
+	}
+
+	private static String encode(byte[] bytes) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+	}
+}
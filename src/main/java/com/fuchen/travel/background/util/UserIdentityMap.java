@@ -0,0 +1,32 @@
+package com.fuchen.travel.background.util;
+
+import com.fuchen.travel.background.entity.User;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/10
+ * 一次请求内已查询过的用户，同一个请求中相同的用户只查询一次，请求结束后自动丢弃
+ */
+@Component
+@RequestScope
+public class UserIdentityMap {
+
+	private final Map<Integer, User> users = new HashMap<>();
+
+	public User get(Integer userId) {
+		return users.get(userId);
+	}
+
+	public boolean contains(Integer userId) {
+		return users.containsKey(userId);
+	}
+
+	public void put(Integer userId, User user) {
+		users.put(userId, user);
+	}
+}
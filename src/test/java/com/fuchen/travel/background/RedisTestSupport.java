@@ -0,0 +1,42 @@
+package com.fuchen.travel.background;
+
+import com.fuchen.travel.background.config.RedisConfig;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/28
+ * 测试连接的redis，默认localhost:6379的15号库，可以通过-Dtravel.test.redis.host/port/database修改
+ * 连接不上时跳过测试（例如先执行docker compose -f loadtest/docker-compose.yml up -d）
+ */
+public class RedisTestSupport {
+
+    private static LettuceConnectionFactory factory;
+
+    /**
+     * 与应用相同序列化方式的RedisTemplate，redis不可用时跳过当前测试
+     */
+    public static synchronized RedisTemplate<String, Object> redisTemplate() {
+        if (factory == null) {
+            RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(
+                    System.getProperty("travel.test.redis.host", "localhost"),
+                    Integer.getInteger("travel.test.redis.port", 6379));
+            configuration.setDatabase(Integer.getInteger("travel.test.redis.database", 15));
+            factory = new LettuceConnectionFactory(configuration);
+            factory.afterPropertiesSet();
+        }
+        boolean available;
+        try {
+            factory.getConnection().close();
+            available = true;
+        } catch (RuntimeException e) {
+            available = false;
+        }
+        assumeTrue(available, "redis不可用，跳过测试");
+        return new RedisConfig().redisTemplate(factory);
+    }
+}
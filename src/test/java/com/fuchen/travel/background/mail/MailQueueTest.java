@@ -0,0 +1,215 @@
+package com.fuchen.travel.background.mail;
+
+import com.fuchen.travel.background.RedisTestSupport;
+import com.fuchen.travel.background.util.MailClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.mail.internet.MimeMessage;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/28
+ * MailQueue经LoggingMailSender发送：批量发送、失败重试、死信和退出节点的邮件恢复
+ */
+public class MailQueueTest {
+
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private FlakyMailSender mailSender;
+
+    private MailClient mailClient;
+
+    private ThreadPoolTaskExecutor executor;
+
+    private MailQueue mailQueue;
+
+    @BeforeEach
+    public void setUp() {
+        redisTemplate = RedisTestSupport.redisTemplate();
+        clearKeys();
+        mailSender = new FlakyMailSender();
+        mailClient = new MailClient();
+        ReflectionTestUtils.setField(mailClient, "mailSender", mailSender);
+        ReflectionTestUtils.setField(mailClient, "from", "travel@example.com");
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(5);
+        executor.initialize();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (redisTemplate == null) {
+            return;
+        }
+        if (mailQueue != null) {
+            mailQueue.stop();
+        }
+        executor.shutdown();
+        clearKeys();
+    }
+
+    @Test
+    public void sendsQueuedMailsInOneBatch() throws Exception {
+        mailQueue = newQueue(3);
+        for (int i = 0; i < 5; i++) {
+            mailQueue.enqueue("user" + i + "@example.com", "主题" + i, "<p>内容</p>");
+        }
+
+        mailQueue.start();
+        await(() -> stat("sent") == 5);
+
+        assertEquals(1L, stat("batches"));
+        assertEquals(5, mailSender.getMessages().size());
+        assertEquals(1, mailSender.calls.get());
+        assertEquals(0L, stat("queued"));
+        assertEquals(0L, stat("processing"));
+    }
+
+    @Test
+    public void retriesFailedBatch() throws Exception {
+        mailSender.failures.set(1);
+        mailQueue = newQueue(3);
+        mailQueue.enqueue("a@example.com", "主题", "<p>内容</p>");
+        mailQueue.enqueue("b@example.com", "主题", "<p>内容</p>");
+
+        mailQueue.start();
+        await(() -> stat("retrying") == 2);
+        assertEquals(0L, stat("processing"));
+        mailQueue.moveDueRetries();
+        await(() -> stat("sent") == 2);
+
+        assertEquals(2L, stat("retried"));
+        assertEquals(0L, stat("retrying"));
+        assertEquals(0L, stat("dead"));
+        assertEquals(2, mailSender.getMessages().size());
+    }
+
+    @Test
+    public void deadLettersAfterMaxAttempts() throws Exception {
+        mailSender.failures.set(Integer.MAX_VALUE);
+        mailQueue = newQueue(2);
+        mailQueue.enqueue("a@example.com", "主题", "<p>内容</p>");
+
+        mailQueue.start();
+        await(() -> stat("retrying") == 1);
+        mailQueue.moveDueRetries();
+        await(() -> stat("dead") == 1);
+
+        MailTask task = (MailTask) redisTemplate.opsForList().index("mail:dead", 0);
+        assertNotNull(task);
+        assertEquals("a@example.com", task.getTo());
+        assertEquals(2, task.getAttempts());
+        assertEquals("模拟连接失败", task.getLastError());
+        assertEquals(1L, stat("deadLettered"));
+        assertEquals(0L, stat("processing"));
+    }
+
+    @Test
+    public void deadLettersOnlyFailedMailsOfBatch() throws Exception {
+        mailQueue = newQueue(1);
+        mailQueue.enqueue("a@example.com", "主题", "<p>内容</p>");
+        //收件人地址不合法，LoggingMailSender只拒绝这一封
+        mailQueue.enqueue("b@example..com", "主题", "<p>内容</p>");
+
+        mailQueue.start();
+        await(() -> stat("sent") + stat("dead") == 2);
+
+        assertEquals(1L, stat("sent"));
+        assertEquals(1L, stat("dead"));
+        assertEquals(1L, stat("batches"));
+        assertEquals(0L, stat("processing"));
+    }
+
+    @Test
+    public void recoversOnlyMailsOfExpiredNodes() throws Exception {
+        //已退出的节点没有租约，仍在运行的节点有租约
+        redisTemplate.opsForSet().add("mail:nodes", "dead-node", "live-node");
+        redisTemplate.opsForValue().set("mail:lease:live-node", System.currentTimeMillis(), 1, TimeUnit.MINUTES);
+        redisTemplate.opsForList().leftPush("mail:processing:dead-node", task("dead@example.com"));
+        redisTemplate.opsForList().leftPush("mail:processing:live-node", task("live@example.com"));
+        mailQueue = newQueue(3);
+
+        mailQueue.start();
+        await(() -> stat("sent") == 1);
+
+        List<MimeMessage> messages = mailSender.getMessages();
+        assertEquals("dead@example.com", messages.get(0).getAllRecipients()[0].toString());
+        assertEquals(0L, redisTemplate.opsForList().size("mail:processing:dead-node"));
+        assertEquals(1L, redisTemplate.opsForList().size("mail:processing:live-node"));
+        Set<Object> nodes = redisTemplate.opsForSet().members("mail:nodes");
+        assertFalse(nodes.contains("dead-node"));
+        assertTrue(nodes.contains("live-node"));
+    }
+
+    private MailQueue newQueue(int maxAttempts) {
+        return new MailQueue(redisTemplate, mailClient, executor, 1, 20, maxAttempts, 0, 100, 30000);
+    }
+
+    private long stat(String name) {
+        return ((Number) mailQueue.getStats().get(name)).longValue();
+    }
+
+    private static MailTask task(String to) {
+        MailTask task = new MailTask();
+        task.setId(to);
+        task.setTo(to);
+        task.setSubject("主题");
+        task.setContent("<p>内容</p>");
+        task.setAttempts(0);
+        task.setCreateTime(System.currentTimeMillis());
+        return task;
+    }
+
+    private void clearKeys() {
+        Set<String> keys = redisTemplate.keys("mail:*");
+        if (keys != null && !keys.isEmpty()) {
+            redisTemplate.delete(keys);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * 前几次发送时连接失败（整批失败）的日志邮件
+     */
+    private static class FlakyMailSender extends LoggingMailSender {
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) throws MailException {
+            calls.incrementAndGet();
+            if (failures.getAndDecrement() > 0) {
+                throw new MailSendException("模拟连接失败");
+            }
+            super.doSend(mimeMessages, originalMessages);
+        }
+    }
+}
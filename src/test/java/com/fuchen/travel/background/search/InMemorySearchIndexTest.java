@@ -0,0 +1,124 @@
+package com.fuchen.travel.background.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/28
+ * InMemorySearchIndex的结果与LIKE "%关键词%"一致：子串匹配、单字、n-gram都出现但不连续、删除、排序和分页
+ */
+public class InMemorySearchIndexTest {
+
+    private InMemorySearchIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new InMemorySearchIndex();
+        index.save(SearchType.POST, 1, "西湖十景游玩攻略", 0);
+        index.save(SearchType.POST, 2, "杭州西湖一日游", 0);
+        index.save(SearchType.POST, 3, "西溪湿地和湖滨步行街", 0);
+        index.save(SearchType.POST, 4, "灵隐寺", 0);
+    }
+
+    @Test
+    public void keywordMatchesSubstring() {
+        SearchResult result = index.search(SearchType.POST, "西湖", 0, 10);
+        assertEquals(Arrays.asList(2, 1), result.getIds());
+        assertEquals(2, result.getTotal());
+    }
+
+    @Test
+    public void singleCharacterKeywordUsesUnigrams() {
+        assertEquals(Arrays.asList(3, 2, 1), index.search(SearchType.POST, "湖", 0, 10).getIds());
+        assertEquals(Collections.singletonList(4), index.search(SearchType.POST, "寺", 0, 10).getIds());
+        assertTrue(index.search(SearchType.POST, "塔", 0, 10).isEmpty());
+    }
+
+    @Test
+    public void requiresKeywordCharactersInOrderAndAdjacent() {
+        //"西"和"湖"都出现但不相邻，"湖西"顺序相反，都不能命中
+        assertEquals(Arrays.asList(2, 1), index.search(SearchType.POST, "西湖", 0, 10).getIds());
+        assertTrue(index.search(SearchType.POST, "湖西", 0, 10).isEmpty());
+    }
+
+    @Test
+    public void overlappingNgramsAreConfirmedAgainstContent() {
+        index.save(SearchType.SCENIC, 1, "13800138000", 0);
+        index.save(SearchType.SCENIC, 2, "800138", 0);
+        index.save(SearchType.SCENIC, 3, "0000", 0);
+        //"13800"的n-gram（13、38、80、00）在2中都出现，但2不包含"13800"
+        assertEquals(Collections.singletonList(1), index.search(SearchType.SCENIC, "13800", 0, 10).getIds());
+        //重复字符组成的关键词只有一个n-gram，需要确认长度足够
+        assertEquals(Collections.singletonList(3), index.search(SearchType.SCENIC, "0000", 0, 10).getIds());
+        assertEquals(Arrays.asList(3, 1), index.search(SearchType.SCENIC, "000", 0, 10).getIds());
+    }
+
+    @Test
+    public void searchIsCaseInsensitive() {
+        index.save(SearchType.GOODS, 1, "Travel Mug", 0);
+        assertEquals(Collections.singletonList(1), index.search(SearchType.GOODS, "travel", 0, 10).getIds());
+        assertEquals(Collections.singletonList(1), index.search(SearchType.GOODS, "MUG", 0, 10).getIds());
+    }
+
+    @Test
+    public void emptyKeywordReturnsNothing() {
+        assertTrue(index.search(SearchType.POST, "", 0, 10).isEmpty());
+        assertTrue(index.search(SearchType.POST, null, 0, 10).isEmpty());
+    }
+
+    @Test
+    public void deleteAndOverwriteRemoveOldTokens() {
+        index.delete(SearchType.POST, 2);
+        assertEquals(Collections.singletonList(1), index.search(SearchType.POST, "西湖", 0, 10).getIds());
+        //修改后旧文本不再命中
+        index.save(SearchType.POST, 1, "千岛湖", 0);
+        assertTrue(index.search(SearchType.POST, "西湖", 0, 10).isEmpty());
+        assertEquals(Collections.singletonList(1), index.search(SearchType.POST, "千岛", 0, 10).getIds());
+        //删除不存在的id不报错
+        index.delete(SearchType.POST, 99);
+    }
+
+    @Test
+    public void typesAreIndependent() {
+        index.save(SearchType.GOODS, 1, "西湖龙井", 0);
+        index.clear(SearchType.POST);
+        assertTrue(index.search(SearchType.POST, "西湖", 0, 10).isEmpty());
+        assertEquals(Collections.singletonList(1), index.search(SearchType.GOODS, "西湖", 0, 10).getIds());
+        assertTrue(index.ids(SearchType.POST).isEmpty());
+    }
+
+    @Test
+    public void ordersByWeightThenIdDescending() {
+        index.save(SearchType.POST, 5, "西湖夜景", 1);
+        index.save(SearchType.POST, 6, "西湖音乐喷泉", 0);
+        index.save(SearchType.POST, 7, "西湖醋鱼", 2);
+        assertEquals(Arrays.asList(7, 5, 6, 2, 1), index.search(SearchType.POST, "西湖", 0, 10).getIds());
+    }
+
+    @Test
+    public void pagesThroughOrderedMatches() {
+        for (int id = 10; id < 25; id++) {
+            index.save(SearchType.BATHROOM_TYPE, id, "淋浴间" + id, 0);
+        }
+        SearchResult first = index.search(SearchType.BATHROOM_TYPE, "淋浴", 0, 10);
+        SearchResult second = index.search(SearchType.BATHROOM_TYPE, "淋浴", 10, 10);
+        assertEquals(15, first.getTotal());
+        assertEquals(15, second.getTotal());
+        assertEquals(Arrays.asList(24, 23, 22, 21, 20, 19, 18, 17, 16, 15), first.getIds());
+        assertEquals(Arrays.asList(14, 13, 12, 11, 10), second.getIds());
+        assertTrue(index.search(SearchType.BATHROOM_TYPE, "淋浴", 20, 10).getIds().isEmpty());
+    }
+
+    @Test
+    public void idsListsIndexedDocuments() {
+        assertEquals(new HashSet<>(Arrays.asList(1, 2, 3, 4)), new HashSet<>(index.ids(SearchType.POST)));
+    }
+}
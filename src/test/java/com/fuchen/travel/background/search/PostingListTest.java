@@ -0,0 +1,63 @@
+package com.fuchen.travel.background.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/28
+ * PostingList：有序去重、删除、扩容和求交集
+ */
+public class PostingListTest {
+
+    @Test
+    public void addKeepsIdsSortedAndUnique() {
+        PostingList list = new PostingList();
+        for (int id : new int[]{5, 1, 9, 5, 3, 1}) {
+            list.add(id);
+        }
+        assertArrayEquals(new int[]{1, 3, 5, 9}, list.toArray());
+        assertEquals(4, list.size());
+    }
+
+    @Test
+    public void addGrowsBeyondInitialCapacity() {
+        PostingList list = new PostingList();
+        for (int id = 100; id > 0; id--) {
+            list.add(id);
+        }
+        assertEquals(100, list.size());
+        int[] ids = list.toArray();
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(i + 1, ids[i]);
+        }
+    }
+
+    @Test
+    public void removeIgnoresMissingIds() {
+        PostingList list = new PostingList();
+        list.add(1);
+        list.add(2);
+        list.add(3);
+        list.remove(2);
+        list.remove(7);
+        assertArrayEquals(new int[]{1, 3}, list.toArray());
+        list.remove(1);
+        list.remove(3);
+        assertTrue(list.isEmpty());
+    }
+
+    @Test
+    public void intersectReturnsSortedCommonIds() {
+        PostingList list = new PostingList();
+        for (int id : new int[]{2, 4, 6, 8, 10}) {
+            list.add(id);
+        }
+        assertArrayEquals(new int[]{4, 8, 10}, list.intersect(new int[]{1, 4, 5, 8, 10, 12}));
+        assertArrayEquals(new int[0], list.intersect(new int[]{1, 3, 5}));
+        assertArrayEquals(new int[0], list.intersect(new int[0]));
+    }
+}
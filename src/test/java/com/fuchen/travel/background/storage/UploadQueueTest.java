@@ -0,0 +1,260 @@
+package com.fuchen.travel.background.storage;
+
+import com.fuchen.travel.background.RedisTestSupport;
+import com.fuchen.travel.background.util.RedisKeyUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/28
+ * UploadQueue经MultipartUploader写入LocalObjectStore：失败重试、分片上传重试和重启后继续上传
+ */
+public class UploadQueueTest {
+
+    private static final String BUCKET = "test";
+
+    private static final int PART_SIZE = 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private String key;
+
+    private final List<ThreadPoolTaskExecutor> executors = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        redisTemplate = RedisTestSupport.redisTemplate();
+        key = "upload-test/" + UUID.randomUUID() + ".bin";
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executors.forEach(ThreadPoolTaskExecutor::shutdown);
+        if (redisTemplate == null) {
+            return;
+        }
+        String stateKey = RedisKeyUtil.getUploadKey(BUCKET, key);
+        redisTemplate.delete(stateKey);
+        redisTemplate.opsForZSet().remove(RedisKeyUtil.getUploadActiveKey(), stateKey);
+    }
+
+    @Test
+    public void retriesFailedPut() throws Exception {
+        FlakyObjectStore store = new FlakyObjectStore(tempDir.resolve("store"));
+        store.putFailures.set(2);
+        UploadQueue queue = newQueue(store, 3, 1);
+        byte[] data = randomBytes(100);
+
+        queue.submit(BUCKET, key, file(data)).get(10, TimeUnit.SECONDS);
+
+        assertArrayEquals(data, Files.readAllBytes(store.resolve(BUCKET, key)));
+        Map<String, Object> stats = queue.getStats();
+        assertEquals(2L, stats.get("retried"));
+        assertEquals(1L, stats.get("succeeded"));
+        assertEquals(0L, stats.get("queuedBytes"));
+        assertSpoolEmpty();
+    }
+
+    @Test
+    public void failsAfterMaxAttempts() throws Exception {
+        FlakyObjectStore store = new FlakyObjectStore(tempDir.resolve("store"));
+        store.putFailures.set(Integer.MAX_VALUE);
+        UploadQueue queue = newQueue(store, 2, 1);
+
+        CompletableFuture<Void> future = queue.submit(BUCKET, key, file(randomBytes(100)));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, e.getCause());
+        assertEquals(1L, queue.getStats().get("failed"));
+        assertFalse(Files.exists(store.resolve(BUCKET, key)));
+        assertSpoolEmpty();
+    }
+
+    @Test
+    public void multipartRetryUploadsOnlyMissingParts() throws Exception {
+        FlakyObjectStore store = new FlakyObjectStore(tempDir.resolve("store"));
+        store.failPartOnce = 3;
+        UploadQueue queue = newQueue(store, 2, 1);
+        byte[] data = randomBytes(PART_SIZE * 4 + 500);
+
+        queue.submit(BUCKET, key, file(data)).get(10, TimeUnit.SECONDS);
+
+        assertArrayEquals(data, Files.readAllBytes(store.resolve(BUCKET, key)));
+        //5个分片，失败的第3片上传了两次
+        assertEquals(6, store.partCalls.get());
+        assertFalse(redisTemplate.hasKey(RedisKeyUtil.getUploadKey(BUCKET, key)));
+        assertSpoolEmpty();
+    }
+
+    @Test
+    public void multipartResumesAfterRestart() throws Exception {
+        byte[] data = randomBytes(PART_SIZE * 4 + 500);
+        FlakyObjectStore first = new FlakyObjectStore(tempDir.resolve("store"));
+        interruptAfterPartFailure(first, data);
+
+        //重启：新的队列从暂存文件继续，只上传缺少的第3片
+        FlakyObjectStore second = new FlakyObjectStore(tempDir.resolve("store"));
+        UploadQueue queue = newQueue(second, 2, 1);
+        queue.recover();
+        await(() -> ((Long) queue.getStats().get("succeeded")) == 1);
+
+        assertArrayEquals(data, Files.readAllBytes(second.resolve(BUCKET, key)));
+        assertEquals(1, second.partCalls.get());
+        assertFalse(redisTemplate.hasKey(RedisKeyUtil.getUploadKey(BUCKET, key)));
+        assertSpoolEmpty();
+    }
+
+    @Test
+    public void expiredMultipartIsAborted() throws Exception {
+        FlakyObjectStore store = new FlakyObjectStore(tempDir.resolve("store"));
+        MultipartUploader uploader = interruptAfterPartFailure(store, randomBytes(PART_SIZE * 4 + 500));
+        String stateKey = RedisKeyUtil.getUploadKey(BUCKET, key);
+        String uploadId = (String) redisTemplate.opsForHash().get(stateKey, "uploadId");
+        Path partDir = tempDir.resolve("store").resolve(".multipart").resolve(uploadId);
+        assertTrue(Files.isDirectory(partDir));
+
+        //进度已过期：服务端的分片被放弃，进度被删除
+        redisTemplate.opsForZSet().add(RedisKeyUtil.getUploadActiveKey(), stateKey, 0);
+        uploader.abortExpired();
+
+        assertFalse(Files.exists(partDir));
+        assertFalse(redisTemplate.hasKey(stateKey));
+    }
+
+    /**
+     * 第3片上传失败后在等待重试时中断上传线程（相当于进程退出），暂存文件和已完成分片的进度保留
+     */
+    private MultipartUploader interruptAfterPartFailure(FlakyObjectStore store, byte[] data) throws Exception {
+        store.failPartOnce = 3;
+        MultipartUploader uploader = newUploader(store);
+        ThreadPoolTaskExecutor executor = newExecutor();
+        UploadQueue queue = new UploadQueue(store, uploader, executor, 2, 60000,
+                tempDir.resolve("spool").toString(), 1 << 20);
+        CompletableFuture<Void> future = queue.submit(BUCKET, key, file(data));
+        await(() -> ((Long) queue.getStats().get("retried")) == 1);
+        executor.shutdown();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(InterruptedException.class, e.getCause());
+        //5个分片都上传过一次，第3片失败
+        assertEquals(5, store.partCalls.get());
+        //暂存文件的修改时间早于下一个进程的启动时间
+        try (Stream<Path> files = Files.list(tempDir.resolve("spool"))) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+            }
+        }
+        return uploader;
+    }
+
+    private UploadQueue newQueue(ObjectStore store, int maxAttempts, long backoffMillis) {
+        return new UploadQueue(store, newUploader(store), newExecutor(), maxAttempts, backoffMillis,
+                tempDir.resolve("spool").toString(), 1 << 20);
+    }
+
+    private MultipartUploader newUploader(ObjectStore store) {
+        return new MultipartUploader(store, redisTemplate, new SyncTaskExecutor(), PART_SIZE * 2, PART_SIZE, 24);
+    }
+
+    private ThreadPoolTaskExecutor newExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.initialize();
+        executors.add(executor);
+        return executor;
+    }
+
+    private void assertSpoolEmpty() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir.resolve("spool"))) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private static MockMultipartFile file(byte[] data) {
+        return new MockMultipartFile("file", "test.bin", "application/octet-stream", data);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * 前几次整体上传失败、某个分片第一次上传失败的本地存储
+     */
+    private static class FlakyObjectStore extends LocalObjectStore {
+
+        private final AtomicInteger putFailures = new AtomicInteger();
+
+        private final AtomicInteger partCalls = new AtomicInteger();
+
+        private volatile int failPartOnce;
+
+        FlakyObjectStore(Path root) {
+            super(root.toString());
+        }
+
+        @Override
+        public void put(String bucket, String key, InputStream in, long length, String contentType) throws IOException {
+            if (putFailures.getAndDecrement() > 0) {
+                throw new IOException("模拟上传失败");
+            }
+            super.put(bucket, key, in, length, contentType);
+        }
+
+        @Override
+        public String uploadPart(String bucket, String key, String uploadId, int partNumber, InputStream in, long length)
+                throws IOException {
+            partCalls.incrementAndGet();
+            if (partNumber == failPartOnce) {
+                failPartOnce = 0;
+                throw new IOException("模拟分片上传失败");
+            }
+            return super.uploadPart(bucket, key, uploadId, partNumber, in, length);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.fuchen.travel.background.util;
+
+import com.fuchen.travel.background.entity.Page;
+import com.fuchen.travel.background.entity.PageCursor;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/28
+ * PageCursor的编解码，PageCursorCache的命中、未命中时退回offset分页、过期和淘汰
+ */
+public class PageCursorCacheTest {
+
+    @Test
+    public void cursorRoundTrips() {
+        PageCursor byId = PageCursor.decode(PageCursor.of(15).encode());
+        assertEquals(15, byId.getId());
+        assertNull(byId.getCreateTime());
+
+        Date createTime = new Date(1686700000000L);
+        PageCursor byTime = PageCursor.decode(PageCursor.of(15, createTime).encode());
+        assertEquals(15, byTime.getId());
+        assertEquals(createTime, byTime.getCreateTime());
+    }
+
+    @Test
+    public void incompleteOrMalformedCursorIsNull() {
+        assertNull(PageCursor.of(null));
+        assertNull(PageCursor.of(15, null));
+        assertNull(PageCursor.decode(null));
+        assertNull(PageCursor.decode(""));
+        assertNull(PageCursor.decode("***"));
+        assertNull(PageCursor.decode("YWJj"));
+    }
+
+    @Test
+    public void recordedCursorIsUsedForNextPage() {
+        PageCursorCache cache = new PageCursorCache(16, 300);
+        cache.record("post:id", page(1, null), PageCursor.of(90));
+
+        PageCursor cursor = cache.resolve("post:id", page(2, null));
+        assertNotNull(cursor);
+        assertEquals(90, cursor.getId());
+    }
+
+    @Test
+    public void requestCursorTakesPrecedence() {
+        PageCursorCache cache = new PageCursorCache(16, 300);
+        cache.record("post:id", page(1, null), PageCursor.of(90));
+
+        PageCursor cursor = cache.resolve("post:id", page(2, PageCursor.of(50).encode()));
+        assertEquals(50, cursor.getId());
+        //携带游标的请求不知道真实页码，不写缓存
+        cache.record("post:id", page(3, PageCursor.of(50).encode()), PageCursor.of(40));
+        assertNull(cache.resolve("post:id", page(4, null)));
+    }
+
+    @Test
+    public void missFallsBackToOffset() {
+        PageCursorCache cache = new PageCursorCache(16, 300);
+        cache.record("post:id", page(1, null), PageCursor.of(90));
+
+        //第一页、没有记录的页码、不同的列表、路径或每页数量都返回null，由调用方使用offset
+        assertNull(cache.resolve("post:id", page(1, null)));
+        assertNull(cache.resolve("post:id", page(3, null)));
+        assertNull(cache.resolve("post:time", page(2, null)));
+        Page otherPath = page(2, null);
+        otherPath.setPath("/other");
+        assertNull(cache.resolve("post:id", otherPath));
+        Page otherLimit = page(2, null);
+        otherLimit.setLimit(20);
+        assertNull(cache.resolve("post:id", otherLimit));
+        //无法解析的游标同样退回
+        assertNull(new PageCursorCache(16, 300).resolve("post:id", page(2, "***")));
+    }
+
+    @Test
+    public void expiredCursorIsDropped() throws InterruptedException {
+        PageCursorCache cache = new PageCursorCache(16, 0);
+        cache.record("post:id", page(1, null), PageCursor.of(90));
+        Thread.sleep(5);
+        assertNull(cache.resolve("post:id", page(2, null)));
+    }
+
+    @Test
+    public void leastRecentlyUsedCursorIsEvicted() {
+        PageCursorCache cache = new PageCursorCache(2, 300);
+        cache.record("post:id", page(1, null), PageCursor.of(90));
+        cache.record("post:id", page(2, null), PageCursor.of(80));
+        //访问第2页的游标后，第3页的游标成为最久未使用
+        assertNotNull(cache.resolve("post:id", page(2, null)));
+        cache.record("post:id", page(3, null), PageCursor.of(70));
+
+        assertEquals(90, cache.resolve("post:id", page(2, null)).getId());
+        assertNull(cache.resolve("post:id", page(3, null)));
+        assertEquals(70, cache.resolve("post:id", page(4, null)).getId());
+    }
+
+    private static Page page(int current, String cursor) {
+        Page page = new Page();
+        page.setPath("/discuss");
+        page.setLimit(10);
+        page.setRows(1000);
+        page.setCurrent(current);
+        page.setCursor(cursor);
+        return page;
+    }
+}
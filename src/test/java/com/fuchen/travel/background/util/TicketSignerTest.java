@@ -0,0 +1,105 @@
+package com.fuchen.travel.background.util;
+
+import com.fuchen.travel.background.entity.LoginTicket;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author 伏辰
+ * @date 2023/06/28
+ * TicketSigner：签名校验、篡改内容或签名、过期时间、不同密钥和密钥配置检查
+ */
+public class TicketSignerTest {
+
+    private static final String SECRET = "test-secret-0123456789abcdef0123456789";
+
+    private final TicketSigner signer = new TicketSigner(SECRET);
+
+    @Test
+    public void verifiesOwnTicket() {
+        Date expired = new Date(System.currentTimeMillis() + 3600 * 1000L);
+        String ticket = signer.sign(42, expired);
+        assertTrue(signer.isSigned(ticket));
+        LoginTicket loginTicket = signer.verify(ticket);
+        assertNotNull(loginTicket);
+        assertEquals(42, loginTicket.getUserId());
+        assertEquals(expired, loginTicket.getExpired());
+        assertEquals(ticket, loginTicket.getTicket());
+        assertEquals(0, loginTicket.getStatus());
+    }
+
+    @Test
+    public void ticketsForSameUserDiffer() {
+        Date expired = new Date(System.currentTimeMillis() + 3600 * 1000L);
+        assertNotEquals(signer.sign(42, expired), signer.sign(42, expired));
+    }
+
+    @Test
+    public void rejectsTamperedPayload() {
+        String ticket = signer.sign(42, new Date(System.currentTimeMillis() + 3600 * 1000L));
+        int index = ticket.indexOf('.');
+        String payload = new String(Base64.getUrlDecoder().decode(ticket.substring(0, index)), StandardCharsets.UTF_8);
+        //改成其他用户的id，签名不变
+        String forged = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.replaceFirst("^42:", "1:").getBytes(StandardCharsets.UTF_8));
+        assertNull(signer.verify(forged + ticket.substring(index)));
+    }
+
+    @Test
+    public void rejectsTamperedSignature() {
+        String ticket = signer.sign(42, new Date(System.currentTimeMillis() + 3600 * 1000L));
+        char last = ticket.charAt(ticket.length() - 2);
+        String tampered = ticket.substring(0, ticket.length() - 2) + (last == 'A' ? 'B' : 'A')
+                + ticket.charAt(ticket.length() - 1);
+        assertNull(signer.verify(tampered));
+        //截断的签名
+        assertNull(signer.verify(ticket.substring(0, ticket.length() - 4)));
+        //空签名
+        assertNull(signer.verify(ticket.substring(0, ticket.indexOf('.') + 1)));
+    }
+
+    @Test
+    public void rejectsTicketSignedWithOtherKey() {
+        TicketSigner other = new TicketSigner("other-secret-0123456789abcdef01234567");
+        String ticket = other.sign(42, new Date(System.currentTimeMillis() + 3600 * 1000L));
+        assertNull(signer.verify(ticket));
+    }
+
+    @Test
+    public void expiredTicketKeepsItsExpiry() {
+        //verify不检查过期，由调用方根据过期时间判断
+        Date expired = new Date(System.currentTimeMillis() - 1000L);
+        LoginTicket loginTicket = signer.verify(signer.sign(42, expired));
+        assertNotNull(loginTicket);
+        assertEquals(expired, loginTicket.getExpired());
+        assertTrue(loginTicket.getExpired().before(new Date()));
+    }
+
+    @Test
+    public void rejectsMalformedTickets() {
+        assertNull(signer.verify(null));
+        //旧的随机串凭证
+        assertFalse(signer.isSigned("3f2a9c0e8b7d4e1f"));
+        assertNull(signer.verify("3f2a9c0e8b7d4e1f"));
+        assertNull(signer.verify("."));
+        assertNull(signer.verify("not*base64.also*not"));
+    }
+
+    @Test
+    public void requiresLongEnoughSecret() {
+        assertThrows(IllegalStateException.class, () -> new TicketSigner(""));
+        assertThrows(IllegalStateException.class, () -> new TicketSigner("   "));
+        assertThrows(IllegalStateException.class, () -> new TicketSigner("too-short-secret"));
+    }
+}